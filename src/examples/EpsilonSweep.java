@@ -0,0 +1,79 @@
+package examples;
+
+import java.util.Arrays;
+
+import models.DARMSModel;
+import solvers.DARMSMarginalSolver;
+import solvers.LpBackends;
+import utilities.DARMSHelper;
+import utilities.DARMSModelBuilder;
+
+/**
+ * Solves the marginal LP for a decreasing sequence of epsilons on one model.
+ * Every epsilon only adds samples, which extend the ones drawn so far, so the
+ * LP of the previous epsilon is extended with the rows of the new samples
+ * instead of being rebuilt. With -rebuild the LP is also built from scratch
+ * for every epsilon to compare payoffs and times.
+ *
+ * Usage: EpsilonSweep inputFile numFlights epsilon... [-rebuild]
+ */
+public class EpsilonSweep {
+	public static void main(String[] args) {
+		try {
+			String inputFile = args[0];
+			int numFlights = Integer.parseInt(args[1]);
+			boolean rebuild = args[args.length - 1].equals("-rebuild");
+
+			double[] epsilons = new double[args.length - 2 - (rebuild ? 1 : 0)];
+
+			for(int i = 0; i < epsilons.length; i++){
+				epsilons[i] = Double.parseDouble(args[i + 2]);
+			}
+
+			// smaller epsilons need more samples
+			Arrays.sort(epsilons);
+
+			DARMSModel model = DARMSModelBuilder.buildModel(inputFile, false, 0, epsilons[epsilons.length - 1], numFlights);
+
+			if( model.lpBackend.equalsIgnoreCase( LpBackends.CPLEX ) ){
+				DARMSHelper.loadLibrariesCplex("CplexConfig");
+			}
+
+			DARMSMarginalSolver solver = new DARMSMarginalSolver(model, true, false, model.flightByFlight(), false);
+
+			for(int i = epsilons.length - 1; i >= 0; i--){
+				model.setEpsilon(epsilons[i]);
+
+				long start = System.currentTimeMillis();
+
+				if(i == epsilons.length - 1){
+					solver.solve();
+				}
+				else{
+					solver.solveExtended();
+				}
+
+				long runtime = System.currentTimeMillis() - start;
+
+				System.out.println("epsilon = " + epsilons[i] + ", samples = " + model.getNumberSamples()
+						+ ": payoff " + solver.getDefenderPayoff() + " in " + runtime + " ms");
+
+				if(rebuild){
+					DARMSMarginalSolver fresh = new DARMSMarginalSolver(model, true, false, model.flightByFlight(), false);
+
+					start = System.currentTimeMillis();
+					fresh.solve();
+					runtime = System.currentTimeMillis() - start;
+
+					System.out.println("epsilon = " + epsilons[i] + ", rebuilt: payoff " + fresh.getDefenderPayoff() + " in " + runtime + " ms");
+
+					fresh.cleanUp();
+				}
+			}
+
+			solver.cleanUp();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -4,6 +4,7 @@ import models.DARMSModel;
 import models.DARMSOutput;
 import solvers.DARMSMarginalSolver;
 import solvers.DARMSMarginalSolveralt1;
+import solvers.LpBackends;
 import solvers.MarginalSolverconst;
 import solvers.MarginalSolverredo;
 import utilities.DARMSHelper;
@@ -18,7 +19,6 @@ public class ExampleDARMS {
 			int numFlights1 = Integer.parseInt( args[1] );
 			
 			String cplexFile = "CplexConfig";
-			DARMSHelper.loadLibrariesCplex(cplexFile); 
 			boolean verbose = true;
 			String inputFile = "InfeasInputDARMS.30.6.true.txt";
 			System.out.println("test1");
@@ -52,6 +52,11 @@ public class ExampleDARMS {
 
 				DARMSModel model = DARMSModelBuilder.buildModel(inputFile,verbose, 0, epsilon, numFlights1);
 				
+				// the pure Java backend does not need the native library
+				if( model.lpBackend.equalsIgnoreCase( LpBackends.CPLEX ) ){
+					DARMSHelper.loadLibrariesCplex(cplexFile);
+				}
+				
 				double runtime = 0;
 				
 				if( model.decisionRule.equals( "constant" ) ){
@@ -0,0 +1,186 @@
+package examples;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import models.Flight;
+import models.RiskCategory;
+import utilities.DARMSHelper;
+import utilities.DARMSInputReader;
+
+/**
+ * Compares reading large flight schedules with the line by line
+ * String.split loader DARMSModelBuilder used before against
+ * DARMSInputReader, on one thread and in parallel over the files. The
+ * schedule is made of copies of the flights of a template file, written to
+ * temporary shift files that are deleted afterwards.
+ *
+ * Usage: FlightLoaderBenchmark [numFlights] [numFiles] [riskCategoryFile] [flightFile]
+ * (defaults: 200000 8 input/RiskCategories.6.csv input/BigTest1.csv)
+ */
+public class FlightLoaderBenchmark {
+	public static void main(String[] args) {
+		try {
+			int numFlights = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+			int numFiles = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+			String riskCategoryFile = args.length > 2 ? args[2] : "input/RiskCategories.6.csv";
+			String templateFile = args.length > 3 ? args[3] : "input/BigTest1.csv";
+
+			Set<RiskCategory> riskCategories = new DARMSInputReader(1).readAdversaryDistribution(riskCategoryFile).keySet();
+			List<String> files = writeSchedule(templateFile, numFlights, numFiles);
+
+			try{
+				int threads = Runtime.getRuntime().availableProcessors();
+
+				// first pass warms up the JIT
+				readSplit(riskCategories, files);
+				new DARMSInputReader(threads).readFlights(riskCategories, files);
+
+				long start = System.currentTimeMillis();
+				List<Flight> split = readSplit(riskCategories, files);
+				long splitTime = System.currentTimeMillis() - start;
+
+				start = System.currentTimeMillis();
+				List<Flight> serial = new DARMSInputReader(1).readFlights(riskCategories, files);
+				long serialTime = System.currentTimeMillis() - start;
+
+				start = System.currentTimeMillis();
+				List<Flight> parallel = new DARMSInputReader(threads).readFlights(riskCategories, files);
+				long parallelTime = System.currentTimeMillis() - start;
+
+				compare(split, serial, riskCategories);
+				compare(split, parallel, riskCategories);
+
+				System.out.println("Flights: " + split.size() + " in " + files.size() + " files");
+				System.out.println("String.split loader: " + splitTime + " ms");
+				System.out.println("DARMSInputReader, 1 thread: " + serialTime + " ms");
+				System.out.println("DARMSInputReader, " + threads + " threads: " + parallelTime + " ms");
+			}
+			finally{
+				for(String file : files){
+					new File(file).delete();
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// numFlights copies of the template flights, renamed and spread evenly over numFiles files
+	private static List<String> writeSchedule(String templateFile, int numFlights, int numFiles) throws Exception{
+		BufferedReader reader = new BufferedReader(new FileReader(templateFile));
+		String header = reader.readLine();
+		List<String> rows = new ArrayList<String>();
+		String line;
+
+		while((line = reader.readLine()) != null){
+			if(line.trim().length() > 0){
+				rows.add(line.substring(line.indexOf(',')));
+			}
+		}
+
+		reader.close();
+
+		List<String> files = new ArrayList<String>();
+		int flight = 0;
+
+		for(int i = 0; i < numFiles; i++){
+			File file = File.createTempFile("flights", ".csv");
+			FileWriter writer = new FileWriter(file);
+			int to = (int) ((long) numFlights * (i + 1) / numFiles);
+
+			writer.write(header);
+
+			for(; flight < to; flight++){
+				writer.write("\nFlight" + (flight + 1) + rows.get(flight % rows.size()));
+			}
+
+			writer.close();
+			files.add(file.getPath());
+		}
+
+		return files;
+	}
+
+	// the flight parsing of DARMSModelBuilder before DARMSInputReader
+	private static List<Flight> readSplit(Set<RiskCategory> riskCategories, List<String> files) throws Exception{
+		List<Flight> flightList = new ArrayList<Flight>();
+
+		Map<String, RiskCategory> riskCategoryMap = new HashMap<String, RiskCategory>();
+
+		for(RiskCategory c : riskCategories){
+			riskCategoryMap.put(c.toString().toLowerCase(), c);
+		}
+
+		for(String filename : files){
+			BufferedReader reader = new BufferedReader(new FileReader(filename));
+
+			String line = reader.readLine();
+
+			String[] arg = line.split(",");
+
+			Map<Integer, RiskCategory> columnMap = new HashMap<Integer, RiskCategory>();
+
+			for(int i = 7; i < arg.length; i++){
+				columnMap.put(i, riskCategoryMap.get(arg[i].trim().toLowerCase()));
+			}
+
+			while((line = reader.readLine()) != null){
+				arg = line.split(",");
+
+				for(int i = 0; i < arg.length; i++){
+					arg[i] = arg[i].trim();
+				}
+
+				Flight.FlightType flightType = arg[1].equalsIgnoreCase(Flight.FlightType.DOMESTIC.toString()) ? Flight.FlightType.DOMESTIC : Flight.FlightType.INTERNATIONAL;
+
+				int departureTime = DARMSHelper.convertTimeToInteger(arg[2]);
+
+				Map<RiskCategory, Integer> distribution = new HashMap<RiskCategory, Integer>();
+
+				for(int column : columnMap.keySet()){
+					distribution.put(columnMap.get(column), Integer.parseInt(arg[column]));
+				}
+
+				Flight f = new Flight(arg[0], flightType, departureTime, distribution);
+				f.setPayoffs(Integer.parseInt(arg[3]), Integer.parseInt(arg[4]), Integer.parseInt(arg[5]), Integer.parseInt(arg[6]));
+
+				flightList.add(f);
+			}
+
+			reader.close();
+		}
+
+		return flightList;
+	}
+
+	private static void compare(List<Flight> expected, List<Flight> actual, Set<RiskCategory> riskCategories) throws Exception{
+		if(expected.size() != actual.size()){
+			throw new Exception("Loaders differ: " + expected.size() + " vs " + actual.size() + " flights");
+		}
+
+		for(int i = 0; i < expected.size(); i++){
+			Flight e = expected.get(i);
+			Flight a = actual.get(i);
+
+			boolean same = e.toString().equals(a.toString()) && e.getFlightType() == a.getFlightType() && e.getDepartureTime() == a.getDepartureTime()
+					&& e.getDefUncovPayoff() == a.getDefUncovPayoff() && e.getDefCovPayoff() == a.getDefCovPayoff()
+					&& e.getAttUncovPayoff() == a.getAttUncovPayoff() && e.getAttCovPayoff() == a.getAttCovPayoff();
+
+			for(RiskCategory c : riskCategories){
+				same = same && e.getPassengerDistribution().get(c).equals(a.getPassengerDistribution().get(c));
+			}
+
+			if(!same){
+				throw new Exception("Loaders differ at flight " + e);
+			}
+		}
+	}
+}
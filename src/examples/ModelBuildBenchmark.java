@@ -0,0 +1,138 @@
+package examples;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+
+import models.DARMSModel;
+import solvers.DARMSMarginalSolver;
+import solvers.LpBackends;
+import utilities.DARMSHelper;
+import utilities.DARMSModelBuilder;
+
+/**
+ * Times building the marginal LP of a model with the per-sample rows
+ * assembled on one thread and on the given number of threads, and checks
+ * that both give the same matrix by comparing their MPS exports. Each build
+ * reports the peak heap it took over the heap in use before it, and what the
+ * built solver holds on to. With an mpsFile the matrix is kept there for
+ * offline profiling.
+ *
+ * Usage: ModelBuildBenchmark inputFile numFlights [threads] [mpsFile]
+ * (threads defaults to one per core)
+ */
+public class ModelBuildBenchmark {
+	private static final long MB = 1024 * 1024;
+
+	public static void main(String[] args) {
+		try {
+			String inputFile = args[0];
+			int numFlights = Integer.parseInt(args[1]);
+			int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+			String mpsFile = args.length > 3 ? args[3] : null;
+
+			DARMSModel model = DARMSModelBuilder.buildModel(inputFile, false, 0, 0.99, numFlights);
+
+			if( model.lpBackend.equalsIgnoreCase( LpBackends.CPLEX ) ){
+				DARMSHelper.loadLibrariesCplex("CplexConfig");
+			}
+
+			File serialFile = File.createTempFile("serial", ".mps");
+			File parallelFile = mpsFile != null ? new File(mpsFile) : File.createTempFile("parallel", ".mps");
+
+			try{
+				// first pass warms up the JIT
+				build(model, threads, null);
+
+				String serial = build(model, 1, serialFile.getPath());
+				String parallel = build(model, threads, parallelFile.getPath());
+
+				if(!sameContents(serialFile, parallelFile)){
+					throw new Exception("The LPs built on 1 and " + threads + " threads differ.");
+				}
+
+				System.out.println("Build on 1 thread: " + serial);
+				System.out.println("Build on " + threads + " threads: " + parallel);
+			}
+			finally{
+				serialFile.delete();
+
+				if(mpsFile == null){
+					parallelFile.delete();
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// returns the build time, the peak heap during the build and the heap the built solver holds on to; the export is not timed
+	private static String build(DARMSModel model, int threads, String filename) throws Exception{
+		model.buildThreads = threads;
+
+		long before = usedHeap();
+
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+			pool.resetPeakUsage();
+		}
+
+		DARMSMarginalSolver solver = new DARMSMarginalSolver(model, true, false, model.flightByFlight(), false);
+
+		long start = System.currentTimeMillis();
+		solver.buildProblem();
+		long runtime = System.currentTimeMillis() - start;
+
+		long peak = 0;
+
+		for(MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()){
+			if(pool.getType() == MemoryType.HEAP){
+				peak += pool.getPeakUsage().getUsed();
+			}
+		}
+
+		long retained = usedHeap();
+
+		if(filename != null){
+			solver.writeProblem(filename);
+		}
+
+		solver.cleanUp();
+
+		return runtime + " ms, peak heap " + (peak - before) / MB + " MB, solver holds " + (retained - before) / MB + " MB";
+	}
+
+	private static long usedHeap(){
+		System.gc();
+
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	private static boolean sameContents(File a, File b) throws Exception{
+		if(a.length() != b.length()){
+			return false;
+		}
+
+		InputStream in1 = new BufferedInputStream(new FileInputStream(a));
+		InputStream in2 = new BufferedInputStream(new FileInputStream(b));
+
+		try{
+			int c;
+
+			while((c = in1.read()) != -1){
+				if(c != in2.read()){
+					return false;
+				}
+			}
+
+			return true;
+		}
+		finally{
+			in1.close();
+			in2.close();
+		}
+	}
+}
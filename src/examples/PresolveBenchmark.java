@@ -0,0 +1,58 @@
+package examples;
+
+import models.DARMSModel;
+import solvers.DARMSMarginalSolver;
+import solvers.LpBackends;
+import utilities.DARMSHelper;
+import utilities.DARMSModelBuilder;
+
+/**
+ * Solves the marginal LP of a model without and with the presolve and
+ * compares the size of the LP, the iterations of the solve (barrier
+ * iterations with CPLEX unless constraint generation is on, simplex
+ * iterations otherwise) and the defender payoff.
+ *
+ * Usage: PresolveBenchmark inputFile numFlights
+ */
+public class PresolveBenchmark {
+	public static void main(String[] args) {
+		try {
+			String inputFile = args[0];
+			int numFlights = Integer.parseInt(args[1]);
+
+			DARMSModel model = DARMSModelBuilder.buildModel(inputFile, false, 0, 0.99, numFlights);
+
+			if( model.lpBackend.equalsIgnoreCase( LpBackends.CPLEX ) ){
+				DARMSHelper.loadLibrariesCplex("CplexConfig");
+			}
+
+			String[] results = new String[2];
+			double[] payoffs = new double[2];
+
+			for(int i = 0; i < 2; i++){
+				model.presolve = i == 1;
+
+				DARMSMarginalSolver solver = new DARMSMarginalSolver(model, true, false, model.flightByFlight(), false);
+
+				long start = System.currentTimeMillis();
+				solver.solve();
+				long runtime = System.currentTimeMillis() - start;
+
+				payoffs[i] = solver.getDefenderPayoff();
+				results[i] = solver.getNumRows() + " rows, " + solver.getNumNonzeros() + " nonzeros, " + solver.getSolveIterations() + " iterations, payoff "
+						+ payoffs[i] + " in " + runtime + " ms";
+
+				solver.cleanUp();
+			}
+
+			System.out.println("Without presolve: " + results[0]);
+			System.out.println("With presolve: " + results[1]);
+
+			if(Math.abs(payoffs[0] - payoffs[1]) > 1e-6 * (1 + Math.abs(payoffs[0]))){
+				System.out.println("The payoffs differ by " + (payoffs[1] - payoffs[0]));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,229 @@
+package examples;
+
+import ilog.concert.IloNumExpr;
+import ilog.concert.IloNumVar;
+import ilog.cplex.IloCplex;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import models.AttackMethod;
+import models.DARMSModel;
+import models.Flight;
+import models.ModelIndex;
+import models.PassengerDistribution;
+import models.RiskCategory;
+import models.ScreeningOperation;
+import models.ScreeningResource;
+import solvers.CplexBackend;
+import solvers.DARMSMarginalSolver;
+import solvers.LinearRowBuilder;
+import utilities.DARMSHelper;
+import utilities.DARMSModelBuilder;
+
+/**
+ * Compares the time needed to build the coverage and throughput rows of the
+ * marginal LP with chained cplex.sum/cplex.prod calls against
+ * LinearRowBuilder, and reports the build time of the full marginal LP.
+ *
+ * Usage: RowBuilderBenchmark [inputFile] [epsilon] [numFlights]
+ * (defaults: InputDARMS.BigTest1.txt 0.99 30)
+ */
+public class RowBuilderBenchmark {
+	private static DARMSModel model;
+	private static ModelIndex index;
+
+	public static void main(String[] args) {
+		try {
+			String inputFile = args.length > 0 ? args[0] : "InputDARMS.BigTest1.txt";
+			double epsilon = args.length > 1 ? Double.parseDouble(args[1]) : 0.99;
+			int numFlights = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+			DARMSHelper.loadLibrariesCplex("CplexConfig");
+
+			model = DARMSModelBuilder.buildModel(inputFile, false, 0, epsilon, numFlights);
+			index = model.getIndex();
+
+			System.out.println("Flights: " + index.numFlights() + " Categories: " + index.numRiskCategories()
+					+ " Time windows: " + index.numTimeWindows() + " Samples: " + model.getXiDistribution().size());
+
+			// first pass warms up the JIT and the native library
+			buildRows(true);
+			buildRows(false);
+
+			long chained = buildRows(false);
+			long bulk = buildRows(true);
+
+			System.out.println("Coverage + throughput rows, chained sum/prod: " + chained + " ms");
+			System.out.println("Coverage + throughput rows, LinearRowBuilder: " + bulk + " ms");
+
+			DARMSMarginalSolver solver = new DARMSMarginalSolver(model, true, false, model.flightByFlight(), false);
+
+			long start = System.currentTimeMillis();
+			solver.buildProblem();
+			System.out.println("Full marginal LP build: " + (System.currentTimeMillis() - start) + " ms");
+
+			solver.cleanUp();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private static long buildRows(boolean bulk) throws Exception{
+		CplexBackend lp = new CplexBackend("Benchmark");
+		IloCplex cplex = lp.getCplex();
+		cplex.setOut(null);
+
+		List<Integer> timeWindows = index.getTimeWindows();
+		int numWindows = timeWindows.size();
+		int numFlights = index.numFlights();
+		int numCategories = index.numRiskCategories();
+		int numOperations = index.numScreeningOperations();
+
+		int numB = numWindows * numFlights * numCategories * numOperations;
+		int numM = numWindows * (numWindows - 1) / 2 * numFlights * numCategories * numOperations;
+
+		// chained rows work on Concert variables, LinearRowBuilder rows on backend columns
+		IloNumVar[] b = null;
+		IloNumVar[] m = null;
+		IloNumVar[] d = null;
+
+		int bStart = 0;
+		int mStart = 0;
+		int dStart = 0;
+
+		if(bulk){
+			bStart = addFreeColumns(lp, numB);
+			mStart = addFreeColumns(lp, numM);
+			dStart = addFreeColumns(lp, numCategories);
+		}
+		else{
+			b = cplex.numVarArray(numB, -Double.MAX_VALUE, Double.MAX_VALUE);
+			m = cplex.numVarArray(Math.max(numM, 1), -Double.MAX_VALUE, Double.MAX_VALUE);
+			d = cplex.numVarArray(numCategories, -Double.MAX_VALUE, Double.MAX_VALUE);
+		}
+
+		LinearRowBuilder row = new LinearRowBuilder(lp);
+		Map<ScreeningResource, Integer> screeningResources = model.getScreeningResources();
+
+		long start = System.currentTimeMillis();
+
+		for(int w = 0; w < numWindows; w++){
+			int t = timeWindows.get(w);
+
+			for(PassengerDistribution xi : model.getXiDistribution()){
+				for(RiskCategory c : index.getRiskCategories()){
+					for(Flight f : model.getFlights(t)){
+						double payoffGap = f.getDefUncovPayoff() - f.getDefCovPayoff();
+
+						for(AttackMethod a : index.getAttackMethods()){
+							if(bulk){
+								row.clear();
+								row.add(dStart + c.ordinal(), 1.0);
+
+								for(ScreeningOperation o : index.getScreeningOperations()){
+									double coef = payoffGap * o.effectiveness(c, a);
+
+									for(int k = 0; k < w; k++){
+										row.add(mStart + mIndex(w, k, f, c, o), coef * xi.count(k, f.ordinal(), c.ordinal()));
+									}
+									row.add(bStart + bIndex(w, f, c, o), coef);
+								}
+
+								row.addLe(f.getDefUncovPayoff(), null);
+							}
+							else{
+								IloNumExpr expr = cplex.constant(0);
+
+								for(ScreeningOperation o : index.getScreeningOperations()){
+									IloNumExpr expr2 = cplex.constant(0);
+
+									for(int k = 0; k < w; k++){
+										expr2 = cplex.sum(expr2, cplex.prod(m[mIndex(w, k, f, c, o)], xi.count(k, f.ordinal(), c.ordinal())));
+									}
+									expr2 = cplex.sum(expr2, b[bIndex(w, f, c, o)]);
+									expr2 = cplex.prod(expr2, o.effectiveness(c, a));
+									expr = cplex.sum(expr, expr2);
+								}
+
+								expr = cplex.sum(d[c.ordinal()], cplex.prod(expr, payoffGap));
+								cplex.add(cplex.le(expr, f.getDefUncovPayoff()));
+							}
+						}
+					}
+				}
+			}
+
+			for(ScreeningResource r : screeningResources.keySet()){
+				double capacity = r.capacity() * screeningResources.get(r);
+
+				for(PassengerDistribution xi : model.getXiDistribution()){
+					IloNumExpr expr = bulk ? null : cplex.constant(0);
+					row.clear();
+
+					for(Flight f : model.getFlights(t)){
+						for(RiskCategory c : index.getRiskCategories()){
+							int xt = xi.count(w, f.ordinal(), c.ordinal());
+
+							for(ScreeningOperation o : index.getScreeningOperations()){
+								if(!o.getResources().contains(r)){
+									continue;
+								}
+
+								for(int k = 0; k < w; k++){
+									if(bulk){
+										row.add(mStart + mIndex(w, k, f, c, o), (double) xi.count(k, f.ordinal(), c.ordinal()) * xt);
+									}
+									else{
+										expr = cplex.sum(expr, cplex.prod(cplex.prod(m[mIndex(w, k, f, c, o)], xi.count(k, f.ordinal(), c.ordinal())), xt));
+									}
+								}
+
+								if(bulk){
+									row.add(bStart + bIndex(w, f, c, o), xt);
+								}
+								else{
+									expr = cplex.sum(expr, cplex.prod(b[bIndex(w, f, c, o)], xt));
+								}
+							}
+						}
+					}
+
+					if(bulk){
+						row.addLe(capacity, null);
+					}
+					else{
+						cplex.add(cplex.le(expr, capacity));
+					}
+				}
+			}
+		}
+
+		long runtime = System.currentTimeMillis() - start;
+
+		lp.end();
+
+		return runtime;
+	}
+
+	private static int addFreeColumns(CplexBackend lp, int n) throws Exception{
+		double[] lb = new double[n];
+		double[] ub = new double[n];
+
+		Arrays.fill(lb, -Double.MAX_VALUE);
+		Arrays.fill(ub, Double.MAX_VALUE);
+
+		return lp.addColumns(n, lb, ub, new boolean[n], null);
+	}
+
+	private static int bIndex(int w, Flight f, RiskCategory c, ScreeningOperation o){
+		return ((w * index.numFlights() + f.ordinal()) * index.numRiskCategories() + c.ordinal()) * index.numScreeningOperations() + o.ordinal();
+	}
+
+	private static int mIndex(int w, int k, Flight f, RiskCategory c, ScreeningOperation o){
+		int pair = w * (w - 1) / 2 + k;
+
+		return ((pair * index.numFlights() + f.ordinal()) * index.numRiskCategories() + c.ordinal()) * index.numScreeningOperations() + o.ordinal();
+	}
+}
@@ -0,0 +1,163 @@
+package examples;
+
+import java.util.List;
+import java.util.Map;
+
+import models.AttackMethod;
+import models.DARMSModel;
+import models.Flight;
+import models.ModelIndex;
+import models.PassengerDistribution;
+import models.RiskCategory;
+import models.ScreeningOperation;
+import models.ScreeningResource;
+import models.ScreeningTables;
+import solvers.DARMSMarginalSolver;
+import solvers.LinearRowBuilder;
+import solvers.LpBackend;
+import utilities.DARMSModelBuilder;
+
+/**
+ * Compares the time needed to assemble the coverage and throughput rows of
+ * the marginal LP when effectiveness and resource use are looked up through
+ * ScreeningOperation against reading them from ScreeningTables, and reports
+ * the build time of the full marginal LP on the configured backend. Rows are
+ * only assembled, not handed to a backend, so the difference is the lookup
+ * cost alone.
+ *
+ * Usage: ScreeningTablesBenchmark [inputFile] [epsilon] [numFlights]
+ * (defaults: InputDARMS.BigTest1.txt 0.99 30)
+ */
+public class ScreeningTablesBenchmark {
+	private static DARMSModel model;
+	private static ModelIndex index;
+	private static ScreeningTables tables;
+
+	public static void main(String[] args) {
+		try {
+			String inputFile = args.length > 0 ? args[0] : "InputDARMS.BigTest1.txt";
+			double epsilon = args.length > 1 ? Double.parseDouble(args[1]) : 0.99;
+			int numFlights = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+
+			model = DARMSModelBuilder.buildModel(inputFile, false, 0, epsilon, numFlights);
+			index = model.getIndex();
+			tables = model.getScreeningTables();
+
+			System.out.println("Flights: " + index.numFlights() + " Categories: " + index.numRiskCategories()
+					+ " Time windows: " + index.numTimeWindows() + " Samples: " + model.getXiDistribution().size());
+
+			// first pass warms up the JIT
+			assembleRows(true);
+			assembleRows(false);
+
+			long start = System.currentTimeMillis();
+			long objectTerms = assembleRows(false);
+			long objects = System.currentTimeMillis() - start;
+
+			start = System.currentTimeMillis();
+			long tableTerms = assembleRows(true);
+			long compiled = System.currentTimeMillis() - start;
+
+			if(objectTerms != tableTerms){
+				throw new Exception("Row assembly differs: " + objectTerms + " vs " + tableTerms + " terms");
+			}
+
+			System.out.println("Coverage + throughput rows (" + tableTerms + " terms), ScreeningOperation lookups: " + objects + " ms");
+			System.out.println("Coverage + throughput rows (" + tableTerms + " terms), ScreeningTables: " + compiled + " ms");
+
+			DARMSMarginalSolver solver = new DARMSMarginalSolver(model, true, false, model.flightByFlight(), false);
+
+			start = System.currentTimeMillis();
+			solver.buildProblem();
+			System.out.println("Full marginal LP build (" + model.lpBackend + "): " + (System.currentTimeMillis() - start) + " ms");
+
+			solver.cleanUp();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	// assembles every coverage and throughput row of the dense LP and returns the number of terms
+	private static long assembleRows(boolean compiled) throws Exception{
+		List<Integer> timeWindows = index.getTimeWindows();
+		int numWindows = timeWindows.size();
+		Map<ScreeningResource, Integer> screeningResources = model.getScreeningResources();
+
+		LinearRowBuilder row = new LinearRowBuilder((LpBackend) null);
+		long terms = 0;
+
+		for(int w = 0; w < numWindows; w++){
+			int t = timeWindows.get(w);
+
+			for(PassengerDistribution xi : model.getXiDistribution()){
+				for(RiskCategory c : index.getRiskCategories()){
+					for(Flight f : model.getFlights(t)){
+						double payoffGap = f.getDefUncovPayoff() - f.getDefCovPayoff();
+
+						for(AttackMethod a : index.getAttackMethods()){
+							row.clear();
+							row.add(c.ordinal(), 1.0);
+
+							for(ScreeningOperation o : index.getScreeningOperations()){
+								double coef = payoffGap * (compiled ? tables.effectiveness(o.ordinal(), c.ordinal(), a.ordinal()) : o.effectiveness(c, a));
+
+								for(int k = 0; k < w; k++){
+									row.add(mIndex(w, k, f.ordinal(), c.ordinal(), o.ordinal()), coef * xi.count(k, f.ordinal(), c.ordinal()));
+								}
+								row.add(bIndex(w, f.ordinal(), c.ordinal(), o.ordinal()), coef);
+							}
+
+							terms += row.size();
+						}
+					}
+				}
+			}
+
+			for(ScreeningResource r : screeningResources.keySet()){
+				for(PassengerDistribution xi : model.getXiDistribution()){
+					row.clear();
+
+					for(Flight f : model.getFlights(t)){
+						for(RiskCategory c : index.getRiskCategories()){
+							int xt = xi.count(w, f.ordinal(), c.ordinal());
+
+							if(compiled){
+								for(int o : tables.getOperations(r.ordinal())){
+									addThroughputTerms(row, xi, w, f.ordinal(), c.ordinal(), o, xt);
+								}
+							}
+							else{
+								for(ScreeningOperation o : index.getScreeningOperations()){
+									if(o.getResources().contains(r)){
+										addThroughputTerms(row, xi, w, f.ordinal(), c.ordinal(), o.ordinal(), xt);
+									}
+								}
+							}
+						}
+					}
+
+					terms += row.size();
+				}
+			}
+		}
+
+		return terms;
+	}
+
+	private static void addThroughputTerms(LinearRowBuilder row, PassengerDistribution xi, int w, int f, int c, int o, int xt){
+		for(int k = 0; k < w; k++){
+			row.add(mIndex(w, k, f, c, o), (double) xi.count(k, f, c) * xt);
+		}
+		row.add(bIndex(w, f, c, o), xt);
+	}
+
+	private static int bIndex(int w, int f, int c, int o){
+		return ((w * index.numFlights() + f) * index.numRiskCategories() + c) * index.numScreeningOperations() + o;
+	}
+
+	private static int mIndex(int w, int k, int f, int c, int o){
+		int pair = w * (w - 1) / 2 + k;
+
+		return ((pair * index.numFlights() + f) * index.numRiskCategories() + c) * index.numScreeningOperations() + o;
+	}
+}
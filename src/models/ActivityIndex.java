@@ -0,0 +1,88 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The (time window, flight, risk category) slices of a DARMSModel in which at
+ * least one passenger arrives in some sampled scenario: the xi samples and
+ * the first numViolProb violation scenarios. Slices outside the index hold no
+ * passengers in those, so the solvers create no variables or rows for them.
+ * Violation scenarios drawn beyond those may still put passengers there, see
+ * solvers.ViolationEvaluator.
+ */
+public class ActivityIndex {
+	private ModelIndex index;
+
+	// bit index.offset(w, f, c)
+	private BitSet active;
+
+	// flights with at least one active category, in ordinal order, per window
+	private List<List<Flight>> windowFlights;
+
+	public ActivityIndex(ModelIndex index, ScenarioTensor... tensors){
+		this(index, new BitSet(index.scenarioSize()), tensors);
+	}
+
+	// active holds the bits of the slices already known to be active, it is taken over
+	ActivityIndex(ModelIndex index, BitSet active, ScenarioTensor... tensors){
+		this.index = index;
+		this.active = active;
+
+		for(ScenarioTensor tensor : tensors){
+			mark(tensor, active);
+		}
+
+		windowFlights = new ArrayList<List<Flight>>();
+
+		for(int w = 0; w < index.numTimeWindows(); w++){
+			List<Flight> flights = new ArrayList<Flight>();
+
+			for(Flight f : index.getFlights()){
+				if(isActive(w, f.ordinal())){
+					flights.add(f);
+				}
+			}
+
+			windowFlights.add(Collections.unmodifiableList(flights));
+		}
+	}
+
+	// sets the bit index.offset(w, f, c) of every slice with passengers in some scenario of tensor
+	static void mark(ScenarioTensor tensor, BitSet active){
+		int scenarioSize = tensor.getIndex().scenarioSize();
+		int[] counts = tensor.counts();
+
+		for(int s = 0; s < tensor.size(); s++){
+			int base = tensor.base(s);
+
+			for(int i = active.nextClearBit(0); i < scenarioSize; i = active.nextClearBit(i + 1)){
+				if(counts[base + i] > 0){
+					active.set(i);
+				}
+			}
+		}
+	}
+
+	// arguments are ModelIndex ordinals
+	public boolean isActive(int w, int f, int c){
+		return active.get(index.offset(w, f, c));
+	}
+
+	public boolean isActive(int w, int f){
+		int first = index.offset(w, f, 0);
+		int next = active.nextSetBit(first);
+
+		return next >= 0 && next < first + index.numRiskCategories();
+	}
+
+	public List<Flight> getFlights(int w){
+		return windowFlights.get(w);
+	}
+
+	public int numActiveSlices(){
+		return active.cardinality();
+	}
+}
@@ -0,0 +1,297 @@
+package models;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.math3.special.Erf;
+
+/**
+ * Splits the passengers of one flight and risk category over the time windows
+ * of a shift, for a normally distributed arrival time relative to departure.
+ *
+ * The normal CDF is evaluated once per window boundary with the Abramowitz and
+ * Stegun 7.1.26 erf approximation, whose absolute error is at most 1.5e-7. A
+ * window count is then known to within totalPassengers times the error of its
+ * two boundaries. When that margin could change a rounded count, or which
+ * window receives the rounding remainder, the boundaries of the windows
+ * involved are evaluated again with the exact commons-math formula. The counts
+ * are therefore always identical to the ones obtained from
+ * NormalDistribution.cumulativeProbability.
+ *
+ * Holds reusable buffers, so use one instance per thread.
+ */
+class ArrivalProfile {
+	private static final double SQRT2 = Math.sqrt(2.0);
+
+	// bound on |fastErf(x) - Erf.erf(x)|, with headroom over the 1.5e-7 of the approximation
+	private static final double ERF_ERROR = 2e-7;
+
+	private int[] timeWindows;
+	private int timeGranularity;
+
+	// cdf[k] is the CDF at the start of window k, cdfExact[k] whether it came from the exact erf
+	private double[] cdf;
+	private boolean[] cdfExact;
+
+	private double[] tolerances;
+	private double[] remainders;
+	private int[] counts;
+
+	// the split in progress
+	private int departureTime;
+	private double mean;
+	private double sd;
+	private int totalPassengers;
+
+	// set by window(t)
+	private double numPassengers;
+	private double tolerance;
+
+	private int refinedWindows;
+
+	ArrivalProfile(List<Integer> timeWindows, int timeGranularity){
+		this.timeWindows = new int[timeWindows.size()];
+
+		for(int t = 0; t < this.timeWindows.length; t++){
+			this.timeWindows[t] = timeWindows.get(t);
+		}
+
+		this.timeGranularity = timeGranularity;
+		this.cdf = new double[this.timeWindows.length];
+		this.cdfExact = new boolean[this.timeWindows.length];
+		this.tolerances = new double[this.timeWindows.length];
+		this.remainders = new double[this.timeWindows.length];
+		this.counts = new int[this.timeWindows.length];
+	}
+
+	// number of windows whose boundaries had to be evaluated with the exact erf
+	int getRefinedWindows(){
+		return refinedWindows;
+	}
+
+	/**
+	 * Returns the number of passengers arriving in each time window. Windows
+	 * after the departure window get 0. The returned buffer is reused by the
+	 * next call.
+	 */
+	int[] distribute(int departureTime, double mean, double sd, int totalPassengers){
+		this.departureTime = departureTime;
+		this.mean = mean;
+		this.sd = sd;
+		this.totalPassengers = totalPassengers;
+
+		int numWindows = timeWindows.length;
+
+		if(numWindows == 1){
+			evaluate(0, false);
+		}
+
+		for(int k = 1; k < numWindows; k++){
+			if(k == 1 || timeWindows[k - 1] < departureTime){
+				evaluate(k, false);
+			}
+		}
+
+		int passengersAssigned = 0;
+
+		for(int t = 0; t < numWindows; t++){
+			if(!window(t)){
+				counts[t] = 0;
+				remainders[t] = -1.0;
+				tolerances[t] = 0.0;
+				continue;
+			}
+
+			if(!round(t)){
+				refine(t);
+			}
+
+			passengersAssigned += counts[t];
+		}
+
+		// the passengers lost to rounding all go to the window with the largest remainder
+		if(passengersAssigned < totalPassengers){
+			int best = largestRemainder();
+
+			if(best >= 0){
+				counts[best] += totalPassengers - passengersAssigned;
+			}
+		}
+
+		return counts;
+	}
+
+	static double fastErf(double x){
+		double ax = Math.abs(x);
+		double t = 1.0 / (1.0 + 0.3275911 * ax);
+		double y = 1.0 - (((((1.061405429 * t - 1.453152027) * t) + 1.421413741) * t - 0.284496736) * t + 0.254829592) * t * Math.exp(-ax * ax);
+
+		return x >= 0 ? y : -y;
+	}
+
+	// with exact set, the same result as new NormalDistribution(mean, sd).cumulativeProbability(x)
+	private void evaluate(int k, boolean exact){
+		double x = k == 0 ? timeWindows[0] + timeGranularity - departureTime : timeWindows[k] - departureTime;
+		double dev = x - mean;
+
+		cdfExact[k] = true;
+
+		if(Math.abs(dev) > 40 * sd){
+			cdf[k] = dev < 0 ? 0.0d : 1.0d;
+		}
+		else if(exact){
+			cdf[k] = 0.5 * (1 + Erf.erf(dev / (sd * SQRT2)));
+		}
+		else{
+			cdfExact[k] = false;
+			cdf[k] = 0.5 * (1 + fastErf(dev / (sd * SQRT2)));
+		}
+	}
+
+	// sets numPassengers and tolerance of window t, returns false if no passengers can arrive in it
+	private boolean window(int t){
+		int numWindows = timeWindows.length;
+		double prob;
+		int errors;
+
+		if(numWindows == 1){
+			prob = cdf[0];
+			errors = cdfExact[0] ? 0 : 1;
+		}
+		else if(t == 0){
+			prob = cdf[1];
+			errors = cdfExact[1] ? 0 : 1;
+		}
+		else if(timeWindows[t] < departureTime && (t == numWindows - 1 || departureTime <= timeWindows[t + 1])){
+			prob = 1.0 - cdf[t];
+			errors = cdfExact[t] ? 0 : 1;
+		}
+		else if(timeWindows[t] < departureTime){
+			prob = cdf[t + 1] - cdf[t];
+			errors = (cdfExact[t + 1] ? 0 : 1) + (cdfExact[t] ? 0 : 1);
+		}
+		else{
+			return false;
+		}
+
+		numPassengers = totalPassengers * prob;
+
+		// with exact boundaries this is the same arithmetic as the exact formula
+		tolerance = errors > 0 ? totalPassengers * errors * 0.5 * ERF_ERROR + 1e-9 : 0.0;
+
+		return true;
+	}
+
+	// rounds window t down, returns false if the tolerance straddles an integer
+	private boolean round(int t){
+		tolerances[t] = tolerance;
+
+		if(tolerance == 0.0){
+			counts[t] = (int)numPassengers;
+			remainders[t] = numPassengers % 1.0;
+
+			return true;
+		}
+
+		// the exact count is never negative
+		double low = Math.floor(Math.max(numPassengers - tolerance, 0.0));
+
+		if(low != Math.floor(Math.max(numPassengers + tolerance, 0.0))){
+			return false;
+		}
+
+		counts[t] = (int)low;
+		remainders[t] = numPassengers - low;
+
+		return true;
+	}
+
+	// evaluates the boundaries of window t exactly and rounds it again
+	private void refine(int t){
+		refinedWindows++;
+
+		if(timeWindows.length == 1){
+			evaluate(0, true);
+		}
+		else if(t == 0){
+			evaluate(1, true);
+		}
+		else{
+			evaluate(t, true);
+
+			if(t + 1 < timeWindows.length && !cdfExact[t + 1] && departureTime > timeWindows[t + 1]){
+				evaluate(t + 1, true);
+			}
+		}
+
+		window(t);
+		round(t);
+	}
+
+	private int largestRemainder(){
+		int numWindows = timeWindows.length;
+
+		while(true){
+			int best = -1;
+
+			for(int t = 0; t < numWindows; t++){
+				if(remainders[t] != -1.0 && (best < 0 || remainders[t] > remainders[best])){
+					best = t;
+				}
+			}
+
+			if(best < 0){
+				return best;
+			}
+
+			boolean settled = true;
+			boolean tied = false;
+
+			for(int t = 0; t < numWindows; t++){
+				if(t == best || remainders[t] == -1.0 || remainders[t] + tolerances[t] < remainders[best] - tolerances[best]){
+					continue;
+				}
+
+				if(tolerances[best] > 0.0){
+					refine(best);
+					settled = false;
+					break;
+				}
+
+				if(tolerances[t] > 0.0){
+					refine(t);
+					settled = false;
+					break;
+				}
+
+				tied = true;
+			}
+
+			if(!settled){
+				continue;
+			}
+
+			if(!tied){
+				return best;
+			}
+
+			// ties are broken by HashSet iteration order, as they always have been
+			Set<Integer> tiedWindows = new HashSet<Integer>();
+
+			for(int t = best; t < numWindows; t++){
+				if(remainders[t] == remainders[best]){
+					tiedWindows.add(timeWindows[t]);
+				}
+			}
+
+			int window = tiedWindows.iterator().next();
+
+			for(int t = best; t < numWindows; t++){
+				if(timeWindows[t] == window){
+					return t;
+				}
+			}
+		}
+	}
+}
@@ -2,15 +2,11 @@ package models;
 
 public class AttackMethod {
 	private String description;
-	private int id;
-	
-	private static int ID = 1;
+	private ModelIndex owner;
+	private int ordinal;
 	
 	public AttackMethod(String description){
-		this.description = description;		
-		this.id = ID;
-		
-		ID++;
+		this.description = description;
 	}
 	    
 	public String toString(){
@@ -18,10 +14,20 @@ public class AttackMethod {
 	}
 	
 	public int id(){
-		return id;
+		return ordinal + 1;
+	}
+	
+	public int ordinal(){
+		return ordinal;
+	}
+	
+	// the index of the model this belongs to, null until it is part of one
+	ModelIndex owner(){
+		return owner;
 	}
 	
-	public static void reset(){
-		ID = 1;
+	void setOrdinal(ModelIndex owner, int ordinal){
+		this.owner = owner;
+		this.ordinal = ordinal;
 	}
 }
\ No newline at end of file
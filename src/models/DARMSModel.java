@@ -1,22 +1,26 @@
 package models;
-import java.math.BigDecimal;
+import java.io.File;
 import java.math.BigInteger;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.math3.distribution.NormalDistribution;
+import org.apache.commons.math3.exception.NotStrictlyPositiveException;
+import org.apache.commons.math3.exception.util.LocalizedFormats;
 import org.apache.commons.math3.util.ArithmeticUtils;
 
-import com.google.common.math.BigIntegerMath;
 import com.google.common.math.LongMath;
 
 import utilities.DARMSInstanceGenerator;
+import utilities.SampleSizeCalculator;
 
 public class DARMSModel {
 	private List<Flight> flights;
@@ -35,20 +39,45 @@ public class DARMSModel {
 	
 	private List<Integer> timeWindows;
 	
-	private Map<Integer, List<Flight>> flightMap;
 	
 	public static final double EPSILON = 1e-6;
 	
 	private PayoffStructure payoffStructure;
-	private ArrayList<PassengerDistribution> xiDistribution;
-	private ArrayList<PassengerDistribution> violDistribution;
+	private List<PassengerDistribution> xiDistribution;
+	private ScenarioTensor xiTensor;
+	// slices with passengers in some violation scenario
+	private BitSet violActive;
+	private ModelIndex index;
+	private ScreeningTables screeningTables;
+	private ActivityIndex activity;
 	public int uncertain;
 	private int numberSamples;
 	public boolean aggregate;
 	public boolean hasOverflow;
 	public int seed;
 	public String decisionRule;
+	public String lpBackend = "cplex";
+	// how many scenarios the out-of-sample violation check scores
+	public int violationSamples = 1000;
+	// file that keeps the violation scenarios off the heap once drawn, null to regenerate them for every check
+	public String violationStore;
+	// format of the strategy files written by the marginal solver: csv, gzip or columnar
+	public String outputFormat = "csv";
+	// slope values of the solved strategy within this distance of zero are dropped, see solvers.DefenderStrategy
+	public double strategyTolerance;
+	// solve with the rows of a few samples and add violated sample rows until none are left
+	public boolean constraintGeneration;
+	// leave out per-sample rows implied by the rows of another sample, see solvers.ScenarioPruner
+	public boolean scenarioPruning = true;
+	// ranged probability rows, bounds on b and d and no unused slopes, see solvers.MarginalPresolve
+	public boolean presolve = true;
+	// threads of the decomposed solve, 0 for one per core
+	public int decomposedWorkers;
+	// threads that assemble the per-sample rows of the marginal LP, 0 for one per core
+	public int buildThreads;
 	private int numViolProb;
+	private ScenarioStore store;
+	private int storeSamples;
 	public double beta;
 	public double eps;
 	private int decVariables;
@@ -125,155 +154,285 @@ public class DARMSModel {
 			timeWindows.add(shiftStartTime + (timeGranularity * i));
 		}
 		
+		this.index = new ModelIndex(timeWindows, shiftStartTime, timeGranularity, flights, adversaryDistribution.keySet(), attackMethods, screeningOperations, screeningResources.keySet());
+		this.screeningTables = new ScreeningTables(index);
+		
 		this.setResourceFines( fineDist, fineMin, fineMax, numberTests, thisTest );
 	}
 	
-	public void calculateTemporalPassengerDistributions(){
+	// a model read back from a ModelSnapshot, with its samples already drawn
+	DARMSModel(List<Flight> flights, 
+			Map<RiskCategory, Double> adversaryDistribution,
+			List<AttackMethod> attackMethods,
+			List<ScreeningOperation> screeningOperations,
+			Map<ScreeningResource, Integer> screeningResources,
+			boolean flightByFlight,
+			int shiftStartTime,
+			int shiftDuration,
+			int timeGranularity,
+			int numberTrials,
+			ResourceFines resourceFines,
+			int uncertain, double epsilon, double beta, boolean overflow, boolean aggregate, String decisionRule, int seed, int decVariables){
+		this.flights = flights;
+		this.adversaryDistribution = adversaryDistribution;
+		this.attackMethods = attackMethods;
+		this.screeningOperations = screeningOperations;
+		this.screeningResources = screeningResources;
+		this.postScreeningResources = new HashMap<PostScreeningResource, Integer>();
+		this.flightByFlight = flightByFlight;
+		this.shiftStartTime = shiftStartTime;
+		this.shiftDuration = shiftDuration;
+		this.timeGranularity = timeGranularity;
+		this.numberTrials = numberTrials;
+		this.resourceFines = resourceFines;
+		this.uncertain = uncertain;
+		this.eps = epsilon;
+		this.beta = beta;
+		this.hasOverflow = overflow;
+		this.aggregate = aggregate;
+		this.decisionRule = decisionRule;
+		this.seed = seed;
+		this.decVariables = decVariables;
+		this.numViolProb = 1000;
 		
-		Random dice = new Random( this.seed );
+		timeWindows = new ArrayList<Integer>(); 
 		
-		NormalDistribution distribution = null;
-		flightMap = new HashMap<Integer, List<Flight>>();
-		System.out.print("Uncertain parameter: " + this.uncertain);
-		for(Flight f : flights){
-			Map<RiskCategory, Integer> passengerDistribution = f.getPassengerDistribution();
-			
-			List<Map<Integer, Map<RiskCategory, Integer>>> temporalPassengerDistributionList = new ArrayList<Map<Integer, Map<RiskCategory, Integer>>>();
-			for( int count = 0; count < numberSamples + numViolProb + 1; count++ ){
-				Map<Integer, Map<RiskCategory, Integer>> temporalPassengerDistribution = new HashMap<Integer, Map<RiskCategory, Integer>>();
-				
-				ArrayList<RiskCategory> passList = new ArrayList<RiskCategory>( passengerDistribution.keySet());
-				Collections.sort( passList );
-				
-				for(RiskCategory c : passList){
-					
-					double a = -190 + dice.nextDouble()*this.uncertain*2 - this.uncertain;
-					double b =  50 + dice.nextDouble()*this.uncertain*2 - this.uncertain;
-					double d = -190 + dice.nextDouble()*this.uncertain*2 - this.uncertain;
-					double e =  50 + dice.nextDouble()*this.uncertain*2 - this.uncertain;
-					
-					// System.out.println(a+", "+b+", "+d+", "+e);
-					NormalDistribution domesticDistribution = new NormalDistribution(a,b);
-					NormalDistribution internationalDistribution = new NormalDistribution(d,e);
-					
-					if(f.getFlightType() == Flight.FlightType.DOMESTIC){
-						distribution = domesticDistribution;
-					}
-					else if(f.getFlightType() == Flight.FlightType.INTERNATIONAL){
-						distribution = internationalDistribution;
-					}
-					
-					Map<Double, Set<Integer>> modMap = new HashMap<Double, Set<Integer>>();
-					int passengersAssigned = 0;
-					
-					for(int t = 0; t < timeWindows.size(); t++){
-						double prob;
-						
-						if(timeWindows.size() == 1){
-							prob = distribution.cumulativeProbability(timeWindows.get(0) + timeGranularity - f.getDepartureTime());
-						}
-						else if(t == 0){
-							prob = distribution.cumulativeProbability(timeWindows.get(t + 1) - f.getDepartureTime());
-						}
-						else if(timeWindows.get(t) < f.getDepartureTime() && t == timeWindows.size() - 1){
-							double prob1 = distribution.cumulativeProbability(timeWindows.get(t) - f.getDepartureTime());
-							
-							prob = 1.0 - prob1;
-						}
-						else if(timeWindows.get(t) < f.getDepartureTime() && f.getDepartureTime() <= timeWindows.get(t + 1)){
-							double prob1 = distribution.cumulativeProbability(timeWindows.get(t) - f.getDepartureTime());
-							
-							prob = 1.0 - prob1;
-						}
-						else if(timeWindows.get(t) < f.getDepartureTime()){
-							double prob1 = distribution.cumulativeProbability(timeWindows.get(t) - f.getDepartureTime());
-							double prob2 = distribution.cumulativeProbability(timeWindows.get(t + 1) - f.getDepartureTime());
-							
-							prob = prob2 - prob1;
-						}
-						else{
-							continue;
-						}
-						
-						double numPassengers = passengerDistribution.get(c) * prob;
-					
-						if(!modMap.containsKey(numPassengers % 1.0)){
-							modMap.put(numPassengers % 1.0, new HashSet<Integer>());
-						}
-						
-						modMap.get(numPassengers % 1.0).add(timeWindows.get(t));
-							
-						if(!temporalPassengerDistribution.containsKey(timeWindows.get(t))){
-							temporalPassengerDistribution.put(timeWindows.get(t), new HashMap<RiskCategory, Integer>());
-						}
-							
-						temporalPassengerDistribution.get(timeWindows.get(t)).put(c, (int)numPassengers);
-							
-						passengersAssigned += (int)numPassengers;
-					}
-					
-					List<Double> modList = new ArrayList<Double>(modMap.keySet());
-					
-					Collections.sort(modList);
-					Collections.reverse(modList);
-					
-					for(double modValue : modList){
-						for(Integer timeWindow : modMap.get(modValue)){
-							while(passengersAssigned < passengerDistribution.get(c)){
-								int currentlyAssigned = temporalPassengerDistribution.get(timeWindow).get(c);
-								
-								temporalPassengerDistribution.get(timeWindow).put(c, currentlyAssigned + 1);
-								passengersAssigned++;
-							}
-						}
-					}
-				}
-				
-				Set<Integer> removeableTimeWindows = new HashSet<Integer>();
+		for(int i = 0; i < shiftDuration / timeGranularity; i++){
+			timeWindows.add(shiftStartTime + (timeGranularity * i));
+		}
+		
+		this.index = new ModelIndex(timeWindows, shiftStartTime, timeGranularity, flights, adversaryDistribution.keySet(), attackMethods, screeningOperations, screeningResources.keySet());
+		this.screeningTables = new ScreeningTables(index);
+	}
+	
+	// takes over the xi samples and active violation slices of a ModelSnapshot
+	void setSamples(ScenarioTensor xiTensor, BitSet violActive){
+		this.numberSamples = xiTensor.size();
+		this.xiTensor = xiTensor;
+		this.violActive = violActive;
+		this.activity = new ActivityIndex(index, (BitSet) violActive.clone(), xiTensor);
+	}
+	
+	int getShiftStartTime(){
+		return shiftStartTime;
+	}
+	
+	int getShiftDuration(){
+		return shiftDuration;
+	}
+	
+	int getTimeGranularity(){
+		return timeGranularity;
+	}
+	
+	BitSet getViolActive(){
+		return violActive;
+	}
+	
+	ResourceFines resourceFines(){
+		return resourceFines;
+	}
+	
+	// Every (flight, sample) pair draws from its own Random seeded from model.seed,
+	// so the samples do not depend on how the work is split across threads.
+	// The xi samples are stored, the violation samples are only scanned for the
+	// slices they put passengers in and are regenerated when they are scored.
+	public void calculateTemporalPassengerDistributions() throws Exception{
+		System.out.println("Uncertain parameter: " + this.uncertain);
+		
+		this.xiTensor = new ScenarioTensor(index, numberSamples);
+		this.violActive = new BitSet(index.scenarioSize());
+		
+		final ScenarioProvider xiScenarios = new ScenarioProvider(this, numViolProb, numberSamples);
+		final ScenarioProvider violScenarios = getViolScenarios();
+		final int blockSize = 64;
+		int numBlocks = (numberSamples + blockSize - 1) / blockSize + (numViolProb + blockSize - 1) / blockSize;
+		int threads = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(), numBlocks));
+		
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		List<Future<?>> futures = new ArrayList<Future<?>>();
+		
+		try{
+			for(int first = 0; first < numberSamples; first += blockSize){
+				final int from = first;
+				final int to = Math.min(first + blockSize, numberSamples);
 				
-				for(int timeWindow : temporalPassengerDistribution.keySet()){
-					boolean removeTimeWindow = true;
-					
-					for(RiskCategory c : temporalPassengerDistribution.get(timeWindow).keySet()){
-						if(temporalPassengerDistribution.get(timeWindow).get(c) > 0){
-							removeTimeWindow = false;
-							break;
-						}
+				futures.add(pool.submit(new Runnable(){
+					public void run(){
+						xiScenarios.fill(from, xiTensor, from, to - from);
 					}
-					
-					if(removeTimeWindow){
-						removeableTimeWindows.add(timeWindow);
-					}	
-				}
-				
-				for(int timeWindow : removeableTimeWindows){
-					// temporalPassengerDistribution.remove(timeWindow);
-				}
-
-				temporalPassengerDistributionList.add( temporalPassengerDistribution );
-
-				// temporalPassengerDistributionList.add(temporalPassengerDistribution);
+				}));
 			}
-
 			
-			for( int i = 0; i < numberSamples; i++){
+			for(int first = 0; first < numViolProb; first += blockSize){
+				final int from = first;
+				final int to = Math.min(first + blockSize, numViolProb);
 				
-				for(int t : temporalPassengerDistributionList.get(i).keySet()){
-					for(RiskCategory c : temporalPassengerDistributionList.get(i).get(t).keySet()){
-						if(temporalPassengerDistributionList.get(i).get(t).get(c) >= 0){
-							if(!flightMap.containsKey(t)){
-								flightMap.put(t, new ArrayList<Flight>());
-							}
-							if( !flightMap.get(t).contains(f)){	
-								flightMap.get(t).add(f);
-							}
-							break;
+				futures.add(pool.submit(new Runnable(){
+					public void run(){
+						BitSet active = new BitSet(index.scenarioSize());
+						ActivityIndex.mark(violScenarios.materialize(from, to - from), active);
+						
+						synchronized(violActive){
+							violActive.or(active);
 						}
 					}
-				}
+				}));
+			}
+			
+			for(Future<?> future : futures){
+				future.get();
+			}
+		}
+		catch(ExecutionException e){
+			if(e.getCause() instanceof Exception){
+				throw (Exception) e.getCause();
+			}
+			
+			throw e;
+		}
+		finally{
+			pool.shutdown();
+		}
+		
+		this.activity = new ActivityIndex(index, (BitSet) violActive.clone(), xiTensor);
+		
+		System.out.println("Active (t, f, c) slices: " + activity.numActiveSlices() + " of " + index.scenarioSize());
+	}
+	
+	// Grows the sample set to numberSamples. Samples are a function of (seed, flight, sample), so
+	// the samples drawn so far are kept as a prefix and a solver can add just the rows of the new ones.
+	public void extendSamples(int numberSamples){
+		if(numberSamples <= this.numberSamples){
+			return;
+		}
+		
+		ScenarioTensor extended = new ScenarioTensor(index, numberSamples);
+		System.arraycopy(xiTensor.counts(), 0, extended.counts(), 0, xiTensor.counts().length);
+		
+		new ScenarioProvider(this, numViolProb, numberSamples).fill(this.numberSamples, extended, this.numberSamples, numberSamples - this.numberSamples);
+		
+		System.out.println("Number of samples: " + this.numberSamples + " -> " + numberSamples);
+		
+		this.numberSamples = numberSamples;
+		this.xiTensor = extended;
+		this.xiDistribution = extended.asList();
+		this.activity = new ActivityIndex(index, (BitSet) violActive.clone(), xiTensor);
+	}
+	
+	// switches to the sample count required for epsilon, keeping the samples drawn so far
+	public void setEpsilon(double epsilon){
+		this.eps = epsilon;
+		extendSamples(calcNumberSamples(epsilon, beta));
+	}
+	
+	// fills scenarios offset to offset + n - 1 of tensor with samples firstSample to firstSample + n - 1, see ScenarioProvider
+	void sampleScenarios(int firstSample, ScenarioTensor tensor, int offset, int n){
+		ArrivalProfile profile = new ArrivalProfile(timeWindows, timeGranularity);
+		
+		for(Flight f : flights){
+			List<RiskCategory> passList = new ArrayList<RiskCategory>(f.getPassengerDistribution().keySet());
+			Collections.sort(passList);
+			
+			for(int s = 0; s < n; s++){
+				sampleScenario(f, passList, firstSample + s, tensor, offset + s, profile);
+			}
+		}
+	}
+	
+	// the numViolProb violation scenarios, regenerated on demand
+	public ScenarioProvider getViolScenarios(){
+		return new ScenarioProvider(this, 0, numViolProb);
+	}
+	
+	// violation scenarios beyond the first numViolProb; they are drawn after the xi samples
+	public ScenarioProvider getExtraViolScenarios(int numberScenarios){
+		return new ScenarioProvider(this, numViolProb + numberSamples, numberScenarios);
+	}
+	
+	/**
+	 * The first numberScenarios violation scenarios, written once to the file
+	 * violationStore and kept there for later checks. The store is rewritten
+	 * when more scenarios are asked for or the samples have been extended, as
+	 * the extra violation scenarios are drawn after the xi samples.
+	 */
+	public ScenarioStore getViolationStore(int numberScenarios) throws Exception{
+		if(store != null && store.size() == numberScenarios && storeSamples == numberSamples){
+			return store;
+		}
+		
+		if(store != null){
+			store.close();
+		}
+		
+		long start = System.currentTimeMillis();
+		int threads = Runtime.getRuntime().availableProcessors();
+		int numStored = Math.min(numberScenarios, numViolProb);
+		
+		store = new ScenarioStore(index, new File(violationStore), numberScenarios, maxPassengers());
+		storeSamples = numberSamples;
+		
+		store.copy(getViolScenarios(), 0, numStored, threads);
+		store.copy(getExtraViolScenarios(numberScenarios - numStored), numStored, numberScenarios - numStored, threads);
+		
+		System.out.println("Wrote " + numberScenarios + " violation scenarios (" + store.getWidth() + " bytes per count) to " + violationStore
+				+ " in " + (System.currentTimeMillis() - start) + " ms");
+		
+		return store;
+	}
+	
+	// no count of a scenario exceeds the passengers of one (flight, category) pair
+	private int maxPassengers(){
+		int max = 0;
+		
+		for(Flight f : flights){
+			for(int passengers : f.getPassengerDistribution().values()){
+				max = Math.max(max, passengers);
+			}
+		}
+		
+		return max;
+	}
+	
+	private long sampleSeed(int flight, int sample){
+		return mix64(mix64(seed + GOLDEN_GAMMA * (flight + 1)) + GOLDEN_GAMMA * (sample + 1));
+	}
+	
+	private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+	
+	private static long mix64(long z){
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		
+		return z ^ (z >>> 31);
+	}
+	
+	private void sampleScenario(Flight f, List<RiskCategory> passList, int sample, ScenarioTensor tensor, int scenario, ArrivalProfile profile){
+		Random dice = new Random(sampleSeed(f.ordinal(), sample));
+		Map<RiskCategory, Integer> passengerDistribution = f.getPassengerDistribution();
+		
+		for(RiskCategory c : passList){
+			double a = -190 + dice.nextDouble()*this.uncertain*2 - this.uncertain;
+			double b =  50 + dice.nextDouble()*this.uncertain*2 - this.uncertain;
+			double d = -190 + dice.nextDouble()*this.uncertain*2 - this.uncertain;
+			double e =  50 + dice.nextDouble()*this.uncertain*2 - this.uncertain;
+			
+			if(b <= 0 || e <= 0){
+				throw new NotStrictlyPositiveException(LocalizedFormats.STANDARD_DEVIATION, b <= 0 ? b : e);
 			}
 			
-		f.setTemporalPassengerDistributionList(temporalPassengerDistributionList);
+			int[] counts;
+			
+			if(f.getFlightType() == Flight.FlightType.DOMESTIC){
+				counts = profile.distribute(f.getDepartureTime(), a, b, passengerDistribution.get(c));
+			}
+			else{
+				counts = profile.distribute(f.getDepartureTime(), d, e, passengerDistribution.get(c));
+			}
+			
+			for(int t = 0; t < counts.length; t++){
+				tensor.set(scenario, t, f.ordinal(), c.ordinal(), counts[t]);
+			}
 		}
 	}
 	
@@ -319,12 +478,33 @@ public class DARMSModel {
 		return flights;
 	}
 	
+	// flights with passengers in the time window in some sample, all flights before sampling
 	public List<Flight> getFlights(int timeWindow){
-		return flights;
+		if(activity == null){
+			return flights;
+		}
+		
+		return activity.getFlights(index.timeWindow(timeWindow));
+	}
+	
+	public boolean isActive(int timeWindow, Flight f, RiskCategory c){
+		return activity == null || activity.isActive(index.timeWindow(timeWindow), f.ordinal(), c.ordinal());
 	}
 	
-	public void setFlights(List<Flight> flights){
+	public ActivityIndex getActivityIndex(){
+		return activity;
+	}
+	
+	// the samples and the violation store are laid out by the flight ordinals, so the flights can only be replaced before they are drawn
+	public void setFlights(List<Flight> flights) throws Exception{
+		if(xiTensor != null || store != null){
+			throw new Exception("The flights cannot be replaced after the samples are drawn.");
+		}
+		
 		this.flights = flights;
+		this.activity = null;
+		this.index = new ModelIndex(index, flights);
+		this.screeningTables = new ScreeningTables(index);
 	}
 	
 	public List<AttackMethod> getAttackMethods(){
@@ -336,10 +516,8 @@ public class DARMSModel {
 	}
 	
 	public List<Integer> getTimeWindows(){
-		// List<Integer> tw = new ArrayList<Integer>(flightMap.keySet());
-		
-		Collections.sort(timeWindows);
-		
+		// built in ascending order by the constructor; not sorted here, because
+		// sorting bumps the list's modCount under readers in other threads
 		return timeWindows;
 	}
 	
@@ -360,69 +538,39 @@ public class DARMSModel {
 	}
 	
 	public void setXiDistribution(){
+		this.xiDistribution = xiTensor.asList();
 		
-		this.violDistribution = new ArrayList<PassengerDistribution>();
-		
-		for(int count = 0; count < numViolProb; count++){
-			
-			Map<Integer, Map<Flight, Map<RiskCategory, Integer>>> dist = new HashMap<Integer, Map<Flight, Map<RiskCategory, Integer>>>();
-			
-			for(int t : flightMap.keySet()){
-				dist.put(t, new HashMap<Flight, Map<RiskCategory, Integer>>());
-			
-				for(Flight f : flightMap.get(t)){
-					
-					List<Map<Integer, Map<RiskCategory, Integer>>> temporalPassengerDistributionList = f.getTemporalPassengerDistributionList();
-					
-					Map<Integer, Map<RiskCategory, Integer>> temporalDistribution = temporalPassengerDistributionList.get(count);
-					
-					dist.get(t).put(f, new HashMap<RiskCategory, Integer>());
-					
-					for(RiskCategory c : temporalDistribution.get(t).keySet()){
-						dist.get(t).get(f).put(c, temporalDistribution.get(t).get(c));
-					}
-				}
-			}
-			PassengerDistribution passDistribution = new PassengerDistribution(dist);
-			// System.out.println(passDistribution);
-			violDistribution.add(passDistribution);
-			}
-		
-		this.xiDistribution = new ArrayList<PassengerDistribution>();
-		
-		for(int count = numViolProb; count < numViolProb+numberSamples; count++){
-		
-			Map<Integer, Map<Flight, Map<RiskCategory, Integer>>> dist = new HashMap<Integer, Map<Flight, Map<RiskCategory, Integer>>>();
-		
-			for(int t : flightMap.keySet()){
-				dist.put(t, new HashMap<Flight, Map<RiskCategory, Integer>>());
-			
-				for(Flight f : flightMap.get(t)){
-					
-					List<Map<Integer, Map<RiskCategory, Integer>>> temporalPassengerDistributionList = f.getTemporalPassengerDistributionList();
-					
-					Map<Integer, Map<RiskCategory, Integer>> temporalDistribution = temporalPassengerDistributionList.get(count);
-					
-					dist.get(t).put(f, new HashMap<RiskCategory, Integer>());
-					
-					for(RiskCategory c : temporalDistribution.get(t).keySet()){
-						dist.get(t).get(f).put(c, temporalDistribution.get(t).get(c));
-					}
-				}
-			}
-			PassengerDistribution passDistribution = new PassengerDistribution(dist);
-			xiDistribution.add(passDistribution);
-			}
-		System.out.println( "violprobsamples = " + this.violDistribution.size() );
+		System.out.println( "violprobsamples = " + numViolProb );
 		
 	}
 	
+	public ModelIndex getIndex(){
+		return index;
+	}
+	
+	public ScreeningTables getScreeningTables(){
+		return screeningTables;
+	}
+	
+	public ScenarioTensor getXiTensor(){
+		return xiTensor;
+	}
+	
+	public int getNumberSamples(){
+		return numberSamples;
+	}
+	
+	public int getNumViolProb(){
+		return numViolProb;
+	}
+	
 	public List<PassengerDistribution> getXiDistribution(){
 		return xiDistribution;
 	}
 	
+	// regenerated on every get
 	public List<PassengerDistribution> getViolDistribution(){
-		return violDistribution;
+		return getViolScenarios().asList();
 	}	
 	
 	public void setPayoffStructure(){
@@ -456,68 +604,8 @@ public class DARMSModel {
 		int numFlights = this.flights.size();
 		int numTeams = this.screeningOperations.size();		
 		
-		int nw = 50;
-		int N = nw;
-		int N1 = 0;
-		while( true ){
-			double sum = 0;
-			for( int i = 0 ; i < nw ; ++i ){
-				BigDecimal a = new BigDecimal( BigIntegerMath.binomial( N, i ));
-				double b = Math.pow(epsilon, i);
-				double c = Math.pow((1 - epsilon), (N-i));
-				BigDecimal f = new BigDecimal( b* c );
-				double d = a.multiply(f).doubleValue();
-				sum += d;
-				if( sum > beta ){
-					break;
-				}
-				
-			}
-			
-			if( sum <= beta ){
-				N1 = N;
-				break;
-			}
-			N = N + 1;
-		}
-	
-		
-		
-		
-		
-		int N2 = 0;
-		nw = 80;
-		N = nw;
-		while( true ){
-			double sum = 0;
-			for( int i = 0 ; i < nw ; ++i ){
-				BigDecimal a = new BigDecimal( BigIntegerMath.binomial( N, i ));
-				double b = Math.pow(epsilon, i);
-				double c = Math.pow((1 - epsilon), (N-i));
-				BigDecimal f = new BigDecimal( b* c );
-				double d = a.multiply(f).doubleValue();
-				sum += d;
-				if( sum > beta ){
-					break;
-				}
-				
-			}
-			
-			if( sum <= beta ){
-				N2 = N;
-				break;
-			}
-			N = N + 1;
-		}
-
-
-		
-		
-		
-		
-		
 		// nw is number of b variables + number of s variables + number of m variables
-		nw = numFlights * numRisk * numWindows * numTeams + numRisk + numFlights * numRisk * ( (numWindows) * (numWindows - 1)/2 ) * numTeams;
+		int nw = numFlights * numRisk * numWindows * numTeams + numRisk + numFlights * numRisk * ( (numWindows) * (numWindows - 1)/2 ) * numTeams;
 		
 		if( this.decisionRule.equals("linear") ){
 			nw = numFlights * numRisk * numWindows * numTeams + numRisk + numFlights * numRisk * ( (numWindows) * (numWindows - 1)/2 ) * numTeams;
@@ -527,12 +615,9 @@ public class DARMSModel {
 		
 		this.decVariables = nw;
 		
-		
-		double m = (N2*1.0 - N1) / (80-50);
-		N = (int) ((nw - 50)*m + N1);
 		System.out.println( "Number of Decision Varibales: " + nw);
 		
-		return N;
+		return SampleSizeCalculator.requiredSamples(epsilon, beta, nw);
 		
 		}
 
@@ -1,10 +1,10 @@
 package models;
 
-import java.util.List;
 import java.util.Map;
 
 public class Flight {
-	private int id;
+	private ModelIndex owner;
+	private int ordinal;
 	private String description;
 	private int defUncovPayoff;
 	private int defCovPayoff;
@@ -14,24 +14,32 @@ public class Flight {
 	private FlightType flightType;
 	
 	private Map<RiskCategory, Integer> passengerDistribution;
-	private List< Map<Integer, Map<RiskCategory, Integer >>> temporalPassengerDistributionList;
 	
 	public static enum FlightType {DOMESTIC, INTERNATIONAL};
 	
-	private static int ID = 1;
-	
 	public Flight(String description, FlightType flightType, int departureTime, Map<RiskCategory, Integer> categoryDistribution){
-		this.id = ID;
 		this.description = description;
 		this.flightType = flightType;
 		this.departureTime = departureTime;
 		this.passengerDistribution = categoryDistribution;
-		
-		ID++;
 	}
 	
 	public int id(){
-		return id;
+		return ordinal + 1;
+	}
+	
+	public int ordinal(){
+		return ordinal;
+	}
+	
+	// the index of the model this belongs to, null until it is part of one
+	ModelIndex owner(){
+		return owner;
+	}
+	
+	void setOrdinal(ModelIndex owner, int ordinal){
+		this.owner = owner;
+		this.ordinal = ordinal;
 	}
 	
 	public void setPayoffs(int defUncovPayoff, int defCovPayoff, int attUncovPayoff, int attCovPayoff){
@@ -41,14 +49,6 @@ public class Flight {
 		this.attCovPayoff = attCovPayoff;
 	}
 	
-	public void setTemporalPassengerDistributionList(List< Map<Integer, Map<RiskCategory, Integer>>> temporalPassengerDistributionList){
-		this.temporalPassengerDistributionList = temporalPassengerDistributionList;
-	}
-
-	public List<Map<Integer, Map<RiskCategory, Integer>>> getTemporalPassengerDistributionList(){
-		return temporalPassengerDistributionList;
-	}
-	
 	public int getDefUncovPayoff(){
 		return defUncovPayoff;
 	}
@@ -80,8 +80,4 @@ public class Flight {
 	public String toString(){
 		return description;
 	}
-	
-	public static void reset(){
-		ID = 1;
-	}
 }
\ No newline at end of file
@@ -0,0 +1,127 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the flights of a DARMSModel that are interchangeable for the
+ * marginal LP: same payoffs, same FlightType, and departures that fall
+ * between the same two window boundaries, so passengers of every flight of
+ * a class can arrive in the same windows. Each class is represented by its
+ * first flight, the leader, which carries the passengers of the whole class.
+ */
+public class FlightAggregation {
+	private ModelIndex index;
+
+	// leaders[f] is the ordinal of the leader of flight f's class
+	private int[] leaders;
+
+	private Map<Flight, List<Flight>> members;
+
+	public FlightAggregation(DARMSModel model, PayoffStructure payoffStructure){
+		this.index = model.getIndex();
+		this.leaders = new int[index.numFlights()];
+		this.members = new HashMap<Flight, List<Flight>>();
+
+		Map<List<Integer>, Flight> classes = new HashMap<List<Integer>, Flight>();
+
+		for(Flight f : index.getFlights()){
+			// the number of windows starting before departure decides which windows get passengers
+			int windows = 0;
+
+			for(int t : index.getTimeWindows()){
+				if(t < f.getDepartureTime()){
+					windows++;
+				}
+			}
+
+			List<Integer> key = Arrays.asList(payoffStructure.defCov(f), payoffStructure.defUncov(f), payoffStructure.attCov(f), payoffStructure.attUncov(f),
+					f.getFlightType().ordinal(), windows);
+
+			Flight leader = classes.get(key);
+
+			if(leader == null){
+				leader = f;
+				classes.put(key, f);
+				members.put(f, new ArrayList<Flight>());
+			}
+
+			leaders[f.ordinal()] = leader.ordinal();
+			members.get(leader).add(f);
+		}
+	}
+
+	public int numClasses(){
+		return members.size();
+	}
+
+	public Flight getLeader(Flight f){
+		return index.getFlight(leaders[f.ordinal()]);
+	}
+
+	public boolean isLeader(Flight f){
+		return leaders[f.ordinal()] == f.ordinal();
+	}
+
+	// the flights of a leader's class, the leader first
+	public List<Flight> getMembers(Flight leader){
+		return members.get(leader);
+	}
+
+	/**
+	 * Returns a copy of tensor in which every leader holds the passengers of
+	 * its whole class and all other flights hold none.
+	 */
+	public ScenarioTensor aggregate(ScenarioTensor tensor){
+		ScenarioTensor aggregated = new ScenarioTensor(index, tensor.size());
+
+		int[] from = tensor.counts();
+		int[] to = aggregated.counts();
+
+		int numWindows = index.numTimeWindows();
+		int numFlights = index.numFlights();
+		int numCategories = index.numRiskCategories();
+
+		for(int s = 0; s < tensor.size(); s++){
+			int base = tensor.base(s);
+
+			for(int w = 0; w < numWindows; w++){
+				for(int f = 0; f < numFlights; f++){
+					int source = base + index.offset(w, f, 0);
+					int target = base + index.offset(w, leaders[f], 0);
+
+					for(int c = 0; c < numCategories; c++){
+						to[target + c] += from[source + c];
+					}
+				}
+			}
+		}
+
+		return aggregated;
+	}
+
+	/**
+	 * Returns the activity index of the aggregated scenarios. Counts are never
+	 * negative, so a leader's slice is active when the slice of any flight of
+	 * its class is.
+	 */
+	public ActivityIndex aggregate(ActivityIndex activity){
+		BitSet active = new BitSet(index.scenarioSize());
+
+		for(int w = 0; w < index.numTimeWindows(); w++){
+			for(Flight f : activity.getFlights(w)){
+				for(int c = 0; c < index.numRiskCategories(); c++){
+					if(activity.isActive(w, f.ordinal(), c)){
+						active.set(index.offset(w, leaders[f.ordinal()], c));
+					}
+				}
+			}
+		}
+
+		return new ActivityIndex(index, active);
+	}
+}
@@ -0,0 +1,245 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Dense 0-based ordinals for the time windows, flights, risk categories,
+ * attack methods, screening operations and screening resources of one
+ * DARMSModel. Built once per model so scenario data and solver variables can
+ * be stored in flat arrays instead of nested maps. Entity ids are derived
+ * from these ordinals, so an entity belongs to the index that numbered it
+ * and a second index over it is rejected; models that should not share
+ * numbering have to be built from their own entities, as DARMSModelBuilder
+ * and ModelSnapshot do.
+ */
+public class ModelIndex {
+	private List<Integer> timeWindows;
+	private List<Flight> flights;
+	private List<RiskCategory> riskCategories;
+	private List<AttackMethod> attackMethods;
+	private List<ScreeningOperation> screeningOperations;
+	private List<ScreeningResource> screeningResources;
+
+	private int shiftStartTime;
+	private int timeGranularity;
+
+	// Ordinals follow the iteration order of the given collections, which for
+	// models read by DARMSModelBuilder is the order of the input files.
+	public ModelIndex(List<Integer> timeWindows, int shiftStartTime, int timeGranularity,
+			List<Flight> flights,
+			Collection<RiskCategory> riskCategories,
+			List<AttackMethod> attackMethods,
+			List<ScreeningOperation> screeningOperations,
+			Collection<ScreeningResource> screeningResources){
+		this(null, timeWindows, shiftStartTime, timeGranularity, flights, riskCategories, attackMethods, screeningOperations, screeningResources);
+	}
+
+	// the index of a model whose flights were replaced: takes over the entities of previous, which must not be used afterwards
+	public ModelIndex(ModelIndex previous, List<Flight> flights){
+		this(previous, previous.timeWindows, previous.shiftStartTime, previous.timeGranularity, flights,
+				previous.riskCategories, previous.attackMethods, previous.screeningOperations, previous.screeningResources);
+	}
+
+	private ModelIndex(ModelIndex previous, List<Integer> timeWindows, int shiftStartTime, int timeGranularity,
+			List<Flight> flights,
+			Collection<RiskCategory> riskCategories,
+			List<AttackMethod> attackMethods,
+			List<ScreeningOperation> screeningOperations,
+			Collection<ScreeningResource> screeningResources){
+		this.timeWindows = new ArrayList<Integer>(timeWindows);
+		this.shiftStartTime = shiftStartTime;
+		this.timeGranularity = timeGranularity;
+		this.flights = new ArrayList<Flight>(flights);
+		this.riskCategories = new ArrayList<RiskCategory>(riskCategories);
+		this.attackMethods = new ArrayList<AttackMethod>(attackMethods);
+		this.screeningOperations = new ArrayList<ScreeningOperation>(screeningOperations);
+		this.screeningResources = new ArrayList<ScreeningResource>(screeningResources);
+
+		Collections.sort(this.timeWindows);
+
+		// check everything before numbering anything, so a rejected index leaves the other model intact
+		for(Flight f : this.flights){
+			checkOwner(f, f.owner(), previous);
+		}
+
+		for(RiskCategory c : this.riskCategories){
+			checkOwner(c, c.owner(), previous);
+		}
+
+		for(AttackMethod m : this.attackMethods){
+			checkOwner(m, m.owner(), previous);
+		}
+
+		for(ScreeningOperation o : this.screeningOperations){
+			checkOwner(o, o.owner(), previous);
+		}
+
+		for(ScreeningResource r : this.screeningResources){
+			checkOwner(r, r.owner(), previous);
+		}
+
+		if(previous != null){
+			// flights left out of this index may join another model
+			for(Flight f : previous.flights){
+				f.setOrdinal(null, 0);
+			}
+		}
+
+		for(int i = 0; i < this.flights.size(); i++){
+			this.flights.get(i).setOrdinal(this, i);
+		}
+
+		for(int i = 0; i < this.riskCategories.size(); i++){
+			this.riskCategories.get(i).setOrdinal(this, i);
+		}
+
+		for(int i = 0; i < this.attackMethods.size(); i++){
+			this.attackMethods.get(i).setOrdinal(this, i);
+		}
+
+		for(int i = 0; i < this.screeningOperations.size(); i++){
+			this.screeningOperations.get(i).setOrdinal(this, i);
+		}
+
+		for(int i = 0; i < this.screeningResources.size(); i++){
+			this.screeningResources.get(i).setOrdinal(this, i);
+		}
+	}
+
+	private static void checkOwner(Object entity, ModelIndex owner, ModelIndex previous){
+		if(owner != null && owner != previous){
+			throw new IllegalArgumentException(entity + " already belongs to another model, whose numbering it would change.");
+		}
+	}
+
+	private void checkOwned(Object entity, ModelIndex owner){
+		if(owner != this){
+			throw new IllegalArgumentException(entity + " is not part of this model.");
+		}
+	}
+
+	public int timeWindow(int t){
+		int w = (t - shiftStartTime) / timeGranularity;
+
+		if(w < 0 || w >= timeWindows.size() || timeWindows.get(w) != t){
+			throw new IllegalArgumentException("Time window " + t + " is not part of the shift.");
+		}
+
+		return w;
+	}
+
+	public int flight(Flight f){
+		checkOwned(f, f.owner());
+
+		return f.ordinal();
+	}
+
+	public int riskCategory(RiskCategory c){
+		checkOwned(c, c.owner());
+
+		return c.ordinal();
+	}
+
+	public int attackMethod(AttackMethod m){
+		checkOwned(m, m.owner());
+
+		return m.ordinal();
+	}
+
+	public int screeningOperation(ScreeningOperation o){
+		checkOwned(o, o.owner());
+
+		return o.ordinal();
+	}
+
+	public int screeningResource(ScreeningResource r){
+		checkOwned(r, r.owner());
+
+		return r.ordinal();
+	}
+
+	public int getTimeWindow(int w){
+		return timeWindows.get(w);
+	}
+
+	public Flight getFlight(int f){
+		return flights.get(f);
+	}
+
+	public RiskCategory getRiskCategory(int c){
+		return riskCategories.get(c);
+	}
+
+	public AttackMethod getAttackMethod(int m){
+		return attackMethods.get(m);
+	}
+
+	public ScreeningOperation getScreeningOperation(int o){
+		return screeningOperations.get(o);
+	}
+
+	public ScreeningResource getScreeningResource(int r){
+		return screeningResources.get(r);
+	}
+
+	public List<Integer> getTimeWindows(){
+		return timeWindows;
+	}
+
+	public List<Flight> getFlights(){
+		return flights;
+	}
+
+	public List<RiskCategory> getRiskCategories(){
+		return riskCategories;
+	}
+
+	public List<AttackMethod> getAttackMethods(){
+		return attackMethods;
+	}
+
+	public List<ScreeningOperation> getScreeningOperations(){
+		return screeningOperations;
+	}
+
+	public List<ScreeningResource> getScreeningResources(){
+		return screeningResources;
+	}
+
+	public int numTimeWindows(){
+		return timeWindows.size();
+	}
+
+	public int numFlights(){
+		return flights.size();
+	}
+
+	public int numRiskCategories(){
+		return riskCategories.size();
+	}
+
+	public int numAttackMethods(){
+		return attackMethods.size();
+	}
+
+	public int numScreeningOperations(){
+		return screeningOperations.size();
+	}
+
+	public int numScreeningResources(){
+		return screeningResources.size();
+	}
+
+	/** Offset of (w, f, c) inside one scenario, in [time window][flight][risk category] order. */
+	public int offset(int w, int f, int c){
+		return (w * flights.size() + f) * riskCategories.size() + c;
+	}
+
+	/** Number of passenger counts held by one scenario. */
+	public int scenarioSize(){
+		return timeWindows.size() * flights.size() * riskCategories.size();
+	}
+}
@@ -0,0 +1,408 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Binary snapshot of a built DARMSModel: its flights, risk categories,
+ * attack methods, screening resources and operations, resource fines,
+ * settings and the drawn xi samples, so a model can be loaded without
+ * reading the input files or sampling again. The violation samples are not
+ * stored, they are regenerated from the seed like in a freshly built model.
+ *
+ * A snapshot starts with a format version and a digest of the input it was
+ * built from; read returns null for snapshots of another version or digest,
+ * so callers rebuild the model and write a new one. The samples follow the
+ * other data as raw ints and are read through a memory mapping of the file.
+ */
+public class ModelSnapshot {
+	private static final int MAGIC = 0x4441524D;
+	private static final int VERSION = 1;
+
+	// ints of the samples copied per mapping, a mapping is limited to 2 GB
+	private static final int SEGMENT_INTS = 1 << 28;
+
+	// SHA-256 of the contents of the files and the given parameters
+	public static byte[] digest(List<String> filenames, Object... parameters) throws Exception{
+		MessageDigest digest = MessageDigest.getInstance("SHA-256");
+		byte[] buffer = new byte[1 << 16];
+
+		for(String filename : filenames){
+			InputStream in = new FileInputStream(filename);
+
+			try{
+				int read;
+
+				while((read = in.read(buffer)) > 0){
+					digest.update(buffer, 0, read);
+				}
+			}
+			finally{
+				in.close();
+			}
+		}
+
+		for(Object parameter : parameters){
+			digest.update(String.valueOf(parameter).getBytes("UTF-8"));
+			digest.update((byte) 0);
+		}
+
+		return digest.digest();
+	}
+
+	public static void write(DARMSModel model, File file, byte[] inputDigest) throws IOException{
+		ModelIndex index = model.getIndex();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+
+		out.writeInt(inputDigest.length);
+		out.write(inputDigest);
+
+		out.writeBoolean(model.flightByFlight());
+		out.writeInt(model.getShiftStartTime());
+		out.writeInt(model.getShiftDuration());
+		out.writeInt(model.getTimeGranularity());
+		out.writeInt(model.numberTrials);
+		out.writeInt(model.uncertain);
+		out.writeDouble(model.eps);
+		out.writeDouble(model.beta);
+		out.writeBoolean(model.hasOverflow);
+		out.writeBoolean(model.aggregate);
+		out.writeUTF(model.decisionRule);
+		out.writeInt(model.seed);
+		out.writeInt(model.getDecVariables());
+
+		out.writeInt(index.numRiskCategories());
+
+		for(RiskCategory c : index.getRiskCategories()){
+			out.writeUTF(c.toString());
+			out.writeDouble(model.getAdversaryDistribution().get(c));
+		}
+
+		out.writeInt(index.numAttackMethods());
+
+		for(AttackMethod m : index.getAttackMethods()){
+			out.writeUTF(m.toString());
+		}
+
+		out.writeInt(index.numScreeningResources());
+
+		for(ScreeningResource r : index.getScreeningResources()){
+			out.writeUTF(r.toString());
+			out.writeInt(r.capacity());
+			out.writeDouble(r.screeningTime());
+			out.writeInt(model.getScreeningResources().get(r));
+
+			for(RiskCategory c : index.getRiskCategories()){
+				for(AttackMethod m : index.getAttackMethods()){
+					out.writeDouble(r.effectiveness(c, m));
+				}
+			}
+		}
+
+		out.writeInt(index.numScreeningOperations());
+
+		for(ScreeningOperation o : index.getScreeningOperations()){
+			out.writeInt(o.getResources().size());
+
+			for(ScreeningResource r : o.getResources()){
+				out.writeInt(r.ordinal());
+			}
+		}
+
+		out.writeInt(index.numFlights());
+
+		for(Flight f : index.getFlights()){
+			out.writeUTF(f.toString());
+			out.writeUTF(f.getFlightType().name());
+			out.writeInt(f.getDepartureTime());
+			out.writeInt(f.getDefUncovPayoff());
+			out.writeInt(f.getDefCovPayoff());
+			out.writeInt(f.getAttUncovPayoff());
+			out.writeInt(f.getAttCovPayoff());
+			out.writeInt(f.getPassengerDistribution().size());
+
+			for(Map.Entry<RiskCategory, Integer> passengers : f.getPassengerDistribution().entrySet()){
+				out.writeInt(passengers.getKey().ordinal());
+				out.writeInt(passengers.getValue());
+			}
+		}
+
+		ResourceFines resourceFines = model.resourceFines();
+		Map<Integer, Map<ScreeningResource, Double>> fines = resourceFines.getFines();
+
+		out.writeInt(resourceFines.getTrials());
+		out.writeBoolean(fines != null);
+
+		if(fines != null){
+			for(int t : index.getTimeWindows()){
+				for(ScreeningResource r : index.getScreeningResources()){
+					out.writeDouble(fines.get(t).get(r));
+				}
+			}
+		}
+
+		BitSet violActive = model.getViolActive();
+
+		out.writeInt(violActive.cardinality());
+
+		for(int i = violActive.nextSetBit(0); i >= 0; i = violActive.nextSetBit(i + 1)){
+			out.writeInt(i);
+		}
+
+		ScenarioTensor xiTensor = model.getXiTensor();
+
+		out.writeInt(xiTensor.size());
+		out.close();
+
+		RandomAccessFile data = new RandomAccessFile(file, "rw");
+
+		try{
+			FileChannel channel = data.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(12 + bytes.size());
+
+			header.putInt(MAGIC);
+			header.putInt(VERSION);
+			header.putInt(bytes.size());
+			header.put(bytes.toByteArray());
+			header.flip();
+
+			data.setLength(0);
+
+			while(header.hasRemaining()){
+				channel.write(header);
+			}
+
+			int[] counts = xiTensor.counts();
+			ByteBuffer buffer = ByteBuffer.allocate(4 * Math.min(counts.length, 1 << 16));
+
+			for(int from = 0; from < counts.length; from += buffer.capacity() / 4){
+				int n = Math.min(buffer.capacity() / 4, counts.length - from);
+
+				buffer.clear();
+				buffer.asIntBuffer().put(counts, from, n);
+				buffer.limit(4 * n);
+
+				while(buffer.hasRemaining()){
+					channel.write(buffer);
+				}
+			}
+		}
+		finally{
+			data.close();
+		}
+	}
+
+	// the model in file, or null if there is none or it was built from input with another digest
+	public static DARMSModel read(File file, byte[] inputDigest) throws IOException{
+		if(!file.exists()){
+			return null;
+		}
+
+		byte[] header;
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+
+		try{
+			if(file.length() < 12 || in.readInt() != MAGIC || in.readInt() != VERSION){
+				return null;
+			}
+
+			header = new byte[in.readInt()];
+			in.readFully(header);
+		}
+		finally{
+			in.close();
+		}
+
+		in = new DataInputStream(new ByteArrayInputStream(header));
+
+		byte[] snapshotDigest = new byte[in.readInt()];
+		in.readFully(snapshotDigest);
+
+		if(!Arrays.equals(snapshotDigest, inputDigest)){
+			return null;
+		}
+
+		boolean flightByFlight = in.readBoolean();
+		int shiftStartTime = in.readInt();
+		int shiftDuration = in.readInt();
+		int timeGranularity = in.readInt();
+		int numberTrials = in.readInt();
+		int uncertain = in.readInt();
+		double epsilon = in.readDouble();
+		double beta = in.readDouble();
+		boolean overflow = in.readBoolean();
+		boolean aggregate = in.readBoolean();
+		String decisionRule = in.readUTF();
+		int seed = in.readInt();
+		int decVariables = in.readInt();
+
+		List<RiskCategory> riskCategories = new ArrayList<RiskCategory>();
+		Map<RiskCategory, Double> adversaryDistribution = new LinkedHashMap<RiskCategory, Double>();
+		int numCategories = in.readInt();
+
+		for(int c = 0; c < numCategories; c++){
+			RiskCategory category = new RiskCategory(in.readUTF());
+
+			riskCategories.add(category);
+			adversaryDistribution.put(category, in.readDouble());
+		}
+
+		List<AttackMethod> attackMethods = new ArrayList<AttackMethod>();
+		int numAttackMethods = in.readInt();
+
+		for(int m = 0; m < numAttackMethods; m++){
+			attackMethods.add(new AttackMethod(in.readUTF()));
+		}
+
+		List<ScreeningResource> resources = new ArrayList<ScreeningResource>();
+		Map<ScreeningResource, Integer> screeningResources = new LinkedHashMap<ScreeningResource, Integer>();
+		int numResources = in.readInt();
+
+		for(int r = 0; r < numResources; r++){
+			ScreeningResource resource = new ScreeningResource(in.readUTF(), in.readInt(), in.readDouble());
+
+			screeningResources.put(resource, in.readInt());
+
+			for(RiskCategory c : riskCategories){
+				Map<AttackMethod, Double> effectiveness = new HashMap<AttackMethod, Double>();
+
+				for(AttackMethod m : attackMethods){
+					effectiveness.put(m, in.readDouble());
+				}
+
+				resource.setEffectiveness(c, effectiveness);
+			}
+
+			resources.add(resource);
+		}
+
+		List<ScreeningOperation> screeningOperations = new ArrayList<ScreeningOperation>();
+		int numOperations = in.readInt();
+
+		for(int o = 0; o < numOperations; o++){
+			Set<ScreeningResource> operationResources = new HashSet<ScreeningResource>();
+			int size = in.readInt();
+
+			for(int i = 0; i < size; i++){
+				operationResources.add(resources.get(in.readInt()));
+			}
+
+			screeningOperations.add(new ScreeningOperation(operationResources));
+		}
+
+		List<Flight> flights = new ArrayList<Flight>();
+		int numFlights = in.readInt();
+
+		for(int f = 0; f < numFlights; f++){
+			String description = in.readUTF();
+			Flight.FlightType flightType = Flight.FlightType.valueOf(in.readUTF());
+			int departureTime = in.readInt();
+			int defUncovPayoff = in.readInt();
+			int defCovPayoff = in.readInt();
+			int attUncovPayoff = in.readInt();
+			int attCovPayoff = in.readInt();
+
+			Map<RiskCategory, Integer> distribution = new HashMap<RiskCategory, Integer>();
+			int size = in.readInt();
+
+			for(int i = 0; i < size; i++){
+				distribution.put(riskCategories.get(in.readInt()), in.readInt());
+			}
+
+			Flight flight = new Flight(description, flightType, departureTime, distribution);
+			flight.setPayoffs(defUncovPayoff, defCovPayoff, attUncovPayoff, attCovPayoff);
+
+			flights.add(flight);
+		}
+
+		int trials = in.readInt();
+		Map<Integer, Map<ScreeningResource, Double>> fines = null;
+
+		if(in.readBoolean()){
+			fines = new HashMap<Integer, Map<ScreeningResource, Double>>();
+
+			for(int w = 0; w < shiftDuration / timeGranularity; w++){
+				Map<ScreeningResource, Double> windowFines = new HashMap<ScreeningResource, Double>();
+
+				for(ScreeningResource r : resources){
+					windowFines.put(r, in.readDouble());
+				}
+
+				fines.put(shiftStartTime + timeGranularity * w, windowFines);
+			}
+		}
+
+		DARMSModel model = new DARMSModel(flights,
+				adversaryDistribution,
+				attackMethods,
+				screeningOperations,
+				screeningResources,
+				flightByFlight,
+				shiftStartTime,
+				shiftDuration,
+				timeGranularity,
+				numberTrials,
+				new ResourceFines(trials, fines),
+				uncertain, epsilon, beta, overflow, aggregate, decisionRule, seed, decVariables);
+
+		BitSet violActive = new BitSet(model.getIndex().scenarioSize());
+		int numActive = in.readInt();
+
+		for(int i = 0; i < numActive; i++){
+			violActive.set(in.readInt());
+		}
+
+		ScenarioTensor xiTensor = new ScenarioTensor(model.getIndex(), in.readInt());
+		int[] counts = xiTensor.counts();
+
+		RandomAccessFile data = new RandomAccessFile(file, "r");
+
+		try{
+			FileChannel channel = data.getChannel();
+			long position = 12 + header.length;
+
+			if(channel.size() != position + 4L * counts.length){
+				return null;
+			}
+
+			for(int from = 0; from < counts.length; from += SEGMENT_INTS){
+				int n = Math.min(SEGMENT_INTS, counts.length - from);
+				IntBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position + 4L * from, 4L * n).asIntBuffer();
+
+				segment.get(counts, from, n);
+			}
+		}
+		finally{
+			data.close();
+		}
+
+		model.setSamples(xiTensor, violActive);
+		model.setXiDistribution();
+		model.setPayoffStructure();
+
+		return model;
+	}
+}
@@ -1,46 +1,49 @@
 package models;
-import java.util.Map;
 
 
 public class PassengerDistribution implements Comparable<PassengerDistribution>{
 	private int id;
-	private Map<Integer, Map<Flight, Map<RiskCategory, Integer>>> distribution;
-	
-	private static int ID = 1;
-	
-	public PassengerDistribution(Map<Integer, Map<Flight, Map<RiskCategory, Integer>>> distribution){
-		this.distribution = distribution;
-		
-		id = ID;
-		
-		ID++;
-	}
-	
+	private ScenarioTensor tensor;
+	private ModelIndex index;
+	private int[] counts;
+	private int base;
+
+	PassengerDistribution(ScenarioTensor tensor, int scenario){
+		this.tensor = tensor;
+		this.index = tensor.getIndex();
+		this.counts = tensor.counts();
+		this.base = tensor.base(scenario);
+
+		id = scenario + 1;
+	}
+
 	public int getTotalPassengers(){
 		int totalPassengers = 0;
-		
-		for(int t : distribution.keySet()){
-			for(Flight f : distribution.get(t).keySet()){
-				for(RiskCategory c : distribution.get(t).get(f).keySet()){
-					totalPassengers += distribution.get(t).get(f).get(c);
-				}
-			}
+
+		for(int i = 0; i < index.scenarioSize(); i++){
+			totalPassengers += counts[base + i];
 		}
-		
+
 		return totalPassengers;
 	}
-	
+
 	public int id(){
 		return id;
 	}
-	
-	public int get(Integer t, Flight f, RiskCategory c){
-//		System.out.println(t);
-//		System.out.println(f);
-//		System.out.println(c);
-		return distribution.get(t).get(f).get(c);
+
+	public ScenarioTensor getTensor(){
+		return tensor;
 	}
-	
+
+	public int get(int t, Flight f, RiskCategory c){
+		return counts[base + index.offset(index.timeWindow(t), f.ordinal(), c.ordinal())];
+	}
+
+	// same as get(t, f, c) but addressed by ModelIndex ordinals
+	public int count(int w, int f, int c){
+		return counts[base + index.offset(w, f, c)];
+	}
+
 	public int compareTo(PassengerDistribution d){
 		if(d.id() == this.id()){
 			return 0;
@@ -48,11 +51,11 @@ public class PassengerDistribution implements Comparable<PassengerDistribution>{
 		else if(d.id() < this.id()){
 			return 1;
 		}
-		
+
 		return -1;
 	}
-	
+
 	public String toString(){
 		return "Distribution" + id;
 	}
-}
\ No newline at end of file
+}
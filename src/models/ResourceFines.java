@@ -19,6 +19,16 @@ public class ResourceFines {
 		this.trials = t;
 	}
 	
+	// fines read back from a ModelSnapshot, not written to a file again
+	ResourceFines(int t, Map<Integer, Map<ScreeningResource, Double>> fines){
+		this.trials = t;
+		this.fines = fines;
+	}
+	
+	int getTrials(){
+		return trials;
+	}
+	
 	public void generateFines( String dist, double min, double max, int numTrials, int thisTest, DARMSModel model) throws Exception{
 		// dist: random -- all numbers are random
 		Random dice = new Random();
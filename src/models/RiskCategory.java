@@ -1,15 +1,11 @@
 package models;
 public class RiskCategory implements Comparable<RiskCategory>{
 	private String description;
-	private int id;
-	
-	private static int ID = 1;
+	private ModelIndex owner;
+	private int ordinal;
 	    
 	public RiskCategory(String description){
 		this.description = description;
-		this.id = ID;
-		
-		ID++;
 	}
 	    
 	public String toString(){
@@ -17,7 +13,21 @@ public class RiskCategory implements Comparable<RiskCategory>{
 	}
 	
 	public int id(){
-		return id;
+		return ordinal + 1;
+	}
+	
+	public int ordinal(){
+		return ordinal;
+	}
+	
+	// the index of the model this belongs to, null until it is part of one
+	ModelIndex owner(){
+		return owner;
+	}
+	
+	void setOrdinal(ModelIndex owner, int ordinal){
+		this.owner = owner;
+		this.ordinal = ordinal;
 	}
 	
 	public int compareTo(RiskCategory c){
@@ -30,8 +40,4 @@ public class RiskCategory implements Comparable<RiskCategory>{
 		
 		return -1;
 	}
-	
-	public static void reset(){
-		ID = 1;
-	}
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * A range of the sampled scenarios of a DARMSModel that is regenerated from
+ * the sample numbers whenever it is needed instead of being stored. Every
+ * (flight, sample) pair draws from its own Random seeded with a hash of
+ * (seed, flight, sample), so any scenario can be produced on its own, in any
+ * order and on any thread. Scenario s of a provider is sample firstSample + s
+ * of the model.
+ */
+public class ScenarioProvider implements ScenarioSource {
+	private DARMSModel model;
+	private int firstSample;
+	private int numberScenarios;
+
+	public ScenarioProvider(DARMSModel model, int firstSample, int numberScenarios){
+		this.model = model;
+		this.firstSample = firstSample;
+		this.numberScenarios = numberScenarios;
+	}
+
+	public int size(){
+		return numberScenarios;
+	}
+
+	public int getFirstSample(){
+		return firstSample;
+	}
+
+	public void fill(int first, ScenarioTensor tensor, int offset, int n){
+		if(n == 0){
+			return;
+		}
+
+		if(first < 0 || first + n > numberScenarios){
+			throw new IndexOutOfBoundsException("Scenarios " + first + " to " + (first + n - 1) + " of " + numberScenarios);
+		}
+
+		model.sampleScenarios(firstSample + first, tensor, offset, n);
+	}
+
+	public ScenarioTensor materialize(int first, int n){
+		ScenarioTensor tensor = new ScenarioTensor(model.getIndex(), n);
+		fill(first, tensor, 0, n);
+
+		return tensor;
+	}
+
+	public PassengerDistribution get(int scenario){
+		return materialize(scenario, 1).getScenario(0);
+	}
+
+	// a view that regenerates a scenario on every get, for callers that look at each scenario once
+	public List<PassengerDistribution> asList(){
+		return new AbstractList<PassengerDistribution>(){
+			public PassengerDistribution get(int s){
+				return ScenarioProvider.this.get(s);
+			}
+
+			public int size(){
+				return numberScenarios;
+			}
+		};
+	}
+}
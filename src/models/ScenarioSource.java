@@ -0,0 +1,12 @@
+package models;
+
+/**
+ * Scenarios that can be copied block by block into a ScenarioTensor, either
+ * regenerated from their sample numbers or read back from a ScenarioStore.
+ */
+public interface ScenarioSource {
+	public int size();
+
+	// fills scenarios offset to offset + n - 1 of tensor with scenarios first to first + n - 1, in the calling thread
+	public void fill(int first, ScenarioTensor tensor, int offset, int n);
+}
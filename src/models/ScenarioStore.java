@@ -0,0 +1,223 @@
+package models;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Passenger counts of a large number of scenarios in a memory-mapped file
+ * outside the Java heap. Every scenario takes the same number of bytes, laid
+ * out like a ScenarioTensor, so any scenario can be read directly by its
+ * index; counts are stored in 1, 2 or 4 bytes depending on the largest count
+ * the store has to hold. The file is mapped in segments of whole scenarios,
+ * as a single mapping is limited to 2 GB.
+ */
+public class ScenarioStore implements ScenarioSource {
+	private static final long SEGMENT_BYTES = 1L << 30;
+	private static final int BLOCK_SIZE = 256;
+
+	private ModelIndex index;
+	private File file;
+	private RandomAccessFile data;
+
+	private int numberScenarios;
+	private int scenarioSize;
+	private int width;
+	private int maxCount;
+
+	private int scenariosPerSegment;
+	private MappedByteBuffer[] segments;
+
+	// maxCount bounds every count that will be written, and decides the width of a count
+	public ScenarioStore(ModelIndex index, File file, int numberScenarios, int maxCount) throws IOException{
+		this.index = index;
+		this.file = file;
+		this.numberScenarios = numberScenarios;
+		this.scenarioSize = index.scenarioSize();
+
+		if(maxCount <= 0xFF){
+			width = 1;
+			this.maxCount = 0xFF;
+		}
+		else if(maxCount <= 0xFFFF){
+			width = 2;
+			this.maxCount = 0xFFFF;
+		}
+		else{
+			width = 4;
+			this.maxCount = Integer.MAX_VALUE;
+		}
+
+		long scenarioBytes = (long) scenarioSize * width;
+
+		scenariosPerSegment = (int) Math.max(1, SEGMENT_BYTES / scenarioBytes);
+		segments = new MappedByteBuffer[(numberScenarios + scenariosPerSegment - 1) / scenariosPerSegment];
+
+		data = new RandomAccessFile(file, "rw");
+		data.setLength(numberScenarios * scenarioBytes);
+
+		FileChannel channel = data.getChannel();
+
+		for(int i = 0; i < segments.length; i++){
+			int first = i * scenariosPerSegment;
+			int n = Math.min(scenariosPerSegment, numberScenarios - first);
+
+			segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, first * scenarioBytes, n * scenarioBytes);
+		}
+	}
+
+	public ModelIndex getIndex(){
+		return index;
+	}
+
+	public File getFile(){
+		return file;
+	}
+
+	public int size(){
+		return numberScenarios;
+	}
+
+	// bytes per count
+	public int getWidth(){
+		return width;
+	}
+
+	public int get(int scenario, int w, int f, int c){
+		return read(scenario, index.offset(w, f, c));
+	}
+
+	public void fill(int first, ScenarioTensor tensor, int offset, int n){
+		checkRange(first, n);
+
+		int[] counts = tensor.counts();
+
+		for(int s = 0; s < n; s++){
+			int base = tensor.base(offset + s);
+
+			for(int i = 0; i < scenarioSize; i++){
+				counts[base + i] = read(first + s, i);
+			}
+		}
+	}
+
+	// writes scenarios offset to offset + n - 1 of tensor to scenarios first to first + n - 1
+	public void write(int first, ScenarioTensor tensor, int offset, int n){
+		checkRange(first, n);
+
+		int[] counts = tensor.counts();
+
+		for(int s = 0; s < n; s++){
+			int base = tensor.base(offset + s);
+
+			for(int i = 0; i < scenarioSize; i++){
+				write(first + s, i, counts[base + i]);
+			}
+		}
+	}
+
+	/**
+	 * Copies n scenarios of source, starting with scenario 0, to the store
+	 * starting at first, block by block on a pool of threads.
+	 */
+	public void copy(final ScenarioSource source, final int first, int n, int threads) throws Exception{
+		checkRange(first, n);
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		List<Future<Object>> futures = new ArrayList<Future<Object>>();
+
+		try{
+			for(int from = 0; from < n; from += BLOCK_SIZE){
+				final int blockFrom = from;
+				final int blockSize = Math.min(BLOCK_SIZE, n - from);
+
+				futures.add(pool.submit(new Callable<Object>(){
+					public Object call(){
+						ScenarioTensor block = new ScenarioTensor(index, blockSize);
+
+						source.fill(blockFrom, block, 0, blockSize);
+						write(first + blockFrom, block, 0, blockSize);
+
+						return null;
+					}
+				}));
+			}
+
+			for(Future<Object> future : futures){
+				future.get();
+			}
+		}
+		catch(ExecutionException e){
+			if(e.getCause() instanceof Exception){
+				throw (Exception) e.getCause();
+			}
+
+			throw e;
+		}
+		finally{
+			pool.shutdown();
+		}
+	}
+
+	// writes the mapped pages back to the file and closes it; the store can not be used afterwards
+	public void close() throws IOException{
+		for(MappedByteBuffer segment : segments){
+			segment.force();
+		}
+
+		data.close();
+	}
+
+	private void checkRange(int first, int n){
+		if(n == 0){
+			return;
+		}
+
+		if(first < 0 || n < 0 || first + n > numberScenarios){
+			throw new IndexOutOfBoundsException("Scenarios " + first + " to " + (first + n - 1) + " of " + numberScenarios);
+		}
+	}
+
+	// only absolute gets and puts are used, so threads can share the segments as long as they touch different scenarios
+	private int read(int scenario, int i){
+		MappedByteBuffer segment = segments[scenario / scenariosPerSegment];
+		int position = ((scenario % scenariosPerSegment) * scenarioSize + i) * width;
+
+		if(width == 1){
+			return segment.get(position) & 0xFF;
+		}
+		else if(width == 2){
+			return segment.getShort(position) & 0xFFFF;
+		}
+
+		return segment.getInt(position);
+	}
+
+	private void write(int scenario, int i, int count){
+		if(count < 0 || count > maxCount){
+			throw new IllegalArgumentException("Count " + count + " does not fit into " + width + " bytes");
+		}
+
+		MappedByteBuffer segment = segments[scenario / scenariosPerSegment];
+		int position = ((scenario % scenariosPerSegment) * scenarioSize + i) * width;
+
+		if(width == 1){
+			segment.put(position, (byte) count);
+		}
+		else if(width == 2){
+			segment.putShort(position, (short) count);
+		}
+		else{
+			segment.putInt(position, count);
+		}
+	}
+}
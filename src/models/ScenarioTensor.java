@@ -0,0 +1,69 @@
+package models;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Passenger counts of a set of sampled scenarios packed into one int[],
+ * laid out as [scenario][time window][flight][risk category] using the
+ * ordinals of a ModelIndex.
+ */
+public class ScenarioTensor {
+	private ModelIndex index;
+	private int numberScenarios;
+	private int scenarioSize;
+	private int[] counts;
+
+	public ScenarioTensor(ModelIndex index, int numberScenarios){
+		this.index = index;
+		this.numberScenarios = numberScenarios;
+		this.scenarioSize = index.scenarioSize();
+		this.counts = new int[numberScenarios * scenarioSize];
+	}
+
+	public ModelIndex getIndex(){
+		return index;
+	}
+
+	public int size(){
+		return numberScenarios;
+	}
+
+	public int get(int scenario, int w, int f, int c){
+		return counts[scenario * scenarioSize + index.offset(w, f, c)];
+	}
+
+	public void set(int scenario, int w, int f, int c, int value){
+		counts[scenario * scenarioSize + index.offset(w, f, c)] = value;
+	}
+
+	int[] counts(){
+		return counts;
+	}
+
+	int base(int scenario){
+		return scenario * scenarioSize;
+	}
+
+	public PassengerDistribution getScenario(int scenario){
+		return new PassengerDistribution(this, scenario);
+	}
+
+	public List<PassengerDistribution> asList(){
+		final PassengerDistribution[] views = new PassengerDistribution[numberScenarios];
+
+		for(int s = 0; s < numberScenarios; s++){
+			views[s] = getScenario(s);
+		}
+
+		return new AbstractList<PassengerDistribution>(){
+			public PassengerDistribution get(int s){
+				return views[s];
+			}
+
+			public int size(){
+				return views.length;
+			}
+		};
+	}
+}
@@ -7,19 +7,29 @@ import java.util.Set;
 
 public class ScreeningOperation implements Comparable<ScreeningOperation>{
 	private Set<ScreeningResource> resources;
-	private int id;
-	
-	public static int ID = 1;
+	private ModelIndex owner;
+	private int ordinal;
 	
 	public ScreeningOperation(Set<ScreeningResource> resources){
 		this.resources = resources;
-		this.id = ID;
-		
-		ID++;
 	}
 	    
 	public int getID(){
-		return id;
+		return ordinal + 1;
+	}
+	
+	public int ordinal(){
+		return ordinal;
+	}
+	
+	// the index of the model this belongs to, null until it is part of one
+	ModelIndex owner(){
+		return owner;
+	}
+	
+	void setOrdinal(ModelIndex owner, int ordinal){
+		this.owner = owner;
+		this.ordinal = ordinal;
 	}
 	
 	public double screeningTime(){
@@ -57,7 +67,7 @@ public class ScreeningOperation implements Comparable<ScreeningOperation>{
 			s += "/"  +resourceList.get(i).toString();
 		}
 		
-		s = "O" + id;
+		s = "O" + getID();
 
 		return s;
 	}
@@ -69,8 +79,4 @@ public class ScreeningOperation implements Comparable<ScreeningOperation>{
 		
 		return -1;
 	}
-	
-	public static void reset(){
-		ID = 1;
-	}
 }
\ No newline at end of file
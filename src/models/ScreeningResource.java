@@ -5,21 +5,17 @@ import java.util.Map;
 
 public class ScreeningResource implements Comparable<ScreeningResource> {
 	private String description;
-	private int id;
+	private ModelIndex owner;
+	private int ordinal;
 	private int capacity;
 	private double screeningTime;
 	private Map<RiskCategory, Map<AttackMethod, Double>> effectiveness;
 	
-	private static int ID = 1;
-	
 	public ScreeningResource(String description, int capacity, double screeningTime){
 		this.description = description;
 		this.capacity = capacity;
 		this.screeningTime = screeningTime;
 		this.effectiveness = new HashMap<RiskCategory, Map<AttackMethod, Double>>();
-		
-		this.id = ID;
-		ID++;
 	}
 	    
 	public String toString(){
@@ -27,7 +23,21 @@ public class ScreeningResource implements Comparable<ScreeningResource> {
 	}
 	
 	public int id(){
-		return id;
+		return ordinal + 1;
+	}
+	
+	public int ordinal(){
+		return ordinal;
+	}
+	
+	// the index of the model this belongs to, null until it is part of one
+	ModelIndex owner(){
+		return owner;
+	}
+	
+	void setOrdinal(ModelIndex owner, int ordinal){
+		this.owner = owner;
+		this.ordinal = ordinal;
 	}
 	
 	public int capacity(){
@@ -79,8 +89,4 @@ public class ScreeningResource implements Comparable<ScreeningResource> {
 			return 1;
 		}
 	}
-	
-	public static void reset(){
-		ID = 1;
-	}
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Dense lookup tables for the screening operations of one DARMSModel, indexed
+ * by ModelIndex ordinals: the detection probability of every operation for
+ * every risk category and attack method, and which operations use which
+ * screening resources. ScreeningOperation.effectiveness multiplies over a
+ * set of resources and does two map lookups per resource, so the solvers read
+ * these tables instead.
+ */
+public class ScreeningTables {
+	private int numCategories;
+	private int numAttackMethods;
+	private int numResources;
+
+	// effectiveness[(o * C + c) * A + m]
+	private double[] effectiveness;
+
+	// bit o * R + r is set when operation o uses resource r
+	private BitSet incidence;
+
+	// resourceOperations[r] lists the operations that use resource r, ascending
+	private int[][] resourceOperations;
+
+	public ScreeningTables(ModelIndex index){
+		int numOperations = index.numScreeningOperations();
+
+		numCategories = index.numRiskCategories();
+		numAttackMethods = index.numAttackMethods();
+		numResources = index.numScreeningResources();
+
+		effectiveness = new double[numOperations * numCategories * numAttackMethods];
+		incidence = new BitSet(numOperations * numResources);
+
+		for(ScreeningOperation o : index.getScreeningOperations()){
+			for(RiskCategory c : index.getRiskCategories()){
+				for(AttackMethod m : index.getAttackMethods()){
+					effectiveness[(o.ordinal() * numCategories + c.ordinal()) * numAttackMethods + m.ordinal()] = o.effectiveness(c, m);
+				}
+			}
+
+			for(ScreeningResource r : index.getScreeningResources()){
+				if(o.getResources().contains(r)){
+					incidence.set(o.ordinal() * numResources + r.ordinal());
+				}
+			}
+		}
+
+		resourceOperations = new int[numResources][];
+
+		for(int r = 0; r < numResources; r++){
+			List<Integer> operations = new ArrayList<Integer>();
+
+			for(int o = 0; o < numOperations; o++){
+				if(uses(o, r)){
+					operations.add(o);
+				}
+			}
+
+			resourceOperations[r] = new int[operations.size()];
+
+			for(int i = 0; i < operations.size(); i++){
+				resourceOperations[r][i] = operations.get(i);
+			}
+		}
+	}
+
+	// arguments are ModelIndex ordinals
+	public double effectiveness(int o, int c, int m){
+		return effectiveness[(o * numCategories + c) * numAttackMethods + m];
+	}
+
+	public double effectiveness(ScreeningOperation o, RiskCategory c, AttackMethod m){
+		return effectiveness(o.ordinal(), c.ordinal(), m.ordinal());
+	}
+
+	public boolean uses(int o, int r){
+		return incidence.get(o * numResources + r);
+	}
+
+	public boolean uses(ScreeningOperation o, ScreeningResource r){
+		return uses(o.ordinal(), r.ordinal());
+	}
+
+	// the returned array is shared and must not be modified
+	public int[] getOperations(int r){
+		return resourceOperations[r];
+	}
+}
@@ -0,0 +1,97 @@
+package solvers;
+
+import models.AttackMethod;
+import models.DARMSModel;
+import models.ModelIndex;
+import models.PostScreeningResource;
+import models.RiskCategory;
+import models.ScreeningOperation;
+import models.ScreeningTables;
+
+/**
+ * Finds, per risk category, the attack methods that every screening operation
+ * detects at least as well as some other attack method.
+ *
+ * Coverage is non-negative, so on a flight where being covered is at least as
+ * good for the defender the coverage row of a dominated method is implied by
+ * the row of the method dominating it, and only the rows of undominated
+ * methods can bind. Methods with equal effectiveness vectors dominate each
+ * other, and the one with the lowest ordinal is kept.
+ */
+public class AttackMethodDominance {
+	private int numAttackMethods;
+
+	// dominated[c * A + m]
+	private boolean[] dominated;
+	private int numDominated;
+
+	// with postScreening the effectiveness of the post-screening resources is compared as well
+	public AttackMethodDominance(DARMSModel model, boolean postScreening){
+		ModelIndex index = model.getIndex();
+		ScreeningTables tables = model.getScreeningTables();
+
+		int numCategories = index.numRiskCategories();
+		int numOperations = index.numScreeningOperations();
+		int numPostScreening = postScreening ? model.getPostScreeningResources().size() : 0;
+
+		numAttackMethods = index.numAttackMethods();
+		dominated = new boolean[numCategories * numAttackMethods];
+		numDominated = 0;
+
+		for(RiskCategory c : index.getRiskCategories()){
+			double[][] vectors = new double[numAttackMethods][numOperations + numPostScreening];
+
+			for(AttackMethod m : index.getAttackMethods()){
+				double[] vector = vectors[m.ordinal()];
+
+				for(ScreeningOperation o : index.getScreeningOperations()){
+					vector[o.ordinal()] = tables.effectiveness(o, c, m);
+				}
+
+				if(postScreening){
+					int j = numOperations;
+
+					for(PostScreeningResource p : model.getPostScreeningResources().keySet()){
+						vector[j++] = p.effectiveness(m);
+					}
+				}
+			}
+
+			for(int m = 0; m < numAttackMethods; m++){
+				for(int n = 0; n < numAttackMethods; n++){
+					if(n != m && dominates(vectors[n], vectors[m], n < m)){
+						dominated[c.ordinal() * numAttackMethods + m] = true;
+						numDominated++;
+						break;
+					}
+				}
+			}
+		}
+	}
+
+	// whether weaker is detected at most as well as stronger by every operation, ties going to weaker if it comes first
+	private static boolean dominates(double[] weaker, double[] stronger, boolean first){
+		boolean strict = false;
+
+		for(int i = 0; i < weaker.length; i++){
+			if(weaker[i] > stronger[i]){
+				return false;
+			}
+
+			if(weaker[i] < stronger[i]){
+				strict = true;
+			}
+		}
+
+		return strict || first;
+	}
+
+	public boolean isDominated(RiskCategory c, AttackMethod m){
+		return dominated[c.ordinal() * numAttackMethods + m.ordinal()];
+	}
+
+	// number of dominated (category, method) pairs
+	public int numDominated(){
+		return numDominated;
+	}
+}
@@ -0,0 +1,219 @@
+package solvers;
+
+import ilog.concert.IloException;
+import ilog.concert.IloLinearNumExpr;
+import ilog.concert.IloNumVar;
+import ilog.concert.IloNumVarType;
+import ilog.concert.IloRange;
+import ilog.cplex.IloCplex;
+
+/**
+ * LpBackend on top of IloCplex. Requires the CPLEX native library to be
+ * loaded, see DARMSHelper.loadLibrariesCplex.
+ */
+public class CplexBackend implements LpBackend {
+	private IloCplex cplex;
+
+	private IloNumVar[] columns;
+	private int numColumns;
+
+	private IloRange[] rows;
+	private int numRows;
+
+	// scratch buffer used to hand a row to addTerms
+	private IloNumVar[] rowVars;
+
+	private boolean barrier;
+
+	public CplexBackend(String name) throws IloException{
+		cplex = new IloCplex();
+		cplex.setName(name);
+
+		columns = new IloNumVar[64];
+		rows = new IloRange[64];
+		rowVars = new IloNumVar[64];
+	}
+
+	public IloCplex getCplex(){
+		return cplex;
+	}
+
+	public void useBarrier() throws IloException{
+		cplex.setParam(IloCplex.IntParam.RootAlg, IloCplex.Algorithm.Barrier);
+		cplex.setParam(IloCplex.IntParam.BarCrossAlg, IloCplex.Algorithm.None);
+		barrier = true;
+	}
+
+	public void setThreads(int threads) throws IloException{
+		cplex.setParam(IloCplex.IntParam.Threads, threads);
+	}
+
+	public void useDualSimplex() throws IloException{
+		cplex.setParam(IloCplex.IntParam.RootAlg, IloCplex.Algorithm.Dual);
+		barrier = false;
+	}
+
+	public int addColumns(int n, double[] lb, double[] ub, boolean[] integer, String[] names) throws IloException{
+		IloNumVarType[] types = new IloNumVarType[n];
+
+		for(int j = 0; j < n; j++){
+			types[j] = integer[j] ? IloNumVarType.Int : IloNumVarType.Float;
+		}
+
+		IloNumVar[] vars = names != null ? cplex.numVarArray(n, lb, ub, types, names) : cplex.numVarArray(n, lb, ub, types);
+
+		cplex.add(vars);
+
+		if(numColumns + n > columns.length){
+			IloNumVar[] newColumns = new IloNumVar[Math.max(2 * columns.length, numColumns + n)];
+			System.arraycopy(columns, 0, newColumns, 0, numColumns);
+			columns = newColumns;
+		}
+
+		System.arraycopy(vars, 0, columns, numColumns, n);
+
+		int first = numColumns;
+
+		numColumns += n;
+
+		return first;
+	}
+
+	private IloLinearNumExpr linearExpr(int[] cols, double[] coefs, int size) throws IloException{
+		if(size > rowVars.length){
+			rowVars = new IloNumVar[Math.max(2 * rowVars.length, size)];
+		}
+
+		for(int i = 0; i < size; i++){
+			rowVars[i] = columns[cols[i]];
+		}
+
+		IloLinearNumExpr expr = cplex.linearNumExpr();
+
+		expr.addTerms(rowVars, coefs, 0, size);
+
+		return expr;
+	}
+
+	public int addRow(double lb, int[] cols, double[] coefs, int size, double ub, String name) throws IloException{
+		IloRange range = cplex.addRange(lb <= -INFINITY ? -Double.MAX_VALUE : lb, linearExpr(cols, coefs, size), ub >= INFINITY ? Double.MAX_VALUE : ub, name);
+
+		if(numRows == rows.length){
+			IloRange[] newRows = new IloRange[2 * rows.length];
+			System.arraycopy(rows, 0, newRows, 0, numRows);
+			rows = newRows;
+		}
+
+		rows[numRows] = range;
+
+		return numRows++;
+	}
+
+	public int addRows(RowBlock block) throws IloException{
+		IloRange[] ranges = new IloRange[block.numRows()];
+		double[] coefs = new double[64];
+
+		for(int i = 0; i < ranges.length; i++){
+			int from = block.rowStart(i);
+			int size = block.rowEnd(i) - from;
+
+			if(size > rowVars.length){
+				rowVars = new IloNumVar[Math.max(2 * rowVars.length, size)];
+			}
+
+			if(size > coefs.length){
+				coefs = new double[Math.max(2 * coefs.length, size)];
+			}
+
+			for(int k = 0; k < size; k++){
+				rowVars[k] = columns[block.col(from + k)];
+				coefs[k] = block.coef(from + k);
+			}
+
+			IloLinearNumExpr expr = cplex.linearNumExpr();
+
+			expr.addTerms(rowVars, coefs, 0, size);
+
+			double lb = block.lb(i) <= -INFINITY ? -Double.MAX_VALUE : block.lb(i);
+			double ub = block.ub(i) >= INFINITY ? Double.MAX_VALUE : block.ub(i);
+
+			ranges[i] = cplex.range(lb, expr, ub, block.name(i));
+		}
+
+		// one call hands the whole block to CPLEX
+		cplex.add(ranges);
+
+		if(numRows + ranges.length > rows.length){
+			IloRange[] newRows = new IloRange[Math.max(2 * rows.length, numRows + ranges.length)];
+			System.arraycopy(rows, 0, newRows, 0, numRows);
+			rows = newRows;
+		}
+
+		System.arraycopy(ranges, 0, rows, numRows, ranges.length);
+
+		int first = numRows;
+
+		numRows += ranges.length;
+
+		return first;
+	}
+
+	public void setObjective(boolean maximize, int[] cols, double[] coefs, int size) throws IloException{
+		if(maximize){
+			cplex.addMaximize(linearExpr(cols, coefs, size));
+		}
+		else{
+			cplex.addMinimize(linearExpr(cols, coefs, size));
+		}
+	}
+
+	public boolean solve() throws IloException{
+		cplex.solve();
+
+		return cplex.isPrimalFeasible();
+	}
+
+	public double getObjectiveValue() throws IloException{
+		return cplex.getObjValue();
+	}
+
+	public double getValue(int col) throws IloException{
+		return cplex.getValue(columns[col]);
+	}
+
+	public double[] getValues(int firstCol, int n) throws IloException{
+		return cplex.getValues(columns, firstCol, n);
+	}
+
+	public double getDual(int row) throws IloException{
+		return cplex.getDual(rows[row]);
+	}
+
+	public int getNumColumns(){
+		return numColumns;
+	}
+
+	public int getNumRows(){
+		return numRows;
+	}
+
+	public long getNumNonzeros(){
+		return cplex.getNNZs();
+	}
+
+	public long getIterations(){
+		return barrier ? cplex.getNbarrierIterations64() : cplex.getNiterations64();
+	}
+
+	public void exportModel(String filename) throws IloException{
+		cplex.exportModel(filename);
+	}
+
+	public void writeSolution(String filename) throws IloException{
+		cplex.writeSolution(filename);
+	}
+
+	public void end(){
+		cplex.end();
+	}
+}
@@ -2,44 +2,68 @@ package solvers;
 
 import java.io.File;
 import java.io.FileWriter;
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
+import models.ActivityIndex;
 import models.AttackMethod;
 import models.DARMSModel;
+import models.FlightAggregation;
+import models.ModelIndex;
 import models.PassengerDistribution;
 import models.Flight;
 import models.PayoffStructure;
 import models.RiskCategory;
 import models.ScreeningOperation;
 import models.ScreeningResource;
-import ilog.concert.*;
-import ilog.cplex.*;
+import models.ScreeningTables;
+
+import org.apache.commons.math3.stat.interval.ConfidenceInterval;
+
+import utilities.ColumnarWriter;
+import utilities.CsvWriter;
 
 public class DARMSMarginalSolver{
 	private DARMSModel model;
-	private IloCplex cplex;
+	private LpBackend lp;
 	
-	private Map<RiskCategory, IloNumVar> dMap;
-	private Map<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, IloNumVar>>>> aMap;
+	// first LP column of each variable block:
+	// d = s_theta, column dIndex(c)
+	// overflow, column ovIndex(w, r) for all but the last of currentTimeWindows
+	// m = slope, column mIndex(w, i, f, c, t)
+	// b = y-intercept, column bIndex(w, f, c, t)
+	// w and i are positions in currentTimeWindows, the rest are ModelIndex ordinals
+	private int dStart;
+	private int ovStart;
+	private int mStart;
+	private int bStart;
 	
-		private Map<Integer, HashMap<ScreeningResource, IloNumVar>> ovMap;
+	// offset of the first column of each (w, f, c) and (w, i, f, c) slice in its block, -1 if it has no variables
+	private int[] bSlices;
+	private int[] mSlices;
 	
-	// m = slope = Map(w, i, c(f, theta), t, CPLEX variable)
-	private Map<Integer, Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>>> mMap;
+	// flights with at least one slice in each position of currentTimeWindows
+	private List<List<Flight>> windowFlights;
 	
-	// b = y-intercept = Map(w, c(f, theta), t, CPLEX variable)
-	private Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>> bMap;
+	private int numFlights;
+	private int numCategories;
+	private int numOperations;
+	private int numResources;
 
 	// where we will store the answers
-	private Map<Integer, Map<ScreeningResource, Double>>  defenderOverflowStrategy;	
-	private Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> defenderScreeningStrategyb;
-	private Map<Integer,Map< Integer, Map<Flight,Map<RiskCategory,Map<ScreeningOperation,Double>>>>> defenderScreeningStrategym;
+	private DefenderStrategy strategy;
 	private Map<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>> riskCategoryCoverage;
 	private Map<RiskCategory, Double> defenderPayoffs;
 	private Map<RiskCategory, Double> adversaryPayoffs;
@@ -47,15 +71,56 @@ public class DARMSMarginalSolver{
 	
 	private Map<Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>, Double> marginalBounds;
 	
-	private List<IloRange> constraints;
+	private LinearRowBuilder row;
+	
+	// values of model.outputFormat
+	public static final String OUTPUT_CSV = "csv";
+	public static final String OUTPUT_GZIP = "gzip";
+	public static final String OUTPUT_COLUMNAR = "columnar";
+	
+	// families of per-sample rows, see addSampleRows
+	private static final int PROBABILITY_ROWS = 0;
+	private static final int THROUGHPUT_ROWS = 1;
+	private static final int COVERAGE_ROWS = 2;
+	private static final int NUM_FAMILIES = 3;
+	private int buildThreads;
+	
+	// constraint generation state, see SampleRows.keep
+	private static final int INITIAL_SCENARIOS = 10;
+	private static final double ROW_TOLERANCE = 1e-6;
+	private int initialScenarios;
+	private int firstSample;
+	private double[] separationValues;
+	// rows already in the LP of each (family, time window, sample)
+	private BitSet[] addedRows;
+	private int rowCounter;
+	private int rowsAdded;
+	private int rowsPruned;
+	private int rowsDominated;
+	private ScenarioPruner pruner;
+	private AttackMethodDominance dominance;
+	
+	// see MarginalPresolve, null without model.presolve
+	private MarginalPresolve presolve;
+	private int rowsPresolved;
+	private int rangedRows;
+	private int boundedSlices;
+	private int slopesRemoved;
+	private boolean boundedPayoffs;
+	private long solveIterations;
 	
-	private static final double MM = Double.MAX_VALUE;
+	// bound of the free variables
+	private static final double MM = LpBackend.INFINITY;
 	
 	private List<Integer> allTimeWindows;
 	private List<Integer> currentTimeWindows;
 	
 	private List<PassengerDistribution> xiDistribution;
 	
+	// slices with passengers in the samples the LP is built from, see initAggregation
+	private ActivityIndex activity;
+	private FlightAggregation aggregation;
+	
 	private PayoffStructure payoffStructure;
 	
 	private boolean zeroSum;
@@ -64,6 +129,7 @@ public class DARMSMarginalSolver{
 	private boolean naive;
 
 	private double expEpsilon;
+	private ConfidenceInterval expEpsilonInterval;
 
 	private double solverTime;
 	
@@ -134,29 +200,83 @@ public class DARMSMarginalSolver{
 		}
 	}
 	
-	private void loadProblem(List<Integer> timeWindows) throws IloException{
+	// with AGGREGATE the LP only sees the leader of each flight class, holding the passengers of the class
+	private void initAggregation(){
+		if(activity != null){
+			return;
+		}
 		
-		if( model.hasOverflow ){
-			ovMap = new HashMap<Integer, HashMap<ScreeningResource, IloNumVar>>();
+		if(model.aggregate){
+			aggregation = new FlightAggregation(model, payoffStructure);
+			
+			xiDistribution = aggregation.aggregate(model.getXiTensor()).asList();
+			activity = aggregation.aggregate(model.getActivityIndex());
+			
+			System.out.println("Flight aggregation: " + model.getFlights().size() + " flights in " + aggregation.numClasses() + " classes");
+		}
+		else{
+			activity = model.getActivityIndex();
+		}
+	}
+	
+	// gives every flight of a class the coverage of its leader; DefenderStrategy does the same for the strategy
+	private void expandClasses(){
+		if(aggregation == null){
+			return;
 		}
 		
-		// sMap = new HashMap<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>>();
-		// REMOVED
-		// pMap = new HashMap<Integer, Map<Flight, Map<PostScreeningResource, IloNumVar>>>();
-		dMap = new HashMap<RiskCategory, IloNumVar>();
+		for(Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>> ct : riskCategoryCoverage.values()){
+			for(Map<Flight, Map<AttackMethod, Double>> cf : ct.values()){
+				expandClasses(cf);
+			}
+		}
+	}
+	
+	private <V> void expandClasses(Map<Flight, V> byFlight){
+		for(Flight leader : new ArrayList<Flight>(byFlight.keySet())){
+			if(!aggregation.isLeader(leader)){
+				continue;
+			}
+			
+			for(Flight f : aggregation.getMembers(leader)){
+				byFlight.put(f, byFlight.get(leader));
+			}
+		}
+	}
+	
+	private boolean isActive(int t, Flight f, RiskCategory c){
+		return activity == null || activity.isActive(model.getIndex().timeWindow(t), f.ordinal(), c.ordinal());
+	}
+	
+	private void loadProblem(List<Integer> timeWindows) throws Exception{
+		ModelIndex index = model.getIndex();
 		
-		// ADDED
-		mMap = new HashMap<Integer, Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>>>();
-		bMap = new HashMap<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>>();
-		// END ADD
+		numFlights = index.numFlights();
+		numCategories = index.numRiskCategories();
+		numOperations = index.numScreeningOperations();
+		numResources = index.numScreeningResources();
 		
-		cplex = new IloCplex();
-		cplex.setName("DARMS");
-		cplex.setParam(IloCplex.IntParam.RootAlg, 4);
-		cplex.setParam(IloCplex.IntParam.BarCrossAlg, -1);
-		// cplex.setOut(null);
+		lp = LpBackends.create(model.lpBackend, "DARMS");
+		
+		if(lp instanceof CplexBackend){
+			// re-solves after adding rows warm start from the dual simplex basis
+			if(model.constraintGeneration){
+				((CplexBackend) lp).useDualSimplex();
+			}
+			else{
+				((CplexBackend) lp).useBarrier();
+			}
+		}
 		
 		this.currentTimeWindows = timeWindows;
+		this.row = new LinearRowBuilder(lp);
+		
+		if(buildThreads == 0){
+			buildThreads = model.buildThreads > 0 ? model.buildThreads : Runtime.getRuntime().availableProcessors();
+		}
+		
+		presolve = model.presolve ? new MarginalPresolve(model, payoffStructure, timeWindows, xiDistribution) : null;
+		
 		System.out.println("Initializing Variables...");
 		initVars();
 		System.out.println("Initializing Constraints...");
@@ -166,112 +286,564 @@ public class DARMSMarginalSolver{
 		System.out.println("Begin Solving...");
 	}
 	
-	private void initVars() throws IloException{
-		List<IloNumVar> varList = new ArrayList<IloNumVar>();
+	private int bIndex(int w, int f, int c, int o){
+		return bStart + bSlices[(w * numFlights + f) * numCategories + c] + o;
+	}
+	
+	private int mIndex(int w, int i, int f, int c, int o){
+		return mStart + mSlices[(pair(w, i) * numFlights + f) * numCategories + c] + o;
+	}
+	
+	// (w, i) pairs with i < w are numbered row by row
+	private static int pair(int w, int i){
+		return (w * (w - 1)) / 2 + i;
+	}
+	
+	private boolean hasSlice(int w, int f, int c){
+		return bSlices[(w * numFlights + f) * numCategories + c] >= 0;
+	}
+	
+	private boolean hasSlope(int w, int i, int f, int c){
+		return mSlices[(pair(w, i) * numFlights + f) * numCategories + c] >= 0;
+	}
+	
+	private int ovIndex(int w, int r){
+		return ovStart + w * numResources + r;
+	}
+	
+	private int dIndex(int c){
+		return dStart + c;
+	}
+	
+	// a (w, f, c) slice gets variables if the activity index has passengers in it;
+	// m(w, i, f, c) also needs passengers in (i, f, c), as it only ever multiplies their count
+	private void initSlices(){
+		int numWindows = currentTimeWindows.size();
 		
-		// ADDED: mMap
-		int counter = 0;
-		for(int t : currentTimeWindows){
-			mMap.put(t, new HashMap<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>>());
-			
-			List<Integer> subListTimeWindows = currentTimeWindows.subList(0, counter);
-			counter = counter + 1;
-			
-			for(int it : subListTimeWindows){
-				mMap.get(t).put(it, new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>());
+		boolean[] categoryActive = new boolean[numCategories];
+		
+		bSlices = layoutSlices(categoryActive);
+		windowFlights = new ArrayList<List<Flight>>();
+		
+		int numDense = 0;
+		
+		for(int w = 0; w < numWindows; w++){
+			List<Flight> flights = new ArrayList<Flight>();
 			
-				for(Flight f : model.getFlights(t)){
-					mMap.get(t).get(it).put(f, new HashMap<RiskCategory, Map<ScreeningOperation, IloNumVar>>());
+			for(Flight f : model.getIndex().getFlights()){
+				boolean active = false;
 				
-					for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-						mMap.get(t).get(it).get(f).put(c, new HashMap<ScreeningOperation, IloNumVar>());
-					
-						for(ScreeningOperation o : model.getScreeningOperations()){
-							IloNumVar var = cplex.numVar(-MM, MM, IloNumVarType.Float, "m_t" + t + "_i" + it + "_f" +  f.id() + "_c" + c.id() + "_o" + o.getID());
-					
-							mMap.get(t).get(it).get(f).get(c).put(o, var);
-							varList.add(var);
+				for(RiskCategory c : model.getIndex().getRiskCategories()){
+					if(hasSlice(w, f.ordinal(), c.ordinal())){
+						active = true;
+						
+						if(!categoryActive[c.ordinal()]){
+							numDense++;
 						}
 					}
 				}
+				
+				if(active){
+					flights.add(f);
+				}
 			}
-		}
-			
-		// ADDED: bMap
 			
+			windowFlights.add(flights);
+		}
+		
+		mSlices = new int[pair(numWindows, 0) * numFlights * numCategories];
+		int next = 0;
+		slopesRemoved = 0;
+		
+		for(int w = 0; w < numWindows; w++){
+			for(int i = 0; i < w; i++){
+				for(int f = 0; f < numFlights; f++){
+					for(int c = 0; c < numCategories; c++){
+						int slice = (pair(w, i) * numFlights + f) * numCategories + c;
+						
+						if(hasSlice(w, f, c) && hasSlice(i, f, c) && (presolve == null || presolve.isSlopeUsed(i, f, c))){
+							mSlices[slice] = next;
+							next += numOperations;
+						}
+						else{
+							if(hasSlice(w, f, c) && hasSlice(i, f, c)){
+								slopesRemoved++;
+							}
+							
+							mSlices[slice] = -1;
+						}
+					}
+				}
+			}
+		}
+		
+		System.out.println("Active slices: " + (countSlices(bSlices) - numDense) + " of " + bSlices.length + " (t, f, c), "
+				+ countSlices(mSlices) + " of " + mSlices.length + " (t, i, f, c)" + (numDense > 0 ? ", " + numDense + " kept for categories without passengers" : ""));
+	}
+	
+	// offset of the b variables of every (w, f, c) slice of the current windows, -1 for slices without
+	// variables; a category without passengers in these windows keeps all its slices, or nothing would bound its d
+	private int[] layoutSlices(boolean[] categoryActive){
+		int numWindows = currentTimeWindows.size();
+		
 		for(int t : currentTimeWindows){
-			bMap.put(t, new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>());
-			
-			for(Flight f : model.getFlights(t)){
-				bMap.get(t).put(f, new HashMap<RiskCategory, Map<ScreeningOperation, IloNumVar>>());
-				
+			for(Flight f : model.getIndex().getFlights()){
 				for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-					bMap.get(t).get(f).put(c, new HashMap<ScreeningOperation, IloNumVar>());
-					
-					for(ScreeningOperation o : model.getScreeningOperations()){
-						IloNumVar var = cplex.numVar(-MM, MM, IloNumVarType.Float, "b_t" + t + "_f" +  f.id() + "_c" + c.id() + "_o" + o.getID());
+					if(isActive(t, f, c)){
+						categoryActive[c.ordinal()] = true;
+					}
+				}
+			}
+		}
+		
+		int[] slices = new int[numWindows * numFlights * numCategories];
+		int next = 0;
+		
+		for(int w = 0; w < numWindows; w++){
+			int t = currentTimeWindows.get(w);
+			
+			for(Flight f : model.getIndex().getFlights()){
+				for(RiskCategory c : model.getIndex().getRiskCategories()){
+					int slice = (w * numFlights + f.ordinal()) * numCategories + c.ordinal();
 					
-						bMap.get(t).get(f).get(c).put(o, var);
-						varList.add(var);
+					if(isActive(t, f, c) || !categoryActive[c.ordinal()]){
+						slices[slice] = next;
+						next += numOperations;
+					}
+					else{
+						slices[slice] = -1;
 					}
 				}
 			}
 		}
 		
+		return slices;
+	}
+	
+	private static int countSlices(int[] slices){
+		int count = 0;
 		
+		for(int slice : slices){
+			if(slice >= 0){
+				count++;
+			}
+		}
 		
-		// ADDITION: Initialize overflow variables
-				// For all the time windows but the last...
-		if( model.hasOverflow){		
-			for(int i = 0; i < currentTimeWindows.size() - 1; i++ ){
-				int t = currentTimeWindows.get(i);
+		return count;
+	}
+	
+	private void initVars() throws Exception{
+		int numWindows = currentTimeWindows.size();
+		
+		initSlices();
+		
+		int numB = countSlices(bSlices) * numOperations;
+		int numM = countSlices(mSlices) * numOperations;
+		int numOv = model.hasOverflow ? Math.max(numWindows - 1, 0) * numResources : 0;
+		int numD = numCategories;
+		
+		int numVars = numM + numB + numOv + numD;
+		
+		double[] lb = new double[numVars];
+		double[] ub = new double[numVars];
+		boolean[] integer = new boolean[numVars];
+		String[] names = new String[numVars];
+		
+		ModelIndex index = model.getIndex();
+		
+		// ADDED: m
+		int v = 0;
+		for(int w = 0; w < numWindows; w++){
+			int t = currentTimeWindows.get(w);
+			for(int i = 0; i < w; i++){
+				int it = currentTimeWindows.get(i);
+				for(int f = 0; f < numFlights; f++){
+					for(int c = 0; c < numCategories; c++){
+						if(!hasSlope(w, i, f, c)){
+							continue;
+						}
+						for(int o = 0; o < numOperations; o++){
+							names[v++] = "m_t" + t + "_i" + it + "_f" + index.getFlight(f).id() + "_c" + index.getRiskCategory(c).id() + "_o" + index.getScreeningOperation(o).getID();
+						}
+					}
+				}
+			}
+		}
+		
+		// ADDED: b
+		for(int w = 0; w < numWindows; w++){
+			int t = currentTimeWindows.get(w);
+			for(int f = 0; f < numFlights; f++){
+				for(int c = 0; c < numCategories; c++){
+					if(!hasSlice(w, f, c)){
+						continue;
+					}
+					for(int o = 0; o < numOperations; o++){
+						names[v++] = "b_t" + t + "_f" + index.getFlight(f).id() + "_c" + index.getRiskCategory(c).id() + "_o" + index.getScreeningOperation(o).getID();
+					}
+				}
+			}
+		}
+		
+		// ADDITION: overflow variables for all the time windows but the last
+		for(int w = 0; w < numOv / Math.max(numResources, 1); w++){
+			for(int r = 0; r < numResources; r++){
+				names[v++] = "o_t" + currentTimeWindows.get(w) + "_r" + index.getScreeningResource(r).id();
+			}
+		}
+		
+		// Kept: d which is the same as s_theta
+		for(int c = 0; c < numCategories; c++){
+			names[v++] = "d_c" + index.getRiskCategory(c).id();
+		}
+		
+		for(int j = 0; j < numVars; j++){
+			lb[j] = -MM;
+			ub[j] = MM;
+		}
+		
+		for(int j = numM + numB; j < numM + numB + numOv; j++){
+			lb[j] = 0.0;
+		}
+		
+		boundedSlices = 0;
+		boundedPayoffs = false;
+		
+		if(presolve != null){
+			for(int w = 0; w < numWindows; w++){
+				for(int f = 0; f < numFlights; f++){
+					for(int c = 0; c < numCategories; c++){
+						if(!hasSlice(w, f, c) || !presolve.hasSingletonRows(w, f, c)){
+							continue;
+						}
+						
+						boundedSlices++;
+						
+						for(int o = 0; o < numOperations; o++){
+							int j = numM + bSlices[(w * numFlights + f) * numCategories + c] + o;
+							
+							lb[j] = presolve.isBFixed() ? 1.0 : 0.0;
+							ub[j] = 1.0;
+						}
+					}
+				}
+			}
+			
+			// finite bounds on d only help the barrier; the simplex backends gain nothing from them
+			boundedPayoffs = lp instanceof CplexBackend && !model.constraintGeneration;
+			
+			for(int c = 0; c < numCategories && boundedPayoffs; c++){
+				lb[numM + numB + numOv + c] = presolve.dLower(c);
+				ub[numM + numB + numOv + c] = presolve.dUpper(c);
+			}
+		}
+		
+		mStart = lp.addColumns(numVars, lb, ub, integer, names);
+		bStart = mStart + numM;
+		ovStart = bStart + numB;
+		dStart = ovStart + numOv;
+	}
+	
+	private void initConstraints() throws Exception{
+		System.out.println("Initializing Probability Constraints...");
+		sumDefenderScreeningActionRow();
+		
+		// with constraint generation only the rows of the first samples are added up front
+		initialScenarios = model.constraintGeneration ? Math.min(INITIAL_SCENARIOS, xiDistribution.size()) : xiDistribution.size();
+		firstSample = 0;
+		addedRows = new BitSet[NUM_FAMILIES * currentTimeWindows.size() * xiDistribution.size()];
+		rowCounter = 0;
+		rowsPruned = 0;
+		rowsDominated = 0;
+		rowsPresolved = 0;
+		rangedRows = 0;
+		dominance = new AttackMethodDominance(model, false);
+		
+		if(model.scenarioPruning){
+			long start = System.currentTimeMillis();
+			pruner = new ScenarioPruner(model, activity, currentTimeWindows, xiDistribution);
+			System.out.println("Scenario pruning: " + pruner.getNumSliceRedundant() + " duplicate (t, f, c) histories, "
+					+ pruner.getNumThroughputRedundant() + " dominated throughput loads in " + (System.currentTimeMillis() - start) + " ms");
+		}
+		else{
+			pruner = null;
+		}
+		
+		System.out.println("Initializing Probability, Throughput and Utility Constraints...");
+		addSampleRows();
+		
+		System.out.println("Attack method dominance removed " + rowsDominated + " coverage rows (" + dominance.numDominated() + " dominated (c, m) pairs)");
+		
+		if(pruner != null){
+			System.out.println("Scenario pruning saved " + rowsPruned + " of " + rowCounter + " per-sample rows");
+		}
+		
+		if(presolve != null){
+			System.out.println("Presolve: " + rangedRows + " ranged probability rows instead of " + 2 * rangedRows + ", " + rowsPresolved + " singleton rows replaced by bounds on "
+					+ boundedSlices + " (t, f, c) slices of b" + (presolve.isBFixed() ? " fixed at 1" : "") + ", " + slopesRemoved * numOperations + " unused slope columns removed" + (boundedPayoffs ? ", d bounded by the payoff ranges" : ""));
+		}
+	}
+	
+	// the per-sample rows of one family for one (time window, sample), built into a block of their own
+	private class SampleRows implements Callable<SampleRows> {
+		int family;
+		int w;
+		int s;
+		BitSet added;
+		
+		RowBlock block = new RowBlock();
+		LinearRowBuilder row = new LinearRowBuilder(block);
+		
+		// block row of each screening resource, in the order of model.getScreeningResources(), -1 if left out
+		int[] resourceRows;
+		
+		int numRows;
+		int rowsAdded;
+		int rowsPruned;
+		int rowsDominated;
+		int rowsPresolved;
+		int rangedRows;
+		
+		SampleRows(int family, int w, int s, BitSet added){
+			this.family = family;
+			this.w = w;
+			this.s = s;
+			this.added = added;
+		}
+		
+		public SampleRows call() throws Exception{
+			if(family == PROBABILITY_ROWS){
+				probabilityRows(this);
+			}
+			else if(family == THROUGHPUT_ROWS){
+				throughputRows(this);
+			}
+			else{
+				coverageRows(this);
+			}
+			
+			row = null;
+			
+			return this;
+		}
+		
+		// decides whether the row in the builder goes into the LP; the rows of a (family, w, s) are
+		// numbered in the order they are enumerated, so each is added at most once
+		boolean keep(boolean redundant, double lb, double ub){
+			int id = numRows++;
+			boolean keep;
+			
+			if(redundant){
+				keep = false;
 				
-				// ...Create a map of resources to overflow value...
-				HashMap<ScreeningResource, IloNumVar> hm = new HashMap<ScreeningResource, IloNumVar>();
-				ovMap.put(t, hm);
+				if(separationValues == null && s >= firstSample){
+					rowsPruned++;
+				}
+			}
+			else if(separationValues == null){
+				keep = s >= firstSample && s < initialScenarios;
+			}
+			else if(added.get(id)){
+				keep = false;
+			}
+			else{
+				double activity = row.activity(separationValues);
 				
-				// ...For all the screening resources...
-				for(ScreeningResource r : model.getScreeningResources().keySet() ){				
-					IloNumVar var = cplex.numVar(0.0, MM, IloNumVarType.Float, "o_t" + t + "_r" + r.id());
+				keep = activity > ub + ROW_TOLERANCE * (1 + Math.abs(ub)) || activity < lb - ROW_TOLERANCE * (1 + Math.abs(lb));
+			}
+			
+			if(keep){
+				added.set(id);
+				rowsAdded++;
+			}
+			
+			return keep;
+		}
+		
+		void dominated(){
+			if(separationValues == null && s >= firstSample){
+				rowsDominated++;
+			}
+		}
+		
+		// a row left out for the bounds the presolve put on its only variable, counted if the initial pass would have added it
+		void presolved(boolean redundant){
+			if(!redundant && separationValues == null && s >= firstSample && s < initialScenarios){
+				rowsPresolved++;
+			}
+		}
+		
+		void ranged(){
+			if(separationValues == null){
+				rangedRows++;
+			}
+		}
+	}
+	
+	/**
+	 * Builds the probability, throughput and coverage rows of every (time window, sample) as
+	 * separate blocks on buildThreads threads and adds the kept rows to the LP in the order of a
+	 * sequential build: family, time window, (resource,) sample. The blocks of one (family, time
+	 * window) are added in one call and dropped before the next window is built, so only one
+	 * window of blocks is held besides the LP. Samples before firstSample are only revisited by
+	 * the separation rounds, which reuse the numbering of the rows within each block.
+	 */
+	private void addSampleRows() throws Exception{
+		int numWindows = currentTimeWindows.size();
+		int numSamples = xiDistribution.size();
+		int numResources = model.getScreeningResources().size();
+		int from = separationValues == null ? firstSample : 0;
+		
+		long start = System.currentTimeMillis();
+		RowBlock rows = new RowBlock();
+		int numBlocks = 0;
+		int numRows = 0;
+		long numTerms = 0;
+		int maxRows = 0;
+		
+		ExecutorService pool = buildThreads > 1 && numSamples - from > 1 ? Executors.newFixedThreadPool(Math.min(buildThreads, numSamples - from)) : null;
+		
+		try{
+			for(int family = 0; family < NUM_FAMILIES; family++){
+				for(int w = 0; w < numWindows; w++){
+					List<SampleRows> tasks = new ArrayList<SampleRows>();
+					
+					for(int s = from; s < numSamples; s++){
+						int i = (family * numWindows + w) * numSamples + s;
 						
-							ovMap.get(t).put(r, var);
-							varList.add(var);
+						if(addedRows[i] == null){
+							addedRows[i] = new BitSet();
 						}
+						
+						tasks.add(new SampleRows(family, w, s, addedRows[i]));
+					}
+					
+					List<SampleRows> window = invokeAll(tasks, pool);
+					
+					rows.clear();
+					
+					if(family == THROUGHPUT_ROWS){
+						for(int r = 0; r < numResources; r++){
+							for(SampleRows sample : window){
+								if(sample.resourceRows[r] >= 0){
+									rows.append(sample.block, sample.resourceRows[r]);
+								}
+							}
+						}
+					}
+					else{
+						for(SampleRows sample : window){
+							rows.append(sample.block);
+						}
+					}
+					
+					for(SampleRows sample : window){
+						rowCounter += sample.numRows;
+						rowsAdded += sample.rowsAdded;
+						rowsPruned += sample.rowsPruned;
+						rowsDominated += sample.rowsDominated;
+						rowsPresolved += sample.rowsPresolved;
+						rangedRows += sample.rangedRows;
+					}
+					
+					if(rows.numRows() > 0){
+						lp.addRows(rows);
+					}
+					
+					numBlocks += window.size();
+					numRows += rows.numRows();
+					numTerms += rows.numTerms();
+					maxRows = Math.max(maxRows, rows.numRows());
+				}
+			}
+		}
+		finally{
+			if(pool != null){
+				pool.shutdown();
 			}
 		}
-		// END ADD
 		
-		// Kept: dmap which is the same as s_theta
-		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			IloNumVar var1 = cplex.numVar(-MM, MM, IloNumVarType.Float, "d_c" + c.id());
-				
-			dMap.put(c, var1);
+		if(separationValues == null){
+			System.out.println("Sample rows: " + numRows + " rows, " + numTerms + " nonzeros from " + numBlocks + " blocks on "
+					+ buildThreads + " threads in " + (System.currentTimeMillis() - start) + " ms, at most " + maxRows + " rows per window");
+		}
+	}
+	
+	// runs the tasks on pool, or in this thread if pool is null, and returns their results in order
+	private static <T> List<T> invokeAll(List<? extends Callable<T>> tasks, ExecutorService pool) throws Exception{
+		List<T> results = new ArrayList<T>();
+		
+		if(pool == null){
+			for(Callable<T> task : tasks){
+				results.add(task.call());
+			}
 			
-			varList.add(var1);
+			return results;
 		}
 		
-		IloNumVar[] v = new IloNumVar[varList.size()];
-
-		cplex.add(varList.toArray(v));
+		try{
+			for(Future<T> future : pool.invokeAll(tasks)){
+				results.add(future.get());
+			}
+		}
+		catch(ExecutionException e){
+			if(e.getCause() instanceof Exception){
+				throw (Exception) e.getCause();
+			}
+			
+			throw e;
+		}
+		
+		return results;
 	}
 	
-	private void initConstraints() throws IloException{
-		constraints = new ArrayList<IloRange>();
-		System.out.println("Initializing Probability Constraints...");
-		sumDefenderScreeningActionRow();
-		System.out.println("Initializing Throughput Constraints...");
-		sumDefenderScreeningThroughputRow();
-		System.out.println("Initializing Utility Constraints...");
-		sumDefenderCoverageRow();
+	private boolean isSliceRedundant(int w, Flight f, RiskCategory c, int s){
+		return pruner != null && pruner.isSliceRedundant(w, f.ordinal(), c.ordinal(), s);
+	}
+	
+	// adds the per-sample rows violated by the current solution and returns how many
+	private int separateScenarioRows() throws Exception{
+		separationValues = lp.getValues(0, lp.getNumColumns());
+		rowCounter = 0;
+		rowsAdded = 0;
+		
+		addSampleRows();
+		
+		separationValues = null;
+		
+		return rowsAdded;
+	}
+	
+	// solves the LP, and with constraint generation re-solves until no sample row is violated
+	private boolean solveProblem() throws Exception{
+		boolean feasible = lp.solve();
+		int round = 0;
+		solveIterations = lp.getIterations();
+		
+		while(feasible && model.constraintGeneration){
+			int added = separateScenarioRows();
+			round++;
+			
+			System.out.println("Constraint generation round " + round + ": " + added + " violated rows added, " + lp.getNumRows() + " rows in total");
+			
+			if(added == 0){
+				break;
+			}
+			
+			feasible = lp.solve();
+			solveIterations += lp.getIterations();
+		}
+		
+		return feasible;
 	}
 	
-	private void initObjective() throws IloException{
+	private void initObjective() throws Exception{
 		Map<RiskCategory, Double> adversaryDistribution = model.getAdversaryDistribution();
 		
-		IloNumExpr expr = cplex.constant(0);
+		row.clear();
 		
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			expr = cplex.sum(expr, cplex.prod(dMap.get(c), adversaryDistribution.get(c)));
+			row.add(dIndex(c.ordinal()), adversaryDistribution.get(c));
 		}
 		
 		// ADDITION: subtract fine times overflow from obj func for all the time windows but the last
@@ -279,262 +851,533 @@ public class DARMSMarginalSolver{
 			for(int i = 0; i < currentTimeWindows.size() - 1; i++ ){
 				int t = currentTimeWindows.get(i);
 				for(ScreeningResource r : model.getScreeningResources().keySet()){
-					expr = cplex.sum(expr, cplex.negative(cplex.prod(ovMap.get(t).get(r), model.getResourceFines().get(t).get(r))));
+					row.add(ovIndex(i, r.ordinal()), -model.getResourceFines().get(t).get(r));
 				}
 			}
 		}
 		
-		cplex.addMaximize(expr);
+		row.setObjective(true);
 	}
 	
 	public void solve() throws Exception{
-		defenderScreeningStrategym = new HashMap<Integer, Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>>();
-		defenderScreeningStrategyb = new HashMap<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>();
+		List<RiskCategory> riskCategories = new ArrayList<RiskCategory>(model.getAdversaryDistribution().keySet());
+		Collections.sort(riskCategories);
+		
+		initAggregation();
+		
+		if(decomposed){
+			clearSolution();
+			solveDecomposed(riskCategories);
+		}
+		else{
+			loadProblem(allTimeWindows);
+			// writeProblem("DARMS.lp");
+			
+			solveLoadedProblem();
+		}
+		
+		expandClasses();
+	}
+	
+	/**
+	 * Solves again after model.extendSamples has added samples. If the new samples put passengers
+	 * in no new (t, f, c) slice, the LP of the last solve keeps its columns and only the rows of
+	 * the new samples are added, so the backend can start from its last basis. Otherwise, and in
+	 * the decomposed mode, the LP is rebuilt from scratch.
+	 */
+	public void solveExtended() throws Exception{
+		int oldSamples = xiDistribution.size();
+		
+		xiDistribution = model.getXiDistribution();
+		activity = null;
+		aggregation = null;
+		
+		if(lp == null || decomposed){
+			solve();
+			return;
+		}
+		
+		initAggregation();
+		
+		if(!Arrays.equals(layoutSlices(new boolean[numCategories]), bSlices)){
+			System.out.println("New samples add (t, f, c) slices, rebuilding the LP");
+			lp.end();
+			solve();
+			return;
+		}
+		
+		if(presolve != null && !presolve.coversSamples(xiDistribution, oldSamples)){
+			System.out.println("New samples have passengers where the presolve removed slopes, rebuilding the LP");
+			lp.end();
+			solve();
+			return;
+		}
+		
+		long start = System.currentTimeMillis();
+		int numRows = lp.getNumRows();
+		
+		// the initial pass only takes samples from firstSample on; with constraint
+		// generation the new rows are left to the separation rounds
+		firstSample = oldSamples;
+		initialScenarios = model.constraintGeneration ? oldSamples : xiDistribution.size();
+		addedRows = new BitSet[NUM_FAMILIES * currentTimeWindows.size() * xiDistribution.size()];
+		rowCounter = 0;
+		rowsPruned = 0;
+		rowsDominated = 0;
+		rowsPresolved = 0;
+		rangedRows = 0;
+		
+		if(model.scenarioPruning){
+			pruner = new ScenarioPruner(model, activity, currentTimeWindows, xiDistribution);
+		}
+		
+		addSampleRows();
+		
+		System.out.println("Samples " + oldSamples + " to " + xiDistribution.size() + ": " + (lp.getNumRows() - numRows) + " rows added in " + (System.currentTimeMillis() - start) + " ms"
+				+ (pruner != null ? ", " + rowsPruned + " pruned" : ""));
+		
+		solveLoadedProblem();
+		expandClasses();
+	}
+	
+	private void clearSolution(){
+		strategy = new DefenderStrategy(model.getIndex(), aggregation, model.strategyTolerance);
 		riskCategoryCoverage = new HashMap<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>>();
 		defenderPayoffs = new HashMap<RiskCategory, Double>();
 		adversaryPayoffs = new HashMap<RiskCategory, Double>();
 		adversaryStrategies = new HashMap<RiskCategory, Map<Integer, Map<Flight, AttackMethod>>>();
+	}
+	
+	// solves the LP over all time windows and reads the solution
+	private void solveLoadedProblem() throws Exception{
+		clearSolution();
 		
-		List<RiskCategory> riskCategories = new ArrayList<RiskCategory>(model.getAdversaryDistribution().keySet());
-		Collections.sort(riskCategories);
+		long start2 = System.currentTimeMillis();
+		boolean feasible = solveProblem();
+		double solverRuntime = (System.currentTimeMillis() - start2) / 1000.0;
+		this.solverTime = solverRuntime;
 		
-		if(decomposed){
-			for(int t : allTimeWindows){
-				List<Integer> timeWindow = new ArrayList<Integer>();
-				
-				timeWindow.add(t);
-				
-				loadProblem(timeWindow);
-				
-				cplex.solve();
-				
-				if(!cplex.isPrimalFeasible()){
-					throw new Exception("Infeasible. Capacity constraints exceeded. Time Window: " + t);
+		System.out.println("LP: " + lp.getNumRows() + " rows, " + lp.getNumNonzeros() + " nonzeros, solved in " + solveIterations + " iterations");
+		
+		// writeSolution("DARMS2.sol");
+		
+		if(!feasible){
+			writeProblem("Infeasible.lp");
+			System.out.println( "This is infeasible");
+			//writeProblem("Infeasible.sol.txt");
+			throw new Exception("Infeasible. Capacity constraints exceeded.");
+		}
+		
+		readStrategy();
+		riskCategoryCoverage = calculateRiskCategoryCoverage();
+		defenderPayoffs = getDefenderPayoffs();
+	}
+	
+	// solution of one time window of the decomposed solve
+	private static class WindowSolution {
+		int t;
+		DefenderStrategy strategy;
+		Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>> coverage;
+		Map<RiskCategory, Double> dPayoffs;
+		Map<RiskCategory, Map<Integer, Map<Flight, AttackMethod>>> aStrategies;
+		Map<RiskCategory, Double> aPayoffs;
+		long buildTime;
+		long solveTime;
+		int numRows;
+		DARMSMarginalSolver solver;
+	}
+	
+	// every time window is solved by its own solver instance on a bounded pool,
+	// the windows are then merged in order exactly as a sequential loop would
+	private void solveDecomposed(List<RiskCategory> riskCategories) throws Exception{
+		int cores = Runtime.getRuntime().availableProcessors();
+		int workers = Math.min(model.decomposedWorkers > 0 ? model.decomposedWorkers : cores, allTimeWindows.size());
+		final int solverThreads = Math.max(1, cores / workers);
+		final int lastWindow = allTimeWindows.get(allTimeWindows.size() - 1);
+		
+		long start = System.currentTimeMillis();
+		
+		ExecutorService pool = Executors.newFixedThreadPool(workers);
+		List<Future<WindowSolution>> futures = new ArrayList<Future<WindowSolution>>();
+		List<WindowSolution> solutions = new ArrayList<WindowSolution>();
+		
+		boolean solved = false;
+		
+		try{
+			for(final int t : allTimeWindows){
+				futures.add(pool.submit(new Callable<WindowSolution>(){
+					public WindowSolution call() throws Exception{
+						return solveWindow(t, solverThreads, t == lastWindow);
+					}
+				}));
+			}
+			
+			for(Future<WindowSolution> future : futures){
+				solutions.add(future.get());
+			}
+			
+			solved = true;
+		}
+		catch(ExecutionException e){
+			if(e.getCause() instanceof Exception){
+				throw (Exception) e.getCause();
+			}
+			
+			throw e;
+		}
+		finally{
+			if(solved){
+				pool.shutdown();
+			}
+			else{
+				releaseWindows(pool, futures);
+			}
+		}
+		
+		long windowTime = 0;
+		
+		for(WindowSolution solution : solutions){
+			int t = solution.t;
+			
+			strategy.copyWindow(solution.strategy, model.getIndex().timeWindow(t));
+			riskCategoryCoverage.put(t, solution.coverage);
+			
+			for(RiskCategory c : riskCategories){
+				if(!adversaryPayoffs.containsKey(c) || solution.aPayoffs.get(c) > adversaryPayoffs.get(c)){
+					defenderPayoffs.put(c, solution.dPayoffs.get(c));
+					adversaryPayoffs.put(c, solution.aPayoffs.get(c));
+					adversaryStrategies.put(c, solution.aStrategies.get(c));
 				}
+			}
+			
+			System.out.println("Time window " + t + ": build " + solution.buildTime + " ms, solve " + solution.solveTime + " ms, " + solution.numRows + " rows");
+			windowTime += solution.buildTime + solution.solveTime;
+			
+			// like the sequential loop, the solver is left holding the LP of the last window
+			if(solution.solver != null){
+				adoptProblem(solution.solver);
+			}
+		}
+		
+		System.out.println("Decomposed solve: " + solutions.size() + " time windows on " + workers + " workers in " + (System.currentTimeMillis() - start) + " ms (" + windowTime + " ms summed over windows)");
+	}
+	
+	// after a window failed: drops the windows not started yet, waits for the running ones, which release their own LP,
+	// and releases the LP of the last window if it was already handed over
+	private static void releaseWindows(ExecutorService pool, List<Future<WindowSolution>> futures) throws InterruptedException{
+		pool.shutdownNow();
+		
+		while(!pool.awaitTermination(1, TimeUnit.MINUTES)){
+			System.out.println("Waiting for the running time windows to finish...");
+		}
+		
+		for(Future<WindowSolution> future : futures){
+			if(!future.isDone() || future.isCancelled()){
+				continue;
+			}
+			
+			try{
+				WindowSolution solution = future.get();
 				
-				defenderScreeningStrategym.put(t, getDefenderScreeningStrategym().get(t));
-				defenderScreeningStrategyb.put(t, getDefenderScreeningStrategyb().get(t));
-				
-				if( model.hasOverflow){
-					defenderOverflowStrategy.put(t,  (HashMap<ScreeningResource, Double>) getDefenderOverflowStrategy().get(t) );
-				}
-				riskCategoryCoverage.put(t, calculateRiskCategoryCoverage().get(t));
-				
-				Map<RiskCategory, Double> dPayoffs = getDefenderPayoffs();
-				Map<RiskCategory, Map<Integer, Map<Flight, AttackMethod>>> aStrategies = getAdversaryStrategies();
-				Map<RiskCategory, Double> aPayoffs = getAdversaryPayoffs();
-				
-				for(RiskCategory c : riskCategories){
-					if(!adversaryPayoffs.containsKey(c) || aPayoffs.get(c) > adversaryPayoffs.get(c)){
-						defenderPayoffs.put(c, dPayoffs.get(c));
-						adversaryPayoffs.put(c, aPayoffs.get(c));
-						adversaryStrategies.put(c, aStrategies.get(c));
-					}
+				if(solution.solver != null){
+					solution.solver.cleanUp();
 				}
 			}
+			catch(ExecutionException e){
+				// this window failed too and released its LP itself
+			}
 		}
-		else{
-			loadProblem(allTimeWindows);
-			// writeProblem("DARMS.lp");
+	}
+	
+	private WindowSolution solveWindow(int t, int solverThreads, boolean keepProblem) throws Exception{
+		DARMSMarginalSolver solver = new DARMSMarginalSolver(model, payoffStructure, zeroSum, false, flightByFlight, naive);
+		solver.xiDistribution = xiDistribution;
+		solver.activity = activity;
+		solver.aggregation = aggregation;
+		
+		List<Integer> timeWindow = new ArrayList<Integer>();
+		
+		timeWindow.add(t);
+		
+		WindowSolution solution = new WindowSolution();
+		solution.t = t;
+		
+		// the windows already run in parallel
+		solver.buildThreads = solverThreads;
+		
+		try{
+			long start = System.currentTimeMillis();
+			solver.loadProblem(timeWindow);
 			
+			if(solver.lp instanceof CplexBackend){
+				((CplexBackend) solver.lp).setThreads(solverThreads);
+			}
 			
-			long start2 = System.currentTimeMillis();
-			cplex.solve();
-			double solverRuntime = (System.currentTimeMillis() - start2) / 1000.0;
-			this.solverTime = solverRuntime;
+			solution.buildTime = System.currentTimeMillis() - start;
 			
-			// writeSolution("DARMS2.sol");
+			start = System.currentTimeMillis();
 			
-			if(!cplex.isPrimalFeasible()){
-				writeProblem("Infeasible.lp");
-				System.out.println( "This is infeasible");
-				//writeProblem("Infeasible.sol.txt");
-				throw new Exception("Infeasible. Capacity constraints exceeded.");
+			if(!solver.solveProblem()){
+				throw new Exception("Infeasible. Capacity constraints exceeded. Time Window: " + t);
 			}
 			
-			defenderScreeningStrategym = getDefenderScreeningStrategym();
-			defenderScreeningStrategyb = getDefenderScreeningStrategyb();
+			solution.solveTime = System.currentTimeMillis() - start;
+			solution.numRows = solver.lp.getNumRows();
+			
+			solution.strategy = solver.readStrategy();
 			
-			if( model.hasOverflow ){
-				defenderOverflowStrategy = getDefenderOverflowStrategy();
+			solver.riskCategoryCoverage = solver.calculateRiskCategoryCoverage();
+			solution.coverage = solver.riskCategoryCoverage.get(t);
+			
+			solution.dPayoffs = solver.getDefenderPayoffs();
+			solution.aStrategies = solver.getAdversaryStrategies();
+			solution.aPayoffs = solver.getAdversaryPayoffs();
+			
+			if(keepProblem){
+				solution.solver = solver;
+			}
+			
+			return solution;
+		}
+		finally{
+			// the LP is released here unless the solution hands it to the caller
+			if(solution.solver == null && solver.lp != null){
+				solver.cleanUp();
 			}
-			riskCategoryCoverage = calculateRiskCategoryCoverage();
-			defenderPayoffs = getDefenderPayoffs();
 		}
 	}
 	
-	private void sumDefenderCoverageRow() throws IloException{
-		int counter = 0;
-		IloNumExpr expr = cplex.constant(0);
-		IloNumExpr expr2 = cplex.constant(0);
-		IloNumExpr expr3 = cplex.constant(0);
+	private void adoptProblem(DARMSMarginalSolver solver){
+		lp = solver.lp;
+		row = solver.row;
+		currentTimeWindows = solver.currentTimeWindows;
+		
+		dStart = solver.dStart;
+		ovStart = solver.ovStart;
+		mStart = solver.mStart;
+		bStart = solver.bStart;
+		bSlices = solver.bSlices;
+		mSlices = solver.mSlices;
+		windowFlights = solver.windowFlights;
+		
+		numFlights = solver.numFlights;
+		numCategories = solver.numCategories;
+		numOperations = solver.numOperations;
+		numResources = solver.numResources;
+	}
+	
+	// d + (defUncov - defCov) * effectiveness * (sum_k m * xi_k + b) <= defUncov for every c, f and attack method
+	private void coverageRows(SampleRows rows) throws Exception{
+		ScreeningTables tables = model.getScreeningTables();
+		LinearRowBuilder row = rows.row;
+		int w = rows.w;
+		int t = currentTimeWindows.get(w);
+		int[] subListIndices = timeWindowIndices(currentTimeWindows.subList(0, w));
+		PassengerDistribution xi = xiDistribution.get(rows.s);
 		
-		for(int t : currentTimeWindows){
-			List<Integer> subListTimeWindows = currentTimeWindows.subList(0, counter);
-			counter = counter + 1;
-			for( PassengerDistribution xi : xiDistribution ){
-				for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-					for(Flight f : model.getFlights(t)){
-						for(AttackMethod m : model.getAttackMethods()){
-							
-							// ADDED
-							
-							expr = expr3;
-							for(ScreeningOperation o : model.getScreeningOperations()){
-								expr2 = expr3;
-								for(int i : subListTimeWindows){
-									// sum ( m * xi ) over all prev time window
-									expr2 = cplex.sum(expr2, cplex.prod(mMap.get(t).get(i).get(f).get(c).get(o), xi.get(i, f, c)));
-									// System.out.println( (payoffStructure.defUncov(f) - payoffStructure.defCov(f))*( o.effectiveness(c, m)) * xi.get(i, f, c) );
-								}
-								// Plus b_{f,c,team}^{current window}
-								expr2 = cplex.sum(expr2, bMap.get(t).get(f).get(c).get(o) );
-								// Times effectiveness
-								// QUESTION: why is effectiveness negative?
-								expr2 = cplex.prod(expr2, o.effectiveness(c, m));
-								// This product is added to the sum over all teams
-								expr = cplex.sum(expr, expr2);
+		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
+			for(Flight f : windowFlights.get(w)){
+				if(!hasSlice(w, f.ordinal(), c.ordinal())){
+					continue;
+				}
+				
+				double payoffGap = payoffStructure.defUncov(f) - payoffStructure.defCov(f);
+				
+				for(AttackMethod m : model.getAttackMethods()){
+					// implied by the row of a less detectable method when coverage does not hurt the defender
+					if(payoffGap <= 0 && dominance.isDominated(c, m)){
+						rows.dominated();
+						continue;
+					}
+					
+					// d + (defUncov - defCov) * sum over teams of effectiveness * (sum_k m * xi_k + b)
+					row.clear();
+					row.add(dIndex(c.ordinal()), 1.0);
+					
+					for(ScreeningOperation o : model.getScreeningOperations()){
+						double coef = payoffGap * tables.effectiveness(o.ordinal(), c.ordinal(), m.ordinal());
+						
+						for(int k = 0; k < subListIndices.length; k++){
+							if(hasSlope(w, k, f.ordinal(), c.ordinal())){
+								row.add(mIndex(w, k, f.ordinal(), c.ordinal(), o.ordinal()), coef * xi.count(subListIndices[k], f.ordinal(), c.ordinal()));
 							}
-							
-							expr = cplex.sum(dMap.get(c), cplex.prod(expr, payoffStructure.defUncov(f) - payoffStructure.defCov(f)));
-							//cplex.add(cplex.le(expr, f.getDefUncovPayoff(), "DC" + t + "C" + c.id() + "F" + f.id() + "M" + m.id()));
-							cplex.add(cplex.le(expr, payoffStructure.defUncov(f), "DEFCOVt=" + t + "c=" + c.id() + "f=" + f.id() + "m=" + m.id() +"xi=" + xi.toString() ));
 						}
+						row.add(bIndex(w, f.ordinal(), c.ordinal(), o.ordinal()), coef);
+					}
+					
+					if(rows.keep(isSliceRedundant(w, f, c, rows.s), -LpBackend.INFINITY, payoffStructure.defUncov(f))){
+						row.addLe(payoffStructure.defUncov(f), "DEFCOVt=" + t + "c=" + c.id() + "f=" + f.id() + "m=" + m.id() +"xi=" + xi.toString());
 					}
 				}
 			}
 		}
 	}
 	
-	private void sumDefenderScreeningActionRow() throws IloException{
+	private void sumDefenderScreeningActionRow() throws Exception{
+		RowBlock block = new RowBlock();
+		LinearRowBuilder row = new LinearRowBuilder(block);
+		
 		// ADDED: changed to set all slope intercepts' sums over teams to 1, and to set the sum of slopes = 0
 		Collections.sort( currentTimeWindows );
 		int counter = 0;
 		
-		IloNumExpr expr2 = cplex.constant(0);
-		IloNumExpr expr = cplex.constant(0);
-		IloNumExpr expr3 = cplex.constant(0);
-		
 		for(int t : currentTimeWindows){
-			for(Flight f : model.getFlights(t)){
+			int w = counter;
+			for(Flight f : windowFlights.get(w)){
 				for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-					expr = expr3;
-					for(ScreeningOperation o : model.getScreeningOperations()){
-						expr = cplex.sum(expr, bMap.get(t).get(f).get(c).get(o));
+					if(!hasSlice(w, f.ordinal(), c.ordinal())){
+						continue;
 					}
-						
-					for(int i : currentTimeWindows.subList(0, counter)){
-						expr2 = expr3;
+					for(int i = 0; i < w; i++){
+						if(!hasSlope(w, i, f.ordinal(), c.ordinal())){
+							continue;
+						}
+						row.clear();
 						for(ScreeningOperation o2 : model.getScreeningOperations()){
-							expr2 = cplex.sum(expr2, mMap.get(t).get(i).get(f).get(c).get(o2));
+							row.add(mIndex(w, i, f.ordinal(), c.ordinal(), o2.ordinal()), 1.0);
 						}
-						cplex.add(cplex.eq(expr2, 0.0, "MSUMZERO"));
+						row.addEq(0.0, "MSUMZERO");
+					}
+					
+					// the presolve fixes b at 1
+					if(presolve != null && presolve.isBFixed()){
+						continue;
+					}
+					
+					row.clear();
+					for(ScreeningOperation o : model.getScreeningOperations()){
+						row.add(bIndex(w, f.ordinal(), c.ordinal(), o.ordinal()), 1.0);
 					}
-					cplex.add(cplex.eq(expr, 1.0, "BSUM1"));
+					row.addEq(1.0, "BSUM1");
 				}
 			}
 			counter = counter + 1;
 		}
+		
+		lp.addRows(block);
+	}
 	
-		// ADDED: enforce screening strategy to be between 0 and 1
-		counter = 0;
-		// For all w
-		for(int t : currentTimeWindows){
-			// For all possible xi
-			for( PassengerDistribution xi : xiDistribution ){
-				// For all flights
-				for(Flight f : model.getFlights(t)){
-					// For all thetas
-					for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-						// For all teams
-						for(ScreeningOperation o : model.getScreeningOperations()){
-							expr = cplex.constant(0);
-							for(int i : currentTimeWindows.subList(0, counter)){
-								expr = cplex.sum(expr, cplex.prod(mMap.get(t).get(i).get(f).get(c).get(o), xi.get(i, f, c)));
-							}
-							expr = cplex.sum(expr, bMap.get(t).get(f).get(c).get(o));
-							cplex.add(cplex.le(expr, 1, "LESSTHAN1_T"));
-							cplex.add(cplex.ge(expr, 0, "GREATERTHAN0_T"));
-							
+	// ADDED: enforce screening strategy to be between 0 and 1
+	private void probabilityRows(SampleRows rows) throws Exception{
+		LinearRowBuilder row = rows.row;
+		int w = rows.w;
+		int[] subListIndices = timeWindowIndices(currentTimeWindows.subList(0, w));
+		PassengerDistribution xi = xiDistribution.get(rows.s);
+		
+		// For all flights
+		for(Flight f : windowFlights.get(w)){
+			// For all thetas
+			for(RiskCategory c : model.getAdversaryDistribution().keySet()){
+				if(!hasSlice(w, f.ordinal(), c.ordinal())){
+					continue;
+				}
+				// For all teams
+				for(ScreeningOperation o : model.getScreeningOperations()){
+					row.clear();
+					boolean singleton = true;
+					for(int k = 0; k < subListIndices.length; k++){
+						if(hasSlope(w, k, f.ordinal(), c.ordinal())){
+							int count = xi.count(subListIndices[k], f.ordinal(), c.ordinal());
+							row.add(mIndex(w, k, f.ordinal(), c.ordinal(), o.ordinal()), count);
+							singleton = singleton && count == 0;
+						}
+					}
+					row.add(bIndex(w, f.ordinal(), c.ordinal(), o.ordinal()), 1.0);
+					
+					boolean redundant = isSliceRedundant(w, f, c, rows.s);
+					
+					if(presolve == null){
+						if(rows.keep(redundant, -LpBackend.INFINITY, 1)){
+							row.addLe(1, "LESSTHAN1_T");
 						}
+						if(rows.keep(redundant, 0, LpBackend.INFINITY)){
+							row.addGe(0, "GREATERTHAN0_T");
+						}
+					}
+					// the bounds of b are the row itself
+					else if(singleton && presolve.hasSingletonRows(w, f.ordinal(), c.ordinal())){
+						rows.presolved(redundant);
+					}
+					else if(rows.keep(redundant, 0, 1)){
+						row.addRange(0, 1, "PROBABILITY_T");
+						rows.ranged();
 					}
 				}
 			}
-			counter = counter + 1;
 		}
-		
-		
-	
 	}
 	
-	private void sumDefenderScreeningThroughputRow() throws IloException{
-		// ADDED: Changed from pMap to linear equation times uncertainty
-		boolean firstRound = true;
-		boolean lastRound = false;
-		int prevt = 0;
-		int counter1 = 0;		
-		int counter = 0;		
+	// ADDED: Changed from pMap to linear equation times uncertainty
+	private void throughputRows(SampleRows rows) throws Exception{
 		Map<ScreeningResource, Integer> screeningResources = model.getScreeningResources();
-		IloNumExpr expr = cplex.constant(0);
-
-		for(int t : currentTimeWindows){
-			List<Integer> subListTimeWindows = currentTimeWindows.subList(0, counter);
-			counter = counter + 1;
-			for( ScreeningResource r : screeningResources.keySet() ){
-				for( PassengerDistribution xi : xiDistribution ){
-					expr = cplex.constant(0);
-					for(Flight f : model.getFlights(t)){
-						for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-							for(ScreeningOperation o : model.getScreeningOperations()){
-								if(o.getResources().contains(r)){
-									for(int i : subListTimeWindows){
-										expr = cplex.sum(expr, cplex.prod( cplex.prod(mMap.get(t).get(i).get(f).get(c).get(o), xi.get(i, f, c)), xi.get(t, f, c)));
-									}
-									expr = cplex.sum(expr, cplex.prod( bMap.get(t).get(f).get(c).get(o), xi.get(t, f, c)) );
-								}
+		ScreeningTables tables = model.getScreeningTables();
+		LinearRowBuilder row = rows.row;
+		int w = rows.w;
+		int t = currentTimeWindows.get(w);
+		int[] subListIndices = timeWindowIndices(currentTimeWindows.subList(0, w));
+		int tw = model.getIndex().timeWindow(t);
+		PassengerDistribution xi = xiDistribution.get(rows.s);
+		
+		rows.resourceRows = new int[screeningResources.size()];
+		int j = 0;
+		
+		for( ScreeningResource r : screeningResources.keySet() ){
+			row.clear();
+			for(Flight f : windowFlights.get(w)){
+				for(RiskCategory c : model.getAdversaryDistribution().keySet()){
+					if(!hasSlice(w, f.ordinal(), c.ordinal())){
+						continue;
+					}
+					int xt = xi.count(tw, f.ordinal(), c.ordinal());
+					for(int o : tables.getOperations(r.ordinal())){
+						for(int k = 0; k < subListIndices.length; k++){
+							if(hasSlope(w, k, f.ordinal(), c.ordinal())){
+								row.add(mIndex(w, k, f.ordinal(), c.ordinal(), o), (double) xi.count(subListIndices[k], f.ordinal(), c.ordinal()) * xt);
 							}
 						}
+						row.add(bIndex(w, f.ordinal(), c.ordinal(), o), xt);
 					}
-					
-					
-					if( model.hasOverflow){
-						// ADDED overflow constraints for all time windows, resources
-						if( firstRound ){
-							// If it is the first time window, then don't include overflow from previous round
-							expr = cplex.sum(expr, cplex.negative(ovMap.get(t).get(r)));
-						} else if( lastRound ) {
-							// If it is the last time window, then don't include overflow from this round
-							expr = cplex.sum(expr, ovMap.get(prevt).get(r));
-							
-						} else {
-							// Otherwise, include negative overflow from this round and
-							// positive overflow from previous round.
-							expr = cplex.sum(expr, ovMap.get(prevt).get(r));
-							expr = cplex.sum(expr, cplex.negative(ovMap.get(t).get(r)));
-						}
-					}	
-					double capacity = r.capacity() * screeningResources.get(r);	
-					cplex.add(cplex.le(expr, capacity, "THRUt=" + t + "r=" + r.id() +"xi=" + xi.toString()));
+				}
+			}
+			
+			
+			if( model.hasOverflow){
+				// ADDED overflow constraints for all time windows, resources
+				if( w > 0 ){
+					// Unless it is the first time window, include positive overflow from previous round
+					row.add(ovIndex(w - 1, r.ordinal()), 1.0);
+				}
+				if( w < currentTimeWindows.size() - 1 ){
+					// Unless it is the last time window, include negative overflow from this round
+					row.add(ovIndex(w, r.ordinal()), -1.0);
 				}
 			}	
-			counter1 = counter1 + 1;
+			double capacity = r.capacity() * screeningResources.get(r);	
+			rows.resourceRows[j] = -1;
 			
-			if( firstRound ){
-				firstRound = false;
-			}
-			if( counter == (currentTimeWindows.size() - 1)){
-				lastRound = true;
+			if(rows.keep(pruner != null && pruner.isThroughputRedundant(w, rows.s), -LpBackend.INFINITY, capacity)){
+				rows.resourceRows[j] = row.addLe(capacity, "THRUt=" + t + "r=" + r.id() +"xi=" + xi.toString());
 			}
-			prevt = t;
+			j++;
+		}
+	}
+	
+	private int[] timeWindowIndices(List<Integer> timeWindows){
+		int[] indices = new int[timeWindows.size()];
+		
+		for(int k = 0; k < indices.length; k++){
+			indices[k] = model.getIndex().timeWindow(timeWindows.get(k));
 		}
+		
+		return indices;
 	}
 	
-	public void writeProblem(String filename) throws IloException{
-		cplex.exportModel(filename);
+	public void writeProblem(String filename) throws Exception{
+		lp.exportModel(filename);
 	}
 	
-	public void writeSolution(String filename) throws IloException{
-		cplex.writeSolution(filename);
+	public void writeSolution(String filename) throws Exception{
+		lp.writeSolution(filename);
 	}
 	
 	public double getDefenderPayoff(){
@@ -549,39 +1392,108 @@ public class DARMSMarginalSolver{
 		return defenderPayoff;
 	}
 	
-	public Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> getDefenderScreeningStrategyb() throws IloException{
-		Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> defenderScreeningStrategyb = new HashMap<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>();
-				
-		for(int t : currentTimeWindows){
-			defenderScreeningStrategyb.put(t, new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>());
+	// reads every variable of the solved LP with one bulk call
+	private DefenderStrategy readStrategy() throws Exception{
+		ModelIndex index = model.getIndex();
+		double[] x = lp.getValues(0, lp.getNumColumns());
+		
+		strategy = new DefenderStrategy(index, aggregation, model.strategyTolerance);
+		
+		for(int w = 0; w < currentTimeWindows.size(); w++){
+			int tw = index.timeWindow(currentTimeWindows.get(w));
+			
+			for(Flight f : windowFlights.get(w)){
+				for(int c = 0; c < numCategories; c++){
+					if(hasSlice(w, f.ordinal(), c)){
+						strategy.setB(tw, f.ordinal(), c, x, bIndex(w, f.ordinal(), c, 0));
+					}
+				}
+			}
 			
-			for(Flight f : model.getFlights(t)){
-				defenderScreeningStrategyb.get(t).put(f, new HashMap<RiskCategory, Map<ScreeningOperation, Double>>());
+			if(model.hasOverflow && w < currentTimeWindows.size() - 1){
+				strategy.setOverflow(tw, x, ovIndex(w, 0));
+			}
+			
+			for(int k = 0; k < w; k++){
+				int ti = index.timeWindow(currentTimeWindows.get(k));
 				
-				for(RiskCategory c : f.getPassengerDistribution().keySet()){
-					defenderScreeningStrategyb.get(t).get(f).put(c, new HashMap<ScreeningOperation, Double>());
+				for(Flight f : windowFlights.get(w)){
+					for(int c = 0; c < numCategories; c++){
+						if(hasSlope(w, k, f.ordinal(), c)){
+							strategy.addSlope(tw, ti, f.ordinal(), c, x, mIndex(w, k, f.ordinal(), c, 0));
+						}
+					}
+				}
+			}
+		}
+		
+		if(strategy.numSlopes() > 0){
+			System.out.println("Slopes: " + strategy.numEntries() + " of " + strategy.numSlopes() + " kept at tolerance " + strategy.getTolerance());
+		}
+		
+		return strategy;
+	}
+	
+	public int getNumRows(){
+		return lp.getNumRows();
+	}
+	
+	public long getNumNonzeros(){
+		return lp.getNumNonzeros();
+	}
+	
+	// iterations of the last solve, summed over the constraint generation rounds
+	public long getSolveIterations(){
+		return solveIterations;
+	}
+	
+	public DefenderStrategy getDefenderStrategy(){
+		return strategy;
+	}
+	
+	// the b values of getDefenderStrategy by time window, flight, risk category and operation
+	public Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> getDefenderScreeningStrategyb(){
+		Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> defenderScreeningStrategyb = new HashMap<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>();
+		ModelIndex index = model.getIndex();
+		
+		for(int w = 0; w < strategy.numWindows(); w++){
+			Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>> bt = new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>();
+			
+			for(Flight f : index.getFlights()){
+				for(RiskCategory c : index.getRiskCategories()){
+					if(!strategy.hasB(w, f.ordinal(), c.ordinal())){
+						continue;
+					}
+					if(!bt.containsKey(f)){
+						bt.put(f, new HashMap<RiskCategory, Map<ScreeningOperation, Double>>());
+					}
+					bt.get(f).put(c, new HashMap<ScreeningOperation, Double>());
 					
-					for(ScreeningOperation o : model.getScreeningOperations()){
-						defenderScreeningStrategyb.get(t).get(f).get(c).put(o, cplex.getValue(bMap.get(t).get(f).get(c).get(o)));
+					for(ScreeningOperation o : index.getScreeningOperations()){
+						bt.get(f).get(c).put(o, strategy.b(w, f.ordinal(), c.ordinal(), o.ordinal()));
 					}
 				}
 			}
+			
+			defenderScreeningStrategyb.put(index.getTimeWindow(w), bt);
 		}
 		
 		return defenderScreeningStrategyb;
 	}
 	
-	public Map<Integer, Map<ScreeningResource, Double>> getDefenderOverflowStrategy() throws IloException{
+	public Map<Integer, Map<ScreeningResource, Double>> getDefenderOverflowStrategy(){
 		if( model.hasOverflow){
 			HashMap<Integer, Map<ScreeningResource, Double>> defenderOverflowStrategy = new HashMap<Integer, Map<ScreeningResource, Double>>();
+			ModelIndex index = model.getIndex();
 			
-			List<Integer> subListTimeWindows = currentTimeWindows.subList(0, currentTimeWindows.size() - 1);
-			
-			for(int t : subListTimeWindows){
-				defenderOverflowStrategy.put(t, new HashMap<ScreeningResource, Double>());
+			for(int w = 0; w < strategy.numWindows(); w++){
+				if(!strategy.hasOverflow(w)){
+					continue;
+				}
+				defenderOverflowStrategy.put(index.getTimeWindow(w), new HashMap<ScreeningResource, Double>());
 	
-				for(ScreeningResource r : model.getScreeningResources().keySet() ){
-					defenderOverflowStrategy.get(t).put(r, cplex.getValue( ovMap.get(t).get(r) ));
+				for(ScreeningResource r : index.getScreeningResources()){
+					defenderOverflowStrategy.get(index.getTimeWindow(w)).put(r, strategy.overflow(w, r.ordinal()));
 				}
 			}
 			return defenderOverflowStrategy;
@@ -590,27 +1502,35 @@ public class DARMSMarginalSolver{
 		}
 	}
 	
-	public Map<Integer, Map< Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>> getDefenderScreeningStrategym() throws IloException{
+	// the m values of getDefenderStrategy by time window, earlier time window, flight, risk category and operation
+	public Map<Integer, Map< Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>> getDefenderScreeningStrategym(){
 		Map<Integer, Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>> defenderScreeningStrategym = new HashMap<Integer, Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>>();
-		int counter = 0;
-		for(int t : currentTimeWindows){
-			List<Integer> subListTimeWindows = currentTimeWindows.subList(0, counter);
-			counter = counter + 1;
+		ModelIndex index = model.getIndex();
+		
+		for(int w = 0; w < strategy.numWindows(); w++){
+			int t = index.getTimeWindow(w);
 			defenderScreeningStrategym.put(t, new HashMap< Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>());
-			for(int i : subListTimeWindows){
-				defenderScreeningStrategym.get(t).put(i, new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>());
 			
-				for(Flight f : model.getFlights(t)){
-					defenderScreeningStrategym.get(t).get(i).put(f, new HashMap<RiskCategory, Map<ScreeningOperation, Double>>());
+			for(int k = 0; k < w; k++){
+				Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>> mi = new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>();
 				
-					for(RiskCategory c : f.getPassengerDistribution().keySet()){
-						defenderScreeningStrategym.get(t).get(i).get(f).put(c, new HashMap<ScreeningOperation, Double>());
-					
-						for(ScreeningOperation o : model.getScreeningOperations()){
-							defenderScreeningStrategym.get(t).get(i).get(f).get(c).put( o, cplex.getValue( mMap.get(t).get(i).get(f).get(c).get(o)));
+				for(Flight f : index.getFlights()){
+					for(RiskCategory c : index.getRiskCategories()){
+						if(!strategy.hasSlope(w, k, f.ordinal(), c.ordinal())){
+							continue;
+						}
+						if(!mi.containsKey(f)){
+							mi.put(f, new HashMap<RiskCategory, Map<ScreeningOperation, Double>>());
+						}
+						mi.get(f).put(c, new HashMap<ScreeningOperation, Double>());
+						
+						for(ScreeningOperation o : index.getScreeningOperations()){
+							mi.get(f).get(c).put(o, strategy.m(w, k, f.ordinal(), c.ordinal(), o.ordinal()));
 						}
 					}
 				}
+				
+				defenderScreeningStrategym.get(t).put(index.getTimeWindow(k), mi);
 			}
 		}
 		
@@ -619,14 +1539,18 @@ public class DARMSMarginalSolver{
 	
 	public Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> getDefenderMarginalScreeningStrategyb(){
 		Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> defenderMarginalScreeningStrategy = new HashMap<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>>();
+		Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> defenderScreeningStrategyb = getDefenderScreeningStrategyb();
 		
 		for(int t : allTimeWindows){
 			defenderMarginalScreeningStrategy.put(t, new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>());
 			
-			for(Flight f : model.getFlights(t)){
+			for(Flight f : solvedFlights(defenderScreeningStrategyb.get(t))){
 				defenderMarginalScreeningStrategy.get(t).put(f, new HashMap<RiskCategory, Map<ScreeningOperation, Double>>());
 				
 				for(RiskCategory c : model.getAdversaryDistribution().keySet()){
+					if(!defenderScreeningStrategyb.get(t).get(f).containsKey(c)){
+						continue;
+					}
 					defenderMarginalScreeningStrategy.get(t).get(f).put(c, new HashMap<ScreeningOperation, Double>());
 					
 					for(ScreeningOperation o : model.getScreeningOperations()){
@@ -642,122 +1566,241 @@ public class DARMSMarginalSolver{
 		return defenderMarginalScreeningStrategy;
 	}
 	
+	// _b, _m and (with overflow) _o files next to filename, as csv, gzip-compressed csv or binary columns depending on model.outputFormat
 	public void writeDefenderScreeningStrategy(String filename, double runtime) throws Exception{
-		ArrayList<Integer> mSums = new ArrayList<Integer>();
-		ArrayList<Integer> bSums = new ArrayList<Integer>();
+		if(model.outputFormat.equalsIgnoreCase(OUTPUT_COLUMNAR)){
+			writeDefenderScreeningStrategyColumns(filename);
+			return;
+		}
+		
+		String base = CsvWriter.baseName(filename);
+		ModelIndex index = model.getIndex();
 		
-		String[] a = filename.split(".csv");
-		FileWriter fw = new FileWriter(new File(a[0] + "_b.csv"));
+		CsvWriter out = new CsvWriter(outputFile(base + "_b.csv"));
 		
 		List<RiskCategory> riskCategories = new ArrayList<RiskCategory>(model.getAdversaryDistribution().keySet());
 		Collections.sort(riskCategories);
 		
 		List<ScreeningOperation> screeningOperations = model.getScreeningOperations();
 		
-		String line = "TimeWindow, Flight, RiskCategory";
+		out.field("TimeWindow").field("Flight").field("RiskCategory");
 		
 		for(ScreeningOperation o : screeningOperations){
-			line += ", " + o;
+			out.field(o);
 		}
 		
-		fw.write(line);
-		for(int t : allTimeWindows){
-			int bcounter = 0;
-			for(Flight f : model.getFlights(t)){
+		out.endLine();
+		
+		for(int w = 0; w < strategy.numWindows(); w++){
+			for(Flight f : model.getFlights()){
 				for(RiskCategory c : riskCategories){
-					line = "\n" + t + ", " + f + ", " + c;
+					if(!strategy.hasB(w, f.ordinal(), c.ordinal())){
+						continue;
+					}
+					out.field(index.getTimeWindow(w)).field(f).field(c);
 					
 					for(ScreeningOperation o : screeningOperations){
-						line += ", " + defenderScreeningStrategyb.get(t).get(f).get(c).get(o);
-						bcounter++;
+						out.field(strategy.b(w, f.ordinal(), c.ordinal(), o.ordinal()));
 					}
 					
-					fw.write(line);
+					out.endLine();
 				}
 			}
-		bSums.add(bcounter);
 		}
 		
-		fw.close();
+		out.close();
 		
 		// Write slope doc
-		a = filename.split(".csv");
-		FileWriter fw2 = new FileWriter(new File(a[0] + "_m.csv"));
+		out = new CsvWriter(outputFile(base + "_m.csv"));
 		
-		riskCategories = new ArrayList<RiskCategory>(model.getAdversaryDistribution().keySet());
-		Collections.sort(riskCategories);
-		
-		screeningOperations = model.getScreeningOperations();
-		
-		line = "TimeWindow, Subwindow, Flight, RiskCategory";
+		out.field("TimeWindow").field("Subwindow").field("Flight").field("RiskCategory");
 		
 		for(ScreeningOperation o : screeningOperations){
-			line += ", " + o;
+			out.field(o);
 		}
 		
-		fw2.write(line);
+		out.endLine();
 		
-		int count = 0;
-		for(int t : allTimeWindows){
-			int mcounter = 0;
-				List<Integer> subListTimeWindows = allTimeWindows.subList(0, count);
-				count = count + 1;
-				
-				for(int i : subListTimeWindows ){
-					for(Flight f : model.getFlights(t)){
-						for(RiskCategory c : riskCategories){
-							line = "\n" + t + ", " + i + ", " + f + ", " + c;
+		for(int w = 0; w < strategy.numWindows(); w++){
+			for(int k = 0; k < w; k++){
+				for(Flight f : model.getFlights()){
+					for(RiskCategory c : riskCategories){
+						if(!strategy.hasSlope(w, k, f.ordinal(), c.ordinal())){
+							continue;
+						}
+						out.field(index.getTimeWindow(w)).field(index.getTimeWindow(k)).field(f).field(c);
 						
-							for(ScreeningOperation o : screeningOperations){
-								line += ", " + defenderScreeningStrategym.get(t).get(i).get(f).get(c).get(o);
-								mcounter++;
-							}
-							fw2.write(line);
+						for(ScreeningOperation o : screeningOperations){
+							out.field(strategy.m(w, k, f.ordinal(), c.ordinal(), o.ordinal()));
 						}
+						out.endLine();
 					}
 				}
-				mSums.add(mcounter);
+			}
 		}
-		fw2.close();
+		out.close();
 		
-		
-			if( model.hasOverflow){
+		if( model.hasOverflow){
 			// Write overflow doc
-			a = filename.split(".csv");
-			FileWriter fw3 = new FileWriter(new File(a[0] + "_o.csv"));
+			out = new CsvWriter(outputFile(base + "_o.csv"));
 			
 			List<ScreeningResource> screeningResources = new ArrayList<ScreeningResource>(model.getScreeningResources().keySet());
 			
 			Collections.sort( screeningResources );
 			
-			line = "TimeWindow";
+			out.field("TimeWindow");
 			
 			for(ScreeningResource r : screeningResources ){
-				line += ", " + r;
+				out.field(r);
 			}
 			
-			fw3.write(line);
-			List<Integer> subListTimeWindows = currentTimeWindows.subList(0, currentTimeWindows.size() - 1);
-			for(int t : subListTimeWindows){
-				line = "\n" + t;
-							
+			out.endLine();
+			
+			for(int w = 0; w < strategy.numWindows(); w++){
+				if(!strategy.hasOverflow(w)){
+					continue;
+				}
+				out.field(index.getTimeWindow(w));
+				
 				for(ScreeningResource r : screeningResources){
-					line += ", " + defenderOverflowStrategy.get(t).get(r);
+					out.field(strategy.overflow(w, r.ordinal()));
 				}
-				fw3.write(line);
+				out.endLine();
 			}
-			fw3.close();
-			}	
+			out.close();
+		}
+	}
+	
+	// the strategy as _b.col, _m.col and _o.col files of ColumnarWriter, one row per variable
+	public void writeDefenderScreeningStrategyColumns(String filename) throws Exception{
+		String base = CsvWriter.baseName(filename);
+		ModelIndex index = model.getIndex();
+		
+		List<String> flights = new ArrayList<String>();
+		List<String> riskCategories = new ArrayList<String>();
+		List<String> screeningOperations = new ArrayList<String>();
+		List<String> screeningResources = new ArrayList<String>();
+		
+		for(Flight f : index.getFlights()){
+			flights.add(f.toString());
+		}
+		
+		for(RiskCategory c : index.getRiskCategories()){
+			riskCategories.add(c.toString());
+		}
+		
+		for(ScreeningOperation o : index.getScreeningOperations()){
+			screeningOperations.add(o.toString());
+		}
+		
+		for(ScreeningResource r : index.getScreeningResources()){
+			screeningResources.add(r.toString());
+		}
+		
+		ColumnarWriter out = new ColumnarWriter(base + "_b.col");
+		int timeWindow = out.addIntColumn("TimeWindow", null);
+		int flight = out.addIntColumn("Flight", flights);
+		int riskCategory = out.addIntColumn("RiskCategory", riskCategories);
+		int operation = out.addIntColumn("ScreeningOperation", screeningOperations);
+		int value = out.addDoubleColumn("b");
+		
+		for(int w = 0; w < strategy.numWindows(); w++){
+			for(int f = 0; f < numFlights; f++){
+				for(int c = 0; c < numCategories; c++){
+					if(!strategy.hasB(w, f, c)){
+						continue;
+					}
+					
+					for(int o = 0; o < numOperations; o++){
+						out.set(timeWindow, index.getTimeWindow(w));
+						out.set(flight, f);
+						out.set(riskCategory, c);
+						out.set(operation, o);
+						out.set(value, strategy.b(w, f, c, o));
+						out.endRow();
+					}
+				}
+			}
+		}
+		
+		out.close();
+		
+		out = new ColumnarWriter(base + "_m.col");
+		timeWindow = out.addIntColumn("TimeWindow", null);
+		int subwindow = out.addIntColumn("Subwindow", null);
+		flight = out.addIntColumn("Flight", flights);
+		riskCategory = out.addIntColumn("RiskCategory", riskCategories);
+		operation = out.addIntColumn("ScreeningOperation", screeningOperations);
+		value = out.addDoubleColumn("m");
+		
+		for(int w = 0; w < strategy.numWindows(); w++){
+			for(int k = 0; k < w; k++){
+				for(int f = 0; f < numFlights; f++){
+					for(int c = 0; c < numCategories; c++){
+						if(!strategy.hasSlope(w, k, f, c)){
+							continue;
+						}
+						
+						for(int o = 0; o < numOperations; o++){
+							out.set(timeWindow, index.getTimeWindow(w));
+							out.set(subwindow, index.getTimeWindow(k));
+							out.set(flight, f);
+							out.set(riskCategory, c);
+							out.set(operation, o);
+							out.set(value, strategy.m(w, k, f, c, o));
+							out.endRow();
+						}
+					}
+				}
+			}
+		}
+		
+		out.close();
+		
+		if(model.hasOverflow){
+			out = new ColumnarWriter(base + "_o.col");
+			timeWindow = out.addIntColumn("TimeWindow", null);
+			int resource = out.addIntColumn("ScreeningResource", screeningResources);
+			value = out.addDoubleColumn("overflow");
+			
+			for(int w = 0; w < strategy.numWindows(); w++){
+				if(!strategy.hasOverflow(w)){
+					continue;
+				}
+				
+				for(int r = 0; r < numResources; r++){
+					out.set(timeWindow, index.getTimeWindow(w));
+					out.set(resource, r);
+					out.set(value, strategy.overflow(w, r));
+					out.endRow();
+				}
+			}
+			
+			out.close();
+		}
+	}
+	
+	// filename with .gz appended when model.outputFormat asks for gzip
+	private String outputFile(String filename){
+		if(model.outputFormat.equalsIgnoreCase(OUTPUT_GZIP) && !filename.endsWith(".gz")){
+			return filename + ".gz";
+		}
+		
+		return filename;
 	}
 	
-	public Map<RiskCategory, Map<Integer, Map<Flight, AttackMethod>>> getAdversaryStrategies() throws IloException{
+	public Map<RiskCategory, Map<Integer, Map<Flight, AttackMethod>>> getAdversaryStrategies() throws Exception{
 		Map<RiskCategory, Map<Integer, Map<Flight, AttackMethod>>> adversaryActionsMap = new HashMap<RiskCategory, Map<Integer, Map<Flight, AttackMethod>>>();
 		
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
 			double bestUtility = Double.NEGATIVE_INFINITY;
 			
-			for(int t : currentTimeWindows){
-				for(Flight f : model.getFlights(t)){
+			for(int w = 0; w < currentTimeWindows.size(); w++){
+				int t = currentTimeWindows.get(w);
+				for(Flight f : windowFlights.get(w)){
+					if(!hasSlice(w, f.ordinal(), c.ordinal())){
+						continue;
+					}
 					for(AttackMethod m : model.getAttackMethods()){
 						double coverage = riskCategoryCoverage.get(t).get(c).get(f).get(m);
 						
@@ -802,12 +1845,12 @@ public class DARMSMarginalSolver{
 		fw.close();
 	}
 	
-	public Map<RiskCategory, Double> getAdversaryPayoffs() throws IloException{
+	public Map<RiskCategory, Double> getAdversaryPayoffs() throws Exception{
 		Map<RiskCategory, Double> adversaryPayoffsMap = new HashMap<RiskCategory, Double>();
 		
 		if(zeroSum){
 			for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-				adversaryPayoffsMap.put(c, -1 * cplex.getValue(dMap.get(c)));
+				adversaryPayoffsMap.put(c, -1 * lp.getValue(dIndex(c.ordinal())));
 			}
 		}
 		
@@ -829,11 +1872,11 @@ public class DARMSMarginalSolver{
 		fw.close();
 	}
 	
-	public Map<RiskCategory, Double> getDefenderPayoffs() throws IloException{
+	public Map<RiskCategory, Double> getDefenderPayoffs() throws Exception{
 		Map<RiskCategory, Double> defenderPayoffsMap = new HashMap<RiskCategory, Double>();
 		
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			defenderPayoffsMap.put(c, cplex.getValue(dMap.get(c)));
+			defenderPayoffsMap.put(c, lp.getValue(dIndex(c.ordinal())));
 		}
 		
 		return defenderPayoffsMap;
@@ -866,34 +1909,49 @@ public class DARMSMarginalSolver{
 		fw.close();
 	}
 	
-	private Map<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>> getRiskCategoryCoverage() throws IloException{
-		Map<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>> riskCategoryCoverageMap = new HashMap<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>>();
+	public double calculateDefenderPayoff(){
+		return calculateDefenderPayoff(strategy);
+	}
 	
-		for(int t : currentTimeWindows){
-			riskCategoryCoverageMap.put(t, new HashMap<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>());
+	public double calculateDefenderPayoff(DefenderStrategy marginalStrategy){
+		Map<RiskCategory, Double> adversaryDistribution = model.getAdversaryDistribution();
+		ScreeningTables tables = model.getScreeningTables();
+		
+		double defenderUtility = 0.0;
+		
+		for(RiskCategory c : adversaryDistribution.keySet()){
+			double worstUtility = Double.POSITIVE_INFINITY;
 			
-			for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-				riskCategoryCoverageMap.get(t).put(c, new HashMap<Flight, Map<AttackMethod, Double>>());
-				
-				for(Flight f : model.getFlights(t)){
-					riskCategoryCoverageMap.get(t).get(c).put(f, new HashMap<AttackMethod, Double>());
-					
+			for(int w = 0; w < marginalStrategy.numWindows(); w++){
+				for(Flight f : model.getFlights()){
+					if(!marginalStrategy.hasB(w, f.ordinal(), c.ordinal())){
+						continue;
+					}
 					for(AttackMethod m : model.getAttackMethods()){
-						riskCategoryCoverageMap.get(t).get(c).get(f).put(m, cplex.getValue(bMap.get(t).get(c).get(f).get(m)));
+						double coverage = 0.0;
+						
+						for(ScreeningOperation o : model.getScreeningOperations()){
+							coverage += marginalStrategy.b(w, f.ordinal(), c.ordinal(), o.ordinal()) * tables.effectiveness(o, c, m);
+						}
+						
+						double utility = (coverage * payoffStructure.defCov(f)) + ((1.0 - coverage)* payoffStructure.defUncov(f));
+					
+						if(utility < worstUtility){
+							worstUtility = utility;
+						}
 					}
 				}
 			}
+			
+			defenderUtility += adversaryDistribution.get(c) * worstUtility;
 		}
 		
-		return riskCategoryCoverageMap;
-	}
-	
-	public double calculateDefenderPayoff(){
-		return calculateDefenderPayoff(defenderScreeningStrategyb);
+		return defenderUtility;
 	}
 	
 	public double calculateDefenderPayoff(Map<Integer, Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>> marginalStrategy){
 		Map<RiskCategory, Double> adversaryDistribution = model.getAdversaryDistribution();
+		ScreeningTables tables = model.getScreeningTables();
 		
 		double defenderUtility = 0.0;
 		
@@ -901,12 +1959,15 @@ public class DARMSMarginalSolver{
 			double worstUtility = Double.POSITIVE_INFINITY;
 			
 			for(int t : allTimeWindows){
-				for(Flight f : model.getFlights(t)){
+				for(Flight f : solvedFlights(marginalStrategy.get(t))){
+					if(!marginalStrategy.get(t).get(f).containsKey(c)){
+						continue;
+					}
 					for(AttackMethod m : model.getAttackMethods()){
 						double coverage = 0.0;
 						
 						for(ScreeningOperation o : model.getScreeningOperations()){
-							coverage += marginalStrategy.get(t).get(f).get(c).get(o) * o.effectiveness(c, m);
+							coverage += marginalStrategy.get(t).get(f).get(c).get(o) * tables.effectiveness(o, c, m);
 						}
 						
 						double utility = (coverage * payoffStructure.defCov(f)) + ((1.0 - coverage)* payoffStructure.defUncov(f));
@@ -924,23 +1985,30 @@ public class DARMSMarginalSolver{
 		return defenderUtility;
 	}
 	
-	public Map<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>> calculateRiskCategoryCoverage() throws IloException{
+	public Map<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>> calculateRiskCategoryCoverage() throws Exception{
 		Map<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>> riskCategoryCoverageMap = new HashMap<Integer, Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>>();
+		ScreeningTables tables = model.getScreeningTables();
 	
+		int w = 0;
 		for(int t : currentTimeWindows){
+			int tw = model.getIndex().timeWindow(t);
+			
 			riskCategoryCoverageMap.put(t, new HashMap<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>());
 			
 			for(RiskCategory c : model.getAdversaryDistribution().keySet()){
 				riskCategoryCoverageMap.get(t).put(c, new HashMap<Flight, Map<AttackMethod, Double>>());
 				
-				for(Flight f : model.getFlights(t)){
+				for(Flight f : windowFlights.get(w)){
+					if(!hasSlice(w, f.ordinal(), c.ordinal())){
+						continue;
+					}
 					riskCategoryCoverageMap.get(t).get(c).put(f, new HashMap<AttackMethod, Double>());
 					
 					for(AttackMethod m : model.getAttackMethods()){
 						double probability = 0.0;
 						
 						for(ScreeningOperation o : model.getScreeningOperations()){
-							probability += cplex.getValue(bMap.get(t).get(f).get(c).get(o)) * o.effectiveness(c, m);
+							probability += strategy.b(tw, f.ordinal(), c.ordinal(), o.ordinal()) * tables.effectiveness(o, c, m);
 						}
 						
 						if(probability > 1.0){
@@ -951,46 +2019,47 @@ public class DARMSMarginalSolver{
 					}
 				}
 			}
+			w = w + 1;
 		}
 		
 		return riskCategoryCoverageMap;
 	}
 	
 	public void writeRiskCategoryCoverage(String filename) throws Exception{
-		FileWriter fw = new FileWriter(new File(filename));
+		CsvWriter out = new CsvWriter(outputFile(filename));
 	
 		List<AttackMethod> attackMethods = model.getAttackMethods();
 		
 		List<RiskCategory> riskCategories = new ArrayList<RiskCategory>(model.getAdversaryDistribution().keySet());
 		Collections.sort(riskCategories);
 		
-		String line = "RiskCategory, TimeWindow, Flight";
+		out.field("RiskCategory").field("TimeWindow").field("Flight");
 		
 		for(AttackMethod m : attackMethods){
-			line += ", " + m + "_coverage, " + m + "_payoff, " + m + "_utility";
+			out.field(m + "_coverage").field(m + "_payoff").field(m + "_utility");
 		}
 		
-		fw.write(line);
+		out.endLine();
 		
 		for(RiskCategory c : riskCategories){
 			for(int t : allTimeWindows){
-				for(Flight f : model.getFlights(t)){
-					line = "\n" + c + ", " + t + ", " + f;
+				for(Flight f : solvedFlights(riskCategoryCoverage.get(t).get(c))){
+					out.field(c).field(t).field(f);
 					
 					for(AttackMethod m : attackMethods){
 						double coverage = riskCategoryCoverage.get(t).get(c).get(f).get(m);
 						double payoff = coverage * payoffStructure.attCov(f) + ((1.0 - coverage) * payoffStructure.attUncov(f));
 						double utility = payoff * model.getAdversaryDistribution().get(c);
 						
-						line += ", " + coverage + ", " + payoff + ", " + utility;
+						out.field(coverage).field(payoff).field(utility);
 					}
 					
-					fw.write(line);
+					out.endLine();
 				}
 			}
 		}
 		
-		fw.close();
+		out.close();
 	}
 	
 	public void writeTemporalPassengerDistribution(String filename) throws Exception{
@@ -999,46 +2068,44 @@ public class DARMSMarginalSolver{
 		for( int num = 0; num < Math.min( xiDistribution.size(), 20); num++){	
 			PassengerDistribution xi = xiDistribution.get(num);
 			counter = counter + 1;
-			String[] a = filename.split(".csv");
-			FileWriter fw = new FileWriter(new File(a[0] + "xi" + counter + ".csv"));
+			CsvWriter out = new CsvWriter(outputFile(CsvWriter.baseName(filename) + "xi" + counter + ".csv"));
 			
 			List<RiskCategory> riskCategories = new ArrayList<RiskCategory>(model.getAdversaryDistribution().keySet());
 			Collections.sort(riskCategories);
 			
-			String line = "TimeWindow, Flight";
+			out.field("TimeWindow").field("Flight");
 			
 			for(RiskCategory c : riskCategories){
-				line += ", " + c;
+				out.field(c);
 			}
 			
-			line += ", " + "TOTAL";
-			fw.write(line);
+			out.field("TOTAL");
+			out.endLine();
 			
 			for(int t : allTimeWindows){
-				for(Flight f : model.getFlights(t)){
-					line = "\n" + t + ", " + f;
+				for(Flight f : activity != null ? activity.getFlights(model.getIndex().timeWindow(t)) : model.getFlights(t)){
+					out.field(t).field(f);
 					
 					int totalPassengers = 0;
 					
 					for(RiskCategory c : riskCategories){
 						
-						line += ", " + xi.get(t, f, c);
+						out.field(xi.get(t, f, c));
 						
 						totalPassengers += xi.get(t, f, c);
 					}
 					
-					line += ", " + totalPassengers;
-						
-					fw.write(line);
+					out.field(totalPassengers);
+					out.endLine();
 				}
 			}
 			
-			fw.close();
+			out.close();
 	
 		}
 	}
 
-	public void writeNumberDecisionVariables(String fname, double runtime) throws IOException, IloException {
+	public void writeNumberDecisionVariables(String fname, double runtime) throws Exception {
 		System.out.println( fname );
 		FileWriter fw = new FileWriter(new File(fname));
 		
@@ -1048,10 +2115,14 @@ public class DARMSMarginalSolver{
 		fw.write("Beta, " + model.beta + "\n");
 		fw.write("Number Decision Variables, " + model.getDecVariables() + "\n");
 		fw.write("Number of Samples, " + xiDistribution.size() + "\n");
-		fw.write("Number of Constraints, " + cplex.getNrows() + "\n");
+		fw.write("Number of Constraints, " + lp.getNumRows() + "\n");
 		fw.write("Amount Uncertainty, " + model.uncertain + "\n");
 		fw.write("Experimental Epsilon, " + this.expEpsilon  + "\n");
-		fw.write("Objective Value, " + cplex.getObjValue() + "\n");
+		if(expEpsilonInterval != null){
+			fw.write("Experimental Epsilon 95% CI, " + expEpsilonInterval.getLowerBound() + ", " + expEpsilonInterval.getUpperBound() + "\n");
+			fw.write("Violation Samples, " + model.violationSamples + "\n");
+		}
+		fw.write("Objective Value, " + lp.getObjectiveValue() + "\n");
 		fw.write("\n");
 		fw.write("Total Runtime, " + runtime + "\n");
 		fw.write("Solver Runtime, " + this.solverTime + "\n");
@@ -1069,9 +2140,9 @@ public class DARMSMarginalSolver{
 		System.out.println("Beta, " + model.beta + "\n");
 		System.out.println("Number Decision Variables, " + model.getDecVariables() + "\n");
 		System.out.println("Number of Samples, " + xiDistribution.size() + "\n");
-		System.out.println("Number of Constraints, " + cplex.getNrows() + "\n");
+		System.out.println("Number of Constraints, " + lp.getNumRows() + "\n");
 		System.out.println("Experimental Epsilon, " + this.expEpsilon  + "\n");
-		System.out.println("Objective Value, " + cplex.getObjValue() + "\n");
+		System.out.println("Objective Value, " + lp.getObjectiveValue() + "\n");
 		System.out.println("\n");
 		System.out.println("Runtime, " + runtime + "\n");
 		
@@ -1079,145 +2150,68 @@ public class DARMSMarginalSolver{
 		
 	}
 
+	// builds the full (non-decomposed) LP without solving it
+	public void buildProblem() throws Exception{
+		initAggregation();
+		loadProblem(allTimeWindows);
+	}
+	
 	public void cleanUp() {
 		// TODO Auto-generated method stub
-		cplex.end();
+		lp.end();
 	}
 	
-	public double calculateViolationProbability() {
-		int numViolated = 0;
+	public double calculateViolationProbability() throws Exception{
 		System.out.println( "Starting to calculate the violation probability...");
-		for( PassengerDistribution v : model.getViolDistribution() ){
-			boolean isViolated = false;
-			
-			// check utility violation
-			Collections.sort(currentTimeWindows);
-			int counter = 0;
-			
-			for(int t : currentTimeWindows){
-				List<Integer> subListTimeWindows = currentTimeWindows.subList(0, counter);
-				counter = counter + 1;
-					for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-						for(Flight f : model.getFlights(t)){
-							for(AttackMethod m : model.getAttackMethods()){
-								
-								// ADDED
-								
-								double val = 0;
-								for(ScreeningOperation o : model.getScreeningOperations()){
-									double val2 = 0;
-									for(int i : subListTimeWindows){
-										// sum ( m * xi ) over all prev time window
-										val2 = val2 + defenderScreeningStrategym.get(t).get(i).get(f).get(c).get(o) * v.get(i, f, c);
-									}
-									
-									// Plus b_{f,c,team}^{current window}
-									val2 = val2 + defenderScreeningStrategyb.get(t).get(f).get(c).get(o);
-									
-									// Times effectiveness
-									// QUESTION: why is effectiveness negative?
-									val2 = val2 * o.effectiveness(c, m);
-									System.out.println(o + " " + o.effectiveness(c, m));
-
-									// This product is added to the sum over all teams
-									val = val + val2;
-								}
-								
-								// Multiply by payoff values and add the evaluated payoff value
-								val = val * (payoffStructure.defUncov(f) - payoffStructure.defCov(f)) + defenderPayoffs.get(c);
-								
-								// If this value is greater, then this realization violates.
-								System.out.println(val + " < " + payoffStructure.defUncov(f));
-								if ( val > payoffStructure.defUncov(f) + 0.00000001){
-									System.out.println("VIOLATION");
-									isViolated = true;
-								}
-								
-							}
-						}
-					}
-			}
-			
-			
-			
-			
-			// check is a probability violation
-			Map<ScreeningResource, Integer> screeningResources = model.getScreeningResources();
-			counter = 0;
-			// For all w
-			for(int t : currentTimeWindows){
-				List<Integer> subListTimeWindows = currentTimeWindows.subList(0, counter);
-				counter = counter + 1;
-					// For all flights
-					for(Flight f : model.getFlights(t)){
-						// For all thetas
-						for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-							// For all teams
-							for(ScreeningOperation o : model.getScreeningOperations()){
-								
-								double val = 0;
-								for(int i : subListTimeWindows){
-									// m*xi for all previous time windows
-									val = val + defenderScreeningStrategym.get(t).get(i).get(f).get(c).get(o) * v.get(i, f, c);
-								}
-								// plus the current b
-								val = val + defenderScreeningStrategyb.get(t).get(f).get(c).get(o);
-								// if this value is not a real probability...
-								System.out.println("0 < "+ val + " < 1");
-								if( (val > 1.000001) || ( val < -0.00000001) ){
-									System.out.println("VIOLATION");
-									isViolated = true;
-								}
-							}
-						}
-					}
-				}
-			
-			
-			
-			
-			// check throughput violation
-			counter = 0;		
-			screeningResources = model.getScreeningResources();
-
-			for(int t : currentTimeWindows){
-				List<Integer> subListTimeWindows = currentTimeWindows.subList(0, counter);
-				counter = counter + 1;
-				for( ScreeningResource r : screeningResources.keySet() ){
-						double val = 0;
-						for(Flight f : model.getFlights(t)){
-							for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-								for(ScreeningOperation o : model.getScreeningOperations()){
-									if(o.getResources().contains(r)){
-										for(int i : subListTimeWindows){
-											val = val + defenderScreeningStrategym.get(t).get(i).get(f).get(c).get(o) * v.get(i, f, c) * v.get(t, f, c);
-										}
-										val = val + defenderScreeningStrategyb.get(t).get(f).get(c).get(o) * v.get(t, f, c);
-									}
-								}
-							}
-						}
-						double capacity = r.capacity() * screeningResources.get(r);
-						
-						System.out.println(val + " < " + capacity);
-						// note: I added this small error here
-						if( val > capacity + 0.000000001 ){
-							System.out.println("VIOLATION");
-							isViolated = true;
-						}
-			
-					}
-				}
-
-			if( isViolated ){
-				numViolated++;
-			}
 		
+		ViolationEvaluator evaluator = compileStrategy();
+		
+		long start = System.currentTimeMillis();
+		int threads = Runtime.getRuntime().availableProcessors();
+		
+		if(model.violationStore != null){
+			this.expEpsilon = evaluator.evaluate(model.getViolationStore(model.violationSamples), threads);
+		}
+		else{
+			this.expEpsilon = evaluator.evaluate(model.violationSamples, threads);
+		}
+		this.expEpsilonInterval = evaluator.getConfidenceInterval(0.95);
+		
+		System.out.println( "Violation probability: " + expEpsilon + " (" + evaluator.getNumViolated() + " of " + evaluator.getNumScenarios() + " scenarios, 95% CI ["
+				+ expEpsilonInterval.getLowerBound() + ", " + expEpsilonInterval.getUpperBound() + "]) in " + (System.currentTimeMillis() - start) + " ms");
+		
+		if(evaluator.getNumUnindexed() > 0){
+			System.out.println( evaluator.getNumUnindexed() + " of " + evaluator.getNumScenarios()
+					+ " scenarios have passengers in (t, f, c) slices the LP has no columns for, scored with zero coverage there");
 		}
-		this.expEpsilon = ( numViolated* 1.0 ) / ( 1.0 * model.getViolDistribution().size() );
 		System.out.println( "Finished calculating the violation probability...");
-		return ( numViolated* 1.0 ) / ( 1.0 * model.getViolDistribution().size() );
+		
+		return expEpsilon;
 	}
 	
+	// the flights of byFlight in ordinal order, so the output does not depend on hash order
+	private List<Flight> solvedFlights(Map<Flight, ?> byFlight){
+		List<Flight> flights = new ArrayList<Flight>();
+		
+		if(byFlight != null){
+			for(Flight f : model.getFlights()){
+				if(byFlight.containsKey(f)){
+					flights.add(f);
+				}
+			}
+		}
+		
+		return flights;
+	}
 	
+	// the evaluator reads b and m from the solved strategy, d is dense per risk category
+	private ViolationEvaluator compileStrategy(){
+		double[] d = new double[numCategories];
+		
+		for(RiskCategory c : model.getIndex().getRiskCategories()){
+			d[c.ordinal()] = defenderPayoffs.get(c);
+		}
+		
+		return new ViolationEvaluator(model, payoffStructure, activity, aggregation, strategy, d);
+	}
 }
\ No newline at end of file
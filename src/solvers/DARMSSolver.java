@@ -11,133 +11,187 @@ import java.util.Map;
 import models.AttackMethod;
 import models.DARMSModel;
 import models.Flight;
+import models.ModelIndex;
 import models.PostScreeningResource;
 import models.RiskCategory;
 import models.ScreeningOperation;
 import models.ScreeningResource;
-
-import ilog.concert.IloException;
-import ilog.concert.IloNumExpr;
-import ilog.concert.IloNumVar;
-import ilog.concert.IloNumVarType;
-import ilog.concert.IloRange;
-import ilog.cplex.IloCplex;
+import models.ScreeningTables;
 
 public class DARMSSolver {
 	private DARMSModel model;
 	
-	private IloCplex cplex;
+	private LpBackend lp;
+	private LinearRowBuilder row;
+	
+	// first LP column of each variable block: s at sIndex(f, c, o), p at pIndex(f, r),
+	// x and a at xIndex/aIndex(c, f, m), d and k at dIndex/kIndex(c)
+	private int sStart;
+	private int pStart;
+	private int xStart;
+	private int aStart;
+	private int dStart;
+	private int kStart;
+	
+	private Map<PostScreeningResource, Integer> postScreeningIndex;
 	
-	private Map<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>> sMap;
-	private Map<Flight, Map<PostScreeningResource, IloNumVar>> pMap;
-	private Map<RiskCategory, Map<Flight, Map<AttackMethod, IloNumVar>>> aMap;
-	private Map<RiskCategory, IloNumVar> dMap;
-	private Map<RiskCategory, IloNumVar> kMap;
-	private Map<RiskCategory, Map<Flight, Map<AttackMethod, IloNumVar>>> xMap;
+	private int numFlights;
+	private int numCategories;
+	private int numOperations;
+	private int numAttackMethods;
+	private int numPostScreening;
 	
-	private List<IloRange> constraints;
+	private AttackMethodDominance dominance;
+	private int rowsDominated;
 	
 	private static final int MM = 100000;
 	
-	public DARMSSolver(DARMSModel model) throws IloException{
+	public DARMSSolver(DARMSModel model) throws Exception{
 		this.model = model;
 		
-		sMap = new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, IloNumVar>>>();
-		pMap = new HashMap<Flight, Map<PostScreeningResource, IloNumVar>>();
-		aMap = new HashMap<RiskCategory, Map<Flight, Map<AttackMethod, IloNumVar>>>();
-		dMap = new HashMap<RiskCategory, IloNumVar>();
-		kMap = new HashMap<RiskCategory, IloNumVar>();
-		xMap = new HashMap<RiskCategory, Map<Flight, Map<AttackMethod, IloNumVar>>>();
+		ModelIndex index = model.getIndex();
+		
+		numFlights = index.numFlights();
+		numCategories = index.numRiskCategories();
+		numOperations = index.numScreeningOperations();
+		numAttackMethods = index.numAttackMethods();
+		
+		postScreeningIndex = new HashMap<PostScreeningResource, Integer>();
+		
+		for(PostScreeningResource r : model.getPostScreeningResources().keySet()){
+			postScreeningIndex.put(r, postScreeningIndex.size());
+		}
+		
+		numPostScreening = postScreeningIndex.size();
 		
-		cplex = new IloCplex();
-		cplex.setName("DARMS");
-		cplex.setParam(IloCplex.IntParam.RootAlg, IloCplex.Algorithm.Barrier);
-		cplex.setParam(IloCplex.IntParam.BarCrossAlg, IloCplex.Algorithm.None);
-		cplex.setOut(null);
+		dominance = new AttackMethodDominance(model, true);
+		rowsDominated = 0;
+		
+		lp = LpBackends.create(model.lpBackend, "DARMS");
+		
+		if(lp instanceof CplexBackend){
+			((CplexBackend) lp).useBarrier();
+			((CplexBackend) lp).getCplex().setOut(null);
+		}
+		
+		row = new LinearRowBuilder(lp);
 		
 		initVars();
 		initConstraints();
 		initObjective();
+		
+		System.out.println("Attack method dominance removed " + rowsDominated + " payoff rows (" + dominance.numDominated() + " dominated (c, m) pairs)");
+	}
+	
+	private int sIndex(Flight f, RiskCategory c, ScreeningOperation o){
+		return sStart + (f.ordinal() * numCategories + c.ordinal()) * numOperations + o.ordinal();
+	}
+	
+	private int pIndex(Flight f, PostScreeningResource r){
+		return pStart + f.ordinal() * numPostScreening + postScreeningIndex.get(r);
 	}
 	
-	private void initVars() throws IloException{
-		List<IloNumVar> varList = new ArrayList<IloNumVar>();
+	private int xIndex(RiskCategory c, Flight f, AttackMethod m){
+		return xStart + (c.ordinal() * numFlights + f.ordinal()) * numAttackMethods + m.ordinal();
+	}
+	
+	private int aIndex(RiskCategory c, Flight f, AttackMethod m){
+		return aStart + (c.ordinal() * numFlights + f.ordinal()) * numAttackMethods + m.ordinal();
+	}
+	
+	private int dIndex(RiskCategory c){
+		return dStart + c.ordinal();
+	}
+	
+	private int kIndex(RiskCategory c){
+		return kStart + c.ordinal();
+	}
+	
+	// the attacker never strictly prefers a dominated method on f, and the defender does no worse when
+	// it is replaced by the method dominating it, so its a is fixed to 0 and its payoff rows are left out
+	private boolean isDominated(RiskCategory c, Flight f, AttackMethod m){
+		return f.getDefCovPayoff() >= f.getDefUncovPayoff() && f.getAttCovPayoff() < f.getAttUncovPayoff() && dominance.isDominated(c, m);
+	}
+	
+	private void initVars() throws Exception{
+		ModelIndex index = model.getIndex();
 		
-		for(Flight f : model.getFlights()){
-			sMap.put(f, new HashMap<RiskCategory, Map<ScreeningOperation, IloNumVar>>());
-			
-			for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-				sMap.get(f).put(c, new HashMap<ScreeningOperation, IloNumVar>());
-				
-				for(ScreeningOperation o : model.getScreeningOperations()){
-					IloNumVar var = cplex.numVar(0.0, 1.0, IloNumVarType.Float, "s_f" +  f.id() + "_c" + c.id() + "_o" + o.getID());
-				
-					sMap.get(f).get(c).put(o, var);
-					varList.add(var);
+		int numS = numFlights * numCategories * numOperations;
+		int numP = numFlights * numPostScreening;
+		int numX = numCategories * numFlights * numAttackMethods;
+		int numVars = numS + numP + 2 * numX + 2 * numCategories;
+		
+		double[] lb = new double[numVars];
+		double[] ub = new double[numVars];
+		boolean[] integer = new boolean[numVars];
+		String[] names = new String[numVars];
+		
+		int v = 0;
+		
+		for(Flight f : index.getFlights()){
+			for(RiskCategory c : index.getRiskCategories()){
+				for(ScreeningOperation o : index.getScreeningOperations()){
+					lb[v] = 0.0;
+					ub[v] = 1.0;
+					names[v++] = "s_f" +  f.id() + "_c" + c.id() + "_o" + o.getID();
 				}
 			}
 		}
 		
-		for(Flight f : model.getFlights()){
-			pMap.put(f, new HashMap<PostScreeningResource, IloNumVar>());
-			
-			for(PostScreeningResource r : model.getPostScreeningResources().keySet()){
-				IloNumVar var = cplex.numVar(0.0, 1.0, IloNumVarType.Float, "p_f" +  f.id() + "_r" + r.id());
+		for(Flight f : index.getFlights()){
+			for(PostScreeningResource r : postScreeningIndex.keySet()){
+				int j = v + postScreeningIndex.get(r);
 				
-				pMap.get(f).put(r, var);
-				varList.add(var);
+				lb[j] = 0.0;
+				ub[j] = 1.0;
+				names[j] = "p_f" +  f.id() + "_r" + r.id();
 			}
+			
+			v += numPostScreening;
 		}
 		
-		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			xMap.put(c, new HashMap<Flight, Map<AttackMethod, IloNumVar>>());
-			
-			for(Flight f : model.getFlights()){
-				xMap.get(c).put(f, new HashMap<AttackMethod, IloNumVar>());
-				
-				for(AttackMethod m : model.getAttackMethods()){
-					IloNumVar var = cplex.numVar(0.0, 1.0, IloNumVarType.Float, "x_c" + c.id() + "_f" + f.id() + "_m" + m.id());
-					
-					xMap.get(c).get(f).put(m, var);
-					varList.add(var);
+		for(RiskCategory c : index.getRiskCategories()){
+			for(Flight f : index.getFlights()){
+				for(AttackMethod m : index.getAttackMethods()){
+					lb[v] = 0.0;
+					ub[v] = 1.0;
+					names[v++] = "x_c" + c.id() + "_f" + f.id() + "_m" + m.id();
 				}
 			}
 		}
 		
-		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			aMap.put(c, new HashMap<Flight, Map<AttackMethod, IloNumVar>>());
-			
-			for(Flight f : model.getFlights()){
-				aMap.get(c).put(f, new HashMap<AttackMethod, IloNumVar> ());
-				
-				for(AttackMethod m : model.getAttackMethods()){
-					IloNumVar var = cplex.numVar(0.0, 1.0, IloNumVarType.Int, "a_c" + c.id() + "_f" + f.id() + "_m" + m.id());
-					
-					aMap.get(c).get(f).put(m, var);
-					varList.add(var);
+		for(RiskCategory c : index.getRiskCategories()){
+			for(Flight f : index.getFlights()){
+				for(AttackMethod m : index.getAttackMethods()){
+					lb[v] = 0.0;
+					ub[v] = isDominated(c, f, m) ? 0.0 : 1.0;
+					integer[v] = true;
+					names[v++] = "a_c" + c.id() + "_f" + f.id() + "_m" + m.id();
 				}
 			}
 		}
 		
-		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			IloNumVar var1 = cplex.numVar(-MM, MM, IloNumVarType.Float, "d_c" + c.id());
-			IloNumVar var2 = cplex.numVar(-MM, MM, IloNumVarType.Float, "k_c" + c.id());
-				
-			dMap.put(c, var1);
-			kMap.put(c, var2);
-			
-			varList.add(var1);
-			varList.add(var2);
+		for(RiskCategory c : index.getRiskCategories()){
+			lb[v] = -MM;
+			ub[v] = MM;
+			names[v++] = "d_c" + c.id();
 		}
 		
-		IloNumVar[] v = new IloNumVar[varList.size()];
-
-		cplex.add(varList.toArray(v));
+		for(RiskCategory c : index.getRiskCategories()){
+			lb[v] = -MM;
+			ub[v] = MM;
+			names[v++] = "k_c" + c.id();
+		}
+		
+		sStart = lp.addColumns(numVars, lb, ub, integer, names);
+		pStart = sStart + numS;
+		xStart = pStart + numP;
+		aStart = xStart + numX;
+		dStart = aStart + numX;
+		kStart = dStart + numCategories;
 	}
 	
-	private void initConstraints() throws IloException{
-		constraints = new ArrayList<IloRange>();
-		
+	private void initConstraints() throws Exception{
 		sumDefenderScreeningActionRow();
 		sumDefenderPostScreeningActionRow();
 		sumDefenderScreeningThroughputRow();
@@ -149,76 +203,86 @@ public class DARMSSolver {
 		if(!model.flightByFlight()){
 			setStaticScreening();
 		}
-		
-		IloRange[] c = new IloRange[constraints.size()];
-
-		cplex.add(constraints.toArray(c));
 	}
 	
-	private void initObjective() throws IloException{
+	private void initObjective() throws Exception{
 		Map<RiskCategory, Double> adversaryDistribution = model.getAdversaryDistribution();
 		
-		IloNumExpr expr = cplex.constant(0);
+		row.clear();
 		
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			expr = cplex.sum(expr, cplex.prod(dMap.get(c), adversaryDistribution.get(c)));
+			row.add(dIndex(c), adversaryDistribution.get(c));
 		}
 		
-		cplex.addMaximize(expr);
+		row.setObjective(true);
 	}
 	
-	public void solve() throws IloException{
-		cplex.solve();
+	public void solve() throws Exception{
+		lp.solve();
 	}
 	
-	private void sumDefenderCoverageRow() throws IloException{
+	private void sumDefenderCoverageRow() throws Exception{
+		ScreeningTables tables = model.getScreeningTables();
+		
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
 			for(Flight f : model.getFlights()){
 				for(AttackMethod m : model.getAttackMethods()){
-					IloNumExpr expr = xMap.get(c).get(f).get(m);
+					row.clear();
+					row.add(xIndex(c, f, m), 1.0);
 					
 					for(ScreeningOperation o : model.getScreeningOperations()){
-						expr = cplex.sum(expr, cplex.prod(sMap.get(f).get(c).get(o), -o.effectiveness(c, m)));
+						row.add(sIndex(f, c, o), -tables.effectiveness(o, c, m));
 					}
 					
 					for(PostScreeningResource p : model.getPostScreeningResources().keySet()){
-						expr = cplex.sum(expr, cplex.prod(pMap.get(f).get(p), -p.effectiveness(m)));
+						row.add(pIndex(f, p), -p.effectiveness(m));
 					}
 					
 					//constraints.add(cplex.le(expr, 0, "X" + c.id() + "F" + f.getID() + "M" + m.id() + "SUM"));
-					constraints.add(cplex.eq(expr, 0, "X" + c.id() + "F" + f.id() + "M" + m.id() + "SUM"));
+					row.addEq(0, "X" + c.id() + "F" + f.id() + "M" + m.id() + "SUM");
 				}
 			}
 		}
 	}
 	
-	private void setDefenderPayoffRow() throws IloException{
+	private void setDefenderPayoffRow() throws Exception{
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
 			for(Flight f : model.getFlights()){
 				for(AttackMethod m : model.getAttackMethods()){
+					if(isDominated(c, f, m)){
+						rowsDominated++;
+						continue;
+					}
+					
 					// -c_t(delta-U_{mogg.id}^d(t)
-					//expr = cplex.sum(expr, cplex.prod(variableList.get(variableMap.get("x" + t.id)), t.defUncovPayoff - t.defCovPayoff));
-					IloNumExpr expr = cplex.sum(dMap.get(c), cplex.prod(xMap.get(c).get(f).get(m), f.getDefUncovPayoff() - f.getDefCovPayoff()));
+					row.clear();
+					row.add(dIndex(c), 1.0);
+					row.add(xIndex(c, f, m), f.getDefUncovPayoff() - f.getDefCovPayoff());
 					
 					// M. a[j]
-					//expr = cplex.sum(expr, cplex.prod(variableList.get(variableMap.get("aT" + sg.id + "A" + (t.id))), Configuration.MM));
-					expr = cplex.sum(expr, cplex.prod(aMap.get(c).get(f).get(m), MM));
+					row.add(aIndex(c, f, m), MM);
 					
-					constraints.add(cplex.le(expr, MM + f.getDefUncovPayoff(), "DC" + c.id() + "F" + f.id() + "M" + m.id()));
+					row.addLe(MM + f.getDefUncovPayoff(), "DC" + c.id() + "F" + f.id() + "M" + m.id());
 				}
 			}
 		}
 	}
 	
-	private void setAdversaryPayoffRow() throws IloException{
+	private void setAdversaryPayoffRow() throws Exception{
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
 			for(Flight f : model.getFlights()){
 				for(AttackMethod m : model.getAttackMethods()){
+					if(isDominated(c, f, m)){
+						rowsDominated++;
+						continue;
+					}
+					
 					// -\sum_i [C[ty,i,j]] x[i]
-					//expr = cplex.sum(expr, cplex.prod(variableList.get(variableMap.get("x" + t.id)), -1.0 * (t.attCovPayoff - t.attUncovPayoff)));
-					IloNumExpr expr = cplex.sum(kMap.get(c), cplex.prod(xMap.get(c).get(f).get(m), -1.0 * (f.getAttCovPayoff() - f.getAttUncovPayoff())));
+					row.clear();
+					row.add(kIndex(c), 1.0);
+					row.add(xIndex(c, f, m), -1.0 * (f.getAttCovPayoff() - f.getAttUncovPayoff()));
 						
-					constraints.add(cplex.ge(expr, f.getAttUncovPayoff(), "AC" + c.id() + "F" + f.id() + "M" + m.id() + "Lo"));
+					row.addGe(f.getAttUncovPayoff(), "AC" + c.id() + "F" + f.id() + "M" + m.id() + "Lo");
 				}
 			}
 		}
@@ -227,33 +291,35 @@ public class DARMSSolver {
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
 			for(Flight f : model.getFlights()){
 				for(AttackMethod m : model.getAttackMethods()){
+					if(isDominated(c, f, m)){
+						rowsDominated++;
+						continue;
+					}
+					
 					// -\sum_i [C[ty,i,j]] x[i]
-					//expr = cplex.sum(expr, cplex.prod(variableList.get(variableMap.get("x" + t.id)), -1.0 * (t.attCovPayoff - t.attUncovPayoff)));
-					//expr = cplex.sum(expr, cplex.prod(varMap.get("x" + t.id), -1.0 * (f.attCovPayoff - f.attUncovPayoff)));
-					IloNumExpr expr = cplex.sum(kMap.get(c), cplex.prod(xMap.get(c).get(f).get(m), -1.0 * (f.getAttCovPayoff() - f.getAttUncovPayoff())));
+					row.clear();
+					row.add(kIndex(c), 1.0);
+					row.add(xIndex(c, f, m), -1.0 * (f.getAttCovPayoff() - f.getAttUncovPayoff()));
 					
-					//expr = cplex.sum(expr, cplex.prod(variableList.get(variableMap.get("aT" + sg.id + "A" + t.id)), Configuration.MM));
-					expr = cplex.sum(expr, cplex.prod(aMap.get(c).get(f).get(m), MM));
+					row.add(aIndex(c, f, m), MM);
 					
-					constraints.add(cplex.le(expr, MM + f.getAttUncovPayoff(), "AC" + c.id() + "F" + f.id() + "M" + m.id() + "Up"));
+					row.addLe(MM + f.getAttUncovPayoff(), "AC" + c.id() + "F" + f.id() + "M" + m.id() + "Up");
 				}
 			}
 		}
 	}
 	
-	private void setStaticScreening() throws IloException{
+	private void setStaticScreening() throws Exception{
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
 			for(ScreeningOperation o : model.getScreeningOperations()){
 				for(Flight f1 : model.getFlights()){
-					IloNumExpr expr1 = sMap.get(f1).get(c).get(o);
-					
 					for(Flight f2 : model.getFlights()){
 						if(f2.id() - f1.id() == 1){
-							IloNumExpr expr2 = cplex.prod(-1.0, sMap.get(f2).get(c).get(o));
-							
-							IloNumExpr expr = cplex.sum(expr1, expr2);
+							row.clear();
+							row.add(sIndex(f1, c, o), 1.0);
+							row.add(sIndex(f2, c, o), -1.0);
 							
-							constraints.add(cplex.eq(expr, 0.0, "C" + c.id() + "O" + o.getID() + "F" + f1.id() + "F" + f2.id()));
+							row.addEq(0.0, "C" + c.id() + "O" + o.getID() + "F" + f1.id() + "F" + f2.id());
 						}
 					}
 				}
@@ -261,25 +327,26 @@ public class DARMSSolver {
 		}
 	}
 	
-	private void sumDefenderScreeningActionRow() throws IloException{
+	private void sumDefenderScreeningActionRow() throws Exception{
 		for(Flight f : model.getFlights()){
 			for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-				IloNumExpr expr = cplex.constant(0);
+				row.clear();
 				
 				for(ScreeningOperation o : model.getScreeningOperations()){
-					expr = cplex.sum(expr, sMap.get(f).get(c).get(o));
+					row.add(sIndex(f, c, o), 1.0);
 				}
 				
-				constraints.add(cplex.eq(expr, 1.0, "SF" + f.id() + "C" + c.id() + "SUM"));
+				row.addEq(1.0, "SF" + f.id() + "C" + c.id() + "SUM");
 			}
 		}
 	}
 	
-	private void sumDefenderScreeningThroughputRow() throws IloException{
+	private void sumDefenderScreeningThroughputRow() throws Exception{
 		Map<ScreeningResource, Integer> screeningResources = model.getScreeningResources();
+		ScreeningTables tables = model.getScreeningTables();
 		
 		for(ScreeningResource r : screeningResources.keySet()){
-			IloNumExpr expr = cplex.constant(0);
+			row.clear();
 			
 			for(Flight f : model.getFlights()){
 				Map<RiskCategory, Integer> categoryDistribution = f.getPassengerDistribution();
@@ -288,8 +355,8 @@ public class DARMSSolver {
 					int numPassengers = categoryDistribution.get(c);
 					
 					for(ScreeningOperation o : model.getScreeningOperations()){
-						if(o.getResources().contains(r)){
-							expr = cplex.sum(expr, cplex.prod(sMap.get(f).get(c).get(o), numPassengers));
+						if(tables.uses(o, r)){
+							row.add(sIndex(f, c, o), numPassengers);
 						}
 					}
 				}
@@ -297,51 +364,51 @@ public class DARMSSolver {
 			
 			double totalCapacity = r.capacity() * screeningResources.get(r);
 			
-			constraints.add(cplex.le(expr, totalCapacity, "SR" + r.id() + "THROUGHPUT"));
+			row.addLe(totalCapacity, "SR" + r.id() + "THROUGHPUT");
 		}
 	}
 	
-	private void sumDefenderPostScreeningActionRow() throws IloException{
+	private void sumDefenderPostScreeningActionRow() throws Exception{
 		Map<PostScreeningResource, Integer> postScreeningResources = model.getPostScreeningResources();
 		
 		for(PostScreeningResource r : postScreeningResources.keySet()){
-			IloNumExpr expr = cplex.constant(0);
+			row.clear();
 			
 			for(Flight f : model.getFlights()){
-				expr = cplex.sum(expr, pMap.get(f).get(r));
+				row.add(pIndex(f, r), 1.0);
 			}
 			
-			constraints.add(cplex.eq(expr, postScreeningResources.get(r), "R" + r.id() + "SUM"));
+			row.addEq(postScreeningResources.get(r), "R" + r.id() + "SUM");
 		}
 	}
 	
-	private void sumAdversaryActionRow() throws IloException{
+	private void sumAdversaryActionRow() throws Exception{
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			IloNumExpr expr = cplex.constant(0);
+			row.clear();
 			
 			for(Flight f : model.getFlights()){
 				for(AttackMethod m : model.getAttackMethods()){
-					expr = cplex.sum(expr, aMap.get(c).get(f).get(m));
+					row.add(aIndex(c, f, m), 1.0);
 				}
 			}
 			
-			constraints.add(cplex.eq(expr, 1.0, "C" + c.id() + "SUM"));
+			row.addEq(1.0, "C" + c.id() + "SUM");
 		}
 	}
 	
-	public void writeProblem(String filename) throws IloException{
-		cplex.exportModel(filename);
+	public void writeProblem(String filename) throws Exception{
+		lp.exportModel(filename);
 	}
 	
-	public void writeSolution(String filename) throws IloException{
-		cplex.writeSolution(filename);
+	public void writeSolution(String filename) throws Exception{
+		lp.writeSolution(filename);
 	}
 	
-	public double getDefenderPayoff() throws IloException{
-		return cplex.getObjValue();
+	public double getDefenderPayoff() throws Exception{
+		return lp.getObjectiveValue();
 	}
 	
-	public Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>> getDefenderScreeningStrategy() throws IloException{
+	public Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>> getDefenderScreeningStrategy() throws Exception{
 		Map<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>> defenderStrategy = new HashMap<Flight, Map<RiskCategory, Map<ScreeningOperation, Double>>>();
 		
 		for(Flight f : model.getFlights()){
@@ -351,7 +418,7 @@ public class DARMSSolver {
 				defenderStrategy.get(f).put(c, new HashMap<ScreeningOperation, Double>());
 				
 				for(ScreeningOperation o : model.getScreeningOperations()){
-					defenderStrategy.get(f).get(c).put(o, cplex.getValue(sMap.get(f).get(c).get(o)));
+					defenderStrategy.get(f).get(c).put(o, lp.getValue(sIndex(f, c, o)));
 				}
 			}
 		}
@@ -393,14 +460,14 @@ public class DARMSSolver {
 		fw.close();
 	}
 	
-	public Map<PostScreeningResource, Map<Flight, Double>> getDefenderPostScreeningStrategy() throws IloException{
+	public Map<PostScreeningResource, Map<Flight, Double>> getDefenderPostScreeningStrategy() throws Exception{
 		Map<PostScreeningResource, Map<Flight, Double>> defenderStrategy = new HashMap<PostScreeningResource, Map<Flight, Double>>();
 		
 		for(PostScreeningResource r : model.getPostScreeningResources().keySet()){
 			defenderStrategy.put(r, new HashMap<Flight, Double>());
 			
 			for(Flight f : model.getFlights()){
-				defenderStrategy.get(r).put(f, cplex.getValue(pMap.get(f).get(r)));
+				defenderStrategy.get(r).put(f, lp.getValue(pIndex(f, r)));
 			}
 		}
 		
@@ -435,7 +502,7 @@ public class DARMSSolver {
 		fw.close();
 	}
 	
-	public Map<RiskCategory, Map<Flight, AttackMethod>> getAdversaryStrategies() throws IloException{
+	public Map<RiskCategory, Map<Flight, AttackMethod>> getAdversaryStrategies() throws Exception{
 		Map<RiskCategory, Map<Flight, AttackMethod>> adversaryActionsMap = new HashMap<RiskCategory, Map<Flight, AttackMethod>>();
 		
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
@@ -443,7 +510,7 @@ public class DARMSSolver {
 			
 			for(Flight f : model.getFlights()){
 				for(AttackMethod m : model.getAttackMethods()){
-					if(cplex.getValue(aMap.get(c).get(f).get(m)) > DARMSModel.EPSILON){
+					if(lp.getValue(aIndex(c, f, m)) > DARMSModel.EPSILON){
 						adversaryActionsMap.get(c).put(f, m);
 					}
 				}
@@ -478,11 +545,11 @@ public class DARMSSolver {
 		fw.close();
 	}
 	
-	public Map<RiskCategory, Double> getAdversaryPayoffs() throws IloException{
+	public Map<RiskCategory, Double> getAdversaryPayoffs() throws Exception{
 		Map<RiskCategory, Double> adversaryPayoffsMap = new HashMap<RiskCategory, Double>();
 		
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			adversaryPayoffsMap.put(c, cplex.getValue(kMap.get(c)));
+			adversaryPayoffsMap.put(c, lp.getValue(kIndex(c)));
 		}
 		
 		return adversaryPayoffsMap;
@@ -505,11 +572,11 @@ public class DARMSSolver {
 		fw.close();
 	}
 	
-	public Map<RiskCategory, Double> getDefenderPayoffs() throws IloException{
+	public Map<RiskCategory, Double> getDefenderPayoffs() throws Exception{
 		Map<RiskCategory, Double> defenderPayoffsMap = new HashMap<RiskCategory, Double>();
 		
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
-			defenderPayoffsMap.put(c, cplex.getValue(dMap.get(c)));
+			defenderPayoffsMap.put(c, lp.getValue(dIndex(c)));
 		}
 		
 		return defenderPayoffsMap;
@@ -544,7 +611,7 @@ public class DARMSSolver {
 		fw.close();
 	}
 	
-	public Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>> getRiskCategoryCoverage() throws IloException{
+	public Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>> getRiskCategoryCoverage() throws Exception{
 		Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>> riskCategoryCoverageMap = new HashMap<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>();
 	
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
@@ -554,7 +621,7 @@ public class DARMSSolver {
 				riskCategoryCoverageMap.get(c).put(f, new HashMap<AttackMethod, Double>());
 				
 				for(AttackMethod m : model.getAttackMethods()){
-					riskCategoryCoverageMap.get(c).get(f).put(m, cplex.getValue(xMap.get(c).get(f).get(m)));
+					riskCategoryCoverageMap.get(c).get(f).put(m, lp.getValue(xIndex(c, f, m)));
 				}
 			}
 		}
@@ -562,8 +629,9 @@ public class DARMSSolver {
 		return riskCategoryCoverageMap;
 	}
 	
-	public Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>> calculateRiskCategoryCoverage() throws IloException{
+	public Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>> calculateRiskCategoryCoverage() throws Exception{
 		Map<RiskCategory, Map<Flight, Map<AttackMethod, Double>>> riskCategoryCoverageMap = new HashMap<RiskCategory, Map<Flight, Map<AttackMethod, Double>>>();
+		ScreeningTables tables = model.getScreeningTables();
 	
 		for(RiskCategory c : model.getAdversaryDistribution().keySet()){
 			riskCategoryCoverageMap.put(c, new HashMap<Flight, Map<AttackMethod, Double>>());
@@ -575,11 +643,11 @@ public class DARMSSolver {
 					double probability = 0.0;
 					
 					for(ScreeningOperation o : model.getScreeningOperations()){
-						probability += cplex.getValue(sMap.get(f).get(c).get(o)) * o.effectiveness(c, m);
+						probability += lp.getValue(sIndex(f, c, o)) * tables.effectiveness(o, c, m);
 					}
 					
 					for(PostScreeningResource p : model.getPostScreeningResources().keySet()){
-						probability += cplex.getValue(pMap.get(f).get(p)) * p.effectiveness(m);
+						probability += lp.getValue(pIndex(f, p)) * p.effectiveness(m);
 					}
 					
 					if(probability > 1.0){
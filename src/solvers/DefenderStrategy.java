@@ -0,0 +1,238 @@
+package solvers;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import models.Flight;
+import models.FlightAggregation;
+import models.ModelIndex;
+
+/**
+ * A solved linear decision rule over all time windows of the model, read
+ * from the LP in one bulk call.
+ *
+ * The intercepts b are kept densely, b[((w * F + f) * C + c) * O + o], with a
+ * bit per (w, f, c) slice that had variables. The slopes m are kept sparse in
+ * compressed rows, one row per window pair (w, i) with i < w, numbered
+ * pair = w * (w - 1) / 2 + i like the LP columns: the entries of a pair are
+ * sorted by (f * C + c) * O + o, and values within the tolerance of zero are
+ * left out. m(w, i, f, c, o) is 0 for those, while hasSlope still tells the
+ * slices that had variables. Overflow is dense per (w, r).
+ *
+ * With a flight aggregation only the class leaders are stored; every member
+ * reads the values of its leader. Windows, flights, categories, operations
+ * and resources are ModelIndex ordinals.
+ */
+public class DefenderStrategy {
+	private int numWindows;
+	private int numFlights;
+	private int numCategories;
+	private int numOperations;
+	private int numResources;
+
+	private double tolerance;
+
+	// ordinal of the flight whose values each flight reads
+	private int[] leader;
+
+	private double[] b;
+	private BitSet bSlices = new BitSet();
+
+	private double[] overflow;
+	private BitSet overflowWindows = new BitSet();
+
+	// entries of pair p are pairStart[p] to pairStart[p + 1] - 1; pairs after lastPair have none yet
+	private int[] pairStart;
+	private int lastPair = -1;
+	private int[] columns = new int[1024];
+	private double[] values = new double[1024];
+	private int numEntries;
+	private long numSlopes;
+	private BitSet slopeSlices = new BitSet();
+
+	public DefenderStrategy(ModelIndex index, FlightAggregation aggregation, double tolerance){
+		numWindows = index.numTimeWindows();
+		numFlights = index.numFlights();
+		numCategories = index.numRiskCategories();
+		numOperations = index.numScreeningOperations();
+		numResources = index.numScreeningResources();
+
+		this.tolerance = tolerance;
+
+		leader = new int[numFlights];
+
+		for(Flight f : index.getFlights()){
+			leader[f.ordinal()] = aggregation != null ? aggregation.getLeader(f).ordinal() : f.ordinal();
+		}
+
+		b = new double[numWindows * numFlights * numCategories * numOperations];
+		overflow = new double[numWindows * numResources];
+		pairStart = new int[numWindows * (numWindows - 1) / 2 + 1];
+	}
+
+	public int numWindows(){
+		return numWindows;
+	}
+
+	public double getTolerance(){
+		return tolerance;
+	}
+
+	public boolean hasB(int w, int f, int c){
+		return bSlices.get(slice(w, leader[f], c));
+	}
+
+	public double b(int w, int f, int c, int o){
+		return b[slice(w, leader[f], c) * numOperations + o];
+	}
+
+	public boolean hasSlope(int w, int i, int f, int c){
+		return slopeSlices.get(slice(pair(w, i), leader[f], c));
+	}
+
+	public double m(int w, int i, int f, int c, int o){
+		int column = (leader[f] * numCategories + c) * numOperations + o;
+		int e = Arrays.binarySearch(columns, firstEntry(w, i), endEntry(w, i), column);
+
+		return e >= 0 ? values[e] : 0.0;
+	}
+
+	public boolean hasOverflow(int w){
+		return overflowWindows.get(w);
+	}
+
+	public double overflow(int w, int r){
+		return overflow[w * numResources + r];
+	}
+
+	// the stored m entries of (w, i) are firstEntry(w, i) to endEntry(w, i) - 1
+	public int firstEntry(int w, int i){
+		int p = pair(w, i);
+
+		return p <= lastPair ? pairStart[p] : numEntries;
+	}
+
+	public int endEntry(int w, int i){
+		int p = pair(w, i);
+
+		return p < lastPair ? pairStart[p + 1] : numEntries;
+	}
+
+	// (f * C + c) * O + o of entry e, f being a leader
+	public int entryColumn(int e){
+		return columns[e];
+	}
+
+	public int entryFlight(int e){
+		return columns[e] / numOperations / numCategories;
+	}
+
+	public int entryCategory(int e){
+		return columns[e] / numOperations % numCategories;
+	}
+
+	public int entryOperation(int e){
+		return columns[e] % numOperations;
+	}
+
+	public double entryValue(int e){
+		return values[e];
+	}
+
+	public int numEntries(){
+		return numEntries;
+	}
+
+	// m variables read, including the ones left out
+	public long numSlopes(){
+		return numSlopes;
+	}
+
+	// the O values of slice (w, f, c) start at from[offset]
+	void setB(int w, int f, int c, double[] from, int offset){
+		int s = slice(w, f, c);
+
+		bSlices.set(s);
+		System.arraycopy(from, offset, b, s * numOperations, numOperations);
+	}
+
+	void setOverflow(int w, double[] from, int offset){
+		overflowWindows.set(w);
+		System.arraycopy(from, offset, overflow, w * numResources, numResources);
+	}
+
+	// slices must come in increasing order of pair, then f, then c
+	void addSlope(int w, int i, int f, int c, double[] from, int offset){
+		int p = pair(w, i);
+
+		if(p < lastPair){
+			throw new IllegalStateException("Slope of pair " + p + " added after pair " + lastPair + ".");
+		}
+
+		for(int q = lastPair + 1; q <= p; q++){
+			pairStart[q] = numEntries;
+		}
+
+		lastPair = p;
+		slopeSlices.set(slice(p, f, c));
+		numSlopes += numOperations;
+
+		for(int o = 0; o < numOperations; o++){
+			double value = from[offset + o];
+
+			if(Math.abs(value) <= tolerance){
+				continue;
+			}
+
+			if(numEntries == columns.length){
+				columns = Arrays.copyOf(columns, 2 * numEntries);
+				values = Arrays.copyOf(values, 2 * numEntries);
+			}
+
+			columns[numEntries] = (f * numCategories + c) * numOperations + o;
+			values[numEntries] = value;
+			numEntries++;
+		}
+	}
+
+	// copies everything of window w from strategy, which covers the same model; windows must come in increasing order
+	void copyWindow(DefenderStrategy strategy, int w){
+		for(int f = 0; f < numFlights; f++){
+			for(int c = 0; c < numCategories; c++){
+				if(strategy.bSlices.get(slice(w, f, c))){
+					setB(w, f, c, strategy.b, slice(w, f, c) * numOperations);
+				}
+			}
+		}
+
+		if(strategy.hasOverflow(w)){
+			setOverflow(w, strategy.overflow, w * numResources);
+		}
+
+		double[] slope = new double[numOperations];
+
+		for(int i = 0; i < w; i++){
+			for(int f = 0; f < numFlights; f++){
+				for(int c = 0; c < numCategories; c++){
+					if(!strategy.slopeSlices.get(slice(pair(w, i), f, c))){
+						continue;
+					}
+
+					for(int o = 0; o < numOperations; o++){
+						slope[o] = strategy.m(w, i, f, c, o);
+					}
+
+					addSlope(w, i, f, c, slope, 0);
+				}
+			}
+		}
+	}
+
+	private int slice(int row, int f, int c){
+		return (row * numFlights + f) * numCategories + c;
+	}
+
+	private static int pair(int w, int i){
+		return (w * (w - 1)) / 2 + i;
+	}
+}
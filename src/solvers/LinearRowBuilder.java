@@ -0,0 +1,97 @@
+package solvers;
+
+/**
+ * Collects the terms of one linear row into reusable primitive buffers and
+ * hands them to the LpBackend, or appends them to a RowBlock, in a single
+ * call, instead of building an expression object per term. Call clear()
+ * before each row.
+ */
+public class LinearRowBuilder {
+	private LpBackend lp;
+	private RowBlock block;
+
+	private int[] cols;
+	private double[] coefs;
+	private int size;
+
+	public LinearRowBuilder(LpBackend lp){
+		this(lp, 64);
+	}
+
+	public LinearRowBuilder(LpBackend lp, int capacity){
+		this.lp = lp;
+		this.cols = new int[Math.max(capacity, 1)];
+		this.coefs = new double[cols.length];
+		this.size = 0;
+	}
+
+	// rows go to block instead of an LpBackend, add* return their index in the block
+	public LinearRowBuilder(RowBlock block){
+		this((LpBackend) null, 64);
+		this.block = block;
+	}
+
+	public void clear(){
+		size = 0;
+	}
+
+	public int size(){
+		return size;
+	}
+
+	public void add(int col, double coef){
+		if(size == cols.length){
+			int[] newCols = new int[2 * size];
+			double[] newCoefs = new double[2 * size];
+
+			System.arraycopy(cols, 0, newCols, 0, size);
+			System.arraycopy(coefs, 0, newCoefs, 0, size);
+
+			cols = newCols;
+			coefs = newCoefs;
+		}
+
+		cols[size] = col;
+		coefs[size] = coef;
+		size++;
+	}
+
+	// value of the row for the given column values
+	public double activity(double[] values){
+		double sum = 0.0;
+
+		for(int i = 0; i < size; i++){
+			sum += coefs[i] * values[cols[i]];
+		}
+
+		return sum;
+	}
+
+	public int addRange(double lb, double ub, String name) throws Exception{
+		return addRow(lb, ub, name);
+	}
+
+	public int addLe(double rhs, String name) throws Exception{
+		return addRow(-LpBackend.INFINITY, rhs, name);
+	}
+
+	public int addGe(double rhs, String name) throws Exception{
+		return addRow(rhs, LpBackend.INFINITY, name);
+	}
+
+	public int addEq(double rhs, String name) throws Exception{
+		return addRow(rhs, rhs, name);
+	}
+
+	private int addRow(double lb, double ub, String name) throws Exception{
+		if(block != null){
+			return block.addRow(lb, cols, coefs, size, ub, name);
+		}
+
+		return lp.addRow(lb, cols, coefs, size, ub, name);
+	}
+
+	public void setObjective(boolean maximize) throws Exception{
+		lp.setObjective(maximize, cols, coefs, size);
+	}
+}
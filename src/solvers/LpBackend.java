@@ -0,0 +1,48 @@
+package solvers;
+
+/**
+ * Minimal linear (and mixed integer) programming interface used by the DARMS
+ * solvers, so that the models can be built and solved without a particular
+ * solver library. Columns and rows are addressed by the 0-based index returned
+ * when they are added. Bounds at or beyond +/-INFINITY are treated as infinite.
+ */
+public interface LpBackend {
+	public static final double INFINITY = 1.0e20;
+
+	// returns the index of the first of the n new columns
+	public int addColumns(int n, double[] lb, double[] ub, boolean[] integer, String[] names) throws Exception;
+
+	// adds the ranged row lb <= sum coefs[i] * x[cols[i]] <= ub over the first size entries and returns its index
+	public int addRow(double lb, int[] cols, double[] coefs, int size, double ub, String name) throws Exception;
+
+	// adds the rows of block in order in one call and returns the index of the first
+	public int addRows(RowBlock block) throws Exception;
+
+	public void setObjective(boolean maximize, int[] cols, double[] coefs, int size) throws Exception;
+
+	// returns true if a primal feasible solution was found
+	public boolean solve() throws Exception;
+
+	public double getObjectiveValue() throws Exception;
+
+	public double getValue(int col) throws Exception;
+
+	public double[] getValues(int firstCol, int n) throws Exception;
+
+	public double getDual(int row) throws Exception;
+
+	public int getNumColumns();
+
+	public int getNumRows();
+
+	public long getNumNonzeros();
+
+	// iterations of the last solve: barrier iterations if it ran the barrier, simplex iterations otherwise
+	public long getIterations() throws Exception;
+
+	public void exportModel(String filename) throws Exception;
+
+	public void writeSolution(String filename) throws Exception;
+
+	public void end();
+}
@@ -0,0 +1,17 @@
+package solvers;
+
+public class LpBackends {
+	public static final String CPLEX = "cplex";
+	public static final String SIMPLEX = "simplex";
+
+	public static LpBackend create(String backend, String name) throws Exception{
+		if(backend == null || backend.equalsIgnoreCase(CPLEX)){
+			return new CplexBackend(name);
+		}
+		else if(backend.equalsIgnoreCase(SIMPLEX)){
+			return new SimplexBackend(name);
+		}
+
+		throw new Exception("Unrecognized LP backend: " + backend);
+	}
+}
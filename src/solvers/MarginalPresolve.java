@@ -0,0 +1,167 @@
+package solvers;
+
+import java.util.BitSet;
+import java.util.List;
+
+import models.AttackMethod;
+import models.DARMSModel;
+import models.Flight;
+import models.ModelIndex;
+import models.PassengerDistribution;
+import models.PayoffStructure;
+import models.RiskCategory;
+import models.ScreeningTables;
+
+/**
+ * Reductions of the marginal LP that follow from what its variables mean,
+ * found before the LP is built.
+ *
+ * The screening probability of (w, f, c, o) under a sample is
+ * sum over i < w of m(w, i) * xi_i(f, c) + b(w), and the probability rows
+ * keep it in [0, 1]. A sample without passengers of (f, c) before w makes
+ * that row a singleton on b, so b(w, f, c, o) gets the bounds [0, 1] and the
+ * singleton rows are left out. A slope m(w, i, f, c) whose count xi_i(f, c)
+ * is 0 in every sample only appears in its sum-to-zero row and is removed,
+ * and with a single screening operation every slope is fixed at 0 and every
+ * b at 1.
+ *
+ * d(c) is the minimum over the coverage rows of
+ * defUncov - (defUncov - defCov) * sum over o of effectiveness * probability,
+ * and the probabilities of a slice sum to 1, so at the optimum d(c) lies
+ * between the smallest and largest value this takes over the flights and
+ * attack methods of c. Windows are positions in the time windows passed in.
+ */
+public class MarginalPresolve {
+	private int numWindows;
+	private int numFlights;
+	private int numCategories;
+	private int numOperations;
+
+	// ModelIndex ordinal of every window
+	private int[] tw;
+
+	// bit (i * F + f) * C + c for the slopes multiplying a count that is positive in some sample
+	private BitSet usedSlopes = new BitSet();
+
+	// per f * C + c, the last window before which some sample has no passengers of (f, c)
+	private int[] zeroHistory;
+
+	private double[] dLower;
+	private double[] dUpper;
+
+	public MarginalPresolve(DARMSModel model, PayoffStructure payoffStructure, List<Integer> timeWindows, List<PassengerDistribution> samples){
+		ModelIndex index = model.getIndex();
+
+		numWindows = timeWindows.size();
+		numFlights = index.numFlights();
+		numCategories = index.numRiskCategories();
+		numOperations = index.numScreeningOperations();
+
+		int numSlices = numFlights * numCategories;
+		tw = new int[numWindows];
+
+		for(int w = 0; w < numWindows; w++){
+			tw[w] = index.timeWindow(timeWindows.get(w));
+		}
+
+		zeroHistory = new int[numSlices];
+
+		for(PassengerDistribution xi : samples){
+			for(int slice = 0; slice < numSlices; slice++){
+				int f = slice / numCategories;
+				int c = slice % numCategories;
+				int first = numWindows;
+
+				for(int w = 0; w < numWindows; w++){
+					if(xi.count(tw[w], f, c) > 0){
+						usedSlopes.set(w * numSlices + slice);
+
+						if(first == numWindows){
+							first = w;
+						}
+					}
+				}
+
+				zeroHistory[slice] = Math.max(zeroHistory[slice], first);
+			}
+		}
+
+		boundPayoffs(model, payoffStructure);
+	}
+
+	private void boundPayoffs(DARMSModel model, PayoffStructure payoffStructure){
+		ModelIndex index = model.getIndex();
+		ScreeningTables tables = model.getScreeningTables();
+
+		dLower = new double[numCategories];
+		dUpper = new double[numCategories];
+
+		for(RiskCategory c : index.getRiskCategories()){
+			double lower = Double.POSITIVE_INFINITY;
+			double upper = Double.NEGATIVE_INFINITY;
+
+			for(AttackMethod m : model.getAttackMethods()){
+				double minEffectiveness = Double.POSITIVE_INFINITY;
+				double maxEffectiveness = Double.NEGATIVE_INFINITY;
+
+				for(int o = 0; o < numOperations; o++){
+					minEffectiveness = Math.min(minEffectiveness, tables.effectiveness(o, c.ordinal(), m.ordinal()));
+					maxEffectiveness = Math.max(maxEffectiveness, tables.effectiveness(o, c.ordinal(), m.ordinal()));
+				}
+
+				for(Flight f : index.getFlights()){
+					double defUncov = payoffStructure.defUncov(f);
+					double payoffGap = defUncov - payoffStructure.defCov(f);
+
+					lower = Math.min(lower, defUncov - Math.max(payoffGap * minEffectiveness, payoffGap * maxEffectiveness));
+					upper = Math.max(upper, defUncov - Math.min(payoffGap * minEffectiveness, payoffGap * maxEffectiveness));
+				}
+			}
+
+			dLower[c.ordinal()] = lower > Double.NEGATIVE_INFINITY ? lower : -LpBackend.INFINITY;
+			dUpper[c.ordinal()] = upper < Double.POSITIVE_INFINITY ? upper : LpBackend.INFINITY;
+		}
+	}
+
+	// false if the slopes of window i for (f, c) are fixed at 0
+	public boolean isSlopeUsed(int i, int f, int c){
+		return numOperations > 1 && usedSlopes.get((i * numFlights + f) * numCategories + c);
+	}
+
+	// true if some sample makes the probability rows of (w, f, c) singletons on b
+	public boolean hasSingletonRows(int w, int f, int c){
+		return numOperations == 1 || zeroHistory[f * numCategories + c] >= w;
+	}
+
+	// b is fixed at 1 when there is only one screening operation
+	public boolean isBFixed(){
+		return numOperations == 1;
+	}
+
+	public double dLower(int c){
+		return dLower[c];
+	}
+
+	public double dUpper(int c){
+		return dUpper[c];
+	}
+
+	// false if a sample at index from or later has passengers where slopes were removed, so the LP has to be rebuilt for it
+	public boolean coversSamples(List<PassengerDistribution> samples, int from){
+		for(int s = from; s < samples.size(); s++){
+			PassengerDistribution xi = samples.get(s);
+
+			for(int w = 0; w < numWindows; w++){
+				for(int f = 0; f < numFlights; f++){
+					for(int c = 0; c < numCategories; c++){
+						if(numOperations > 1 && !usedSlopes.get((w * numFlights + f) * numCategories + c) && xi.count(tw[w], f, c) > 0){
+							return false;
+						}
+					}
+				}
+			}
+		}
+
+		return true;
+	}
+}
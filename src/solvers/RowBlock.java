@@ -0,0 +1,123 @@
+package solvers;
+
+import java.util.Arrays;
+
+/**
+ * A block of linear rows in compressed sparse row form: the terms of row i
+ * are cols and coefs from rowStart(i) to rowStart(i + 1) - 1, with bounds
+ * lb(i) <= row <= ub(i). Blocks are filled independently, e.g. one per
+ * thread, concatenated with append and handed to LpBackend.addRows in one
+ * call.
+ */
+public class RowBlock {
+	private int[] rowStart = new int[17];
+	private double[] lb = new double[16];
+	private double[] ub = new double[16];
+	private String[] names = new String[16];
+	private int numRows;
+
+	private int[] cols = new int[64];
+	private double[] coefs = new double[64];
+	private int numTerms;
+
+	public int numRows(){
+		return numRows;
+	}
+
+	public int numTerms(){
+		return numTerms;
+	}
+
+	public int rowStart(int i){
+		return rowStart[i];
+	}
+
+	public int rowEnd(int i){
+		return rowStart[i + 1];
+	}
+
+	public int col(int k){
+		return cols[k];
+	}
+
+	public double coef(int k){
+		return coefs[k];
+	}
+
+	public double lb(int i){
+		return lb[i];
+	}
+
+	public double ub(int i){
+		return ub[i];
+	}
+
+	public String name(int i){
+		return names[i];
+	}
+
+	// adds a row of the first size terms of cols and coefs, returns its index in the block
+	public int addRow(double rowLb, int[] rowCols, double[] rowCoefs, int size, double rowUb, String name){
+		ensureTerms(numTerms + size);
+		ensureRows(numRows + 1);
+
+		System.arraycopy(rowCols, 0, cols, numTerms, size);
+		System.arraycopy(rowCoefs, 0, coefs, numTerms, size);
+		numTerms += size;
+
+		lb[numRows] = rowLb;
+		ub[numRows] = rowUb;
+		names[numRows] = name;
+		rowStart[++numRows] = numTerms;
+
+		return numRows - 1;
+	}
+
+	public void append(RowBlock block){
+		for(int i = 0; i < block.numRows; i++){
+			append(block, i);
+		}
+	}
+
+	public void append(RowBlock block, int i){
+		int from = block.rowStart[i];
+		int size = block.rowStart[i + 1] - from;
+
+		ensureTerms(numTerms + size);
+		ensureRows(numRows + 1);
+
+		System.arraycopy(block.cols, from, cols, numTerms, size);
+		System.arraycopy(block.coefs, from, coefs, numTerms, size);
+		numTerms += size;
+
+		lb[numRows] = block.lb[i];
+		ub[numRows] = block.ub[i];
+		names[numRows] = block.names[i];
+		rowStart[++numRows] = numTerms;
+	}
+
+	public void clear(){
+		numRows = 0;
+		numTerms = 0;
+	}
+
+	private void ensureTerms(int n){
+		if(n > cols.length){
+			int capacity = Math.max(2 * cols.length, n);
+
+			cols = Arrays.copyOf(cols, capacity);
+			coefs = Arrays.copyOf(coefs, capacity);
+		}
+	}
+
+	private void ensureRows(int n){
+		if(n > lb.length){
+			int capacity = Math.max(2 * lb.length, n);
+
+			rowStart = Arrays.copyOf(rowStart, capacity + 1);
+			lb = Arrays.copyOf(lb, capacity);
+			ub = Arrays.copyOf(ub, capacity);
+			names = Arrays.copyOf(names, capacity);
+		}
+	}
+}
@@ -0,0 +1,265 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import models.ActivityIndex;
+import models.DARMSModel;
+import models.Flight;
+import models.ModelIndex;
+import models.PassengerDistribution;
+import models.RiskCategory;
+
+/**
+ * Finds the per-sample rows of the marginal LP that are implied by the rows
+ * of another sample, so they can be left out of the LP.
+ *
+ * The probability and coverage rows of window w, flight f and category c only
+ * depend on a sample through its history, the counts of (f, c) in the windows
+ * before w. Samples with the same history give identical rows, and only the
+ * first of them is kept.
+ *
+ * The throughput row of window w is sum over (f, c) of xi_w(f, c) times the
+ * coverage of (f, c) under the sample's history, and that coverage is kept
+ * non-negative by the probability rows. Among samples with the same history
+ * for every flight of the window, the row of a sample whose counts in w are
+ * coordinate-wise at most those of another sample can therefore never bind.
+ */
+public class ScenarioPruner {
+	private int numSamples;
+	private int numFlights;
+	private int numCategories;
+
+	// bit ((w * F + f) * C + c) * S + s
+	private BitSet sliceRedundant;
+
+	// bit w * S + s
+	private BitSet throughputRedundant;
+
+	private int numSliceRedundant;
+	private int numThroughputRedundant;
+
+	public ScenarioPruner(DARMSModel model, ActivityIndex activity, List<Integer> timeWindows, List<PassengerDistribution> samples){
+		ModelIndex index = model.getIndex();
+
+		numSamples = samples.size();
+		numFlights = index.numFlights();
+		numCategories = index.numRiskCategories();
+
+		sliceRedundant = new BitSet();
+		throughputRedundant = new BitSet();
+
+		int numSlices = numFlights * numCategories;
+
+		// history[slice * S + s] numbers the distinct histories of each slice densely from 0
+		int[] history = new int[numSlices * numSamples];
+		int[] nextHistory = new int[numSlices * numSamples];
+		int[] seen = new int[numSamples];
+		int stamp = 0;
+
+		Map<Long, Integer> ids = new HashMap<Long, Integer>();
+
+		for(int w = 0; w < timeWindows.size(); w++){
+			int t = timeWindows.get(w);
+			int tw = index.timeWindow(t);
+
+			for(int slice = 0; slice < numSlices; slice++){
+				stamp++;
+
+				for(int s = 0; s < numSamples; s++){
+					int h = history[slice * numSamples + s];
+
+					if(seen[h] == stamp){
+						sliceRedundant.set((w * numSlices + slice) * numSamples + s);
+						numSliceRedundant++;
+					}
+					else{
+						seen[h] = stamp;
+					}
+				}
+			}
+
+			pruneThroughput(w, tw, activeSlices(index, activity, tw), samples, history);
+
+			for(int slice = 0; slice < numSlices; slice++){
+				int f = slice / numCategories;
+				int c = slice % numCategories;
+
+				ids.clear();
+
+				for(int s = 0; s < numSamples; s++){
+					long key = ((long) history[slice * numSamples + s] << 32) | samples.get(s).count(tw, f, c);
+					Integer id = ids.get(key);
+
+					if(id == null){
+						id = ids.size();
+						ids.put(key, id);
+					}
+
+					nextHistory[slice * numSamples + s] = id;
+				}
+			}
+
+			int[] swap = history;
+			history = nextHistory;
+			nextHistory = swap;
+		}
+	}
+
+	// f * C + c of the slices of window tw with passengers in some sample, the others load no resource
+	private int[] activeSlices(ModelIndex index, ActivityIndex activity, int tw){
+		List<Integer> active = new ArrayList<Integer>();
+
+		for(Flight f : activity.getFlights(tw)){
+			for(RiskCategory c : index.getRiskCategories()){
+				if(activity.isActive(tw, f.ordinal(), c.ordinal())){
+					active.add(f.ordinal() * numCategories + c.ordinal());
+				}
+			}
+		}
+
+		int[] slices = new int[active.size()];
+
+		for(int i = 0; i < slices.length; i++){
+			slices[i] = active.get(i);
+		}
+
+		return slices;
+	}
+
+	private void pruneThroughput(int w, int tw, int[] slices, final List<PassengerDistribution> samples, int[] history){
+		// group the samples by their history over all slices of the window
+		Map<Long, List<List<Integer>>> buckets = new HashMap<Long, List<List<Integer>>>();
+
+		for(int s = 0; s < numSamples; s++){
+			long hash = 17;
+
+			for(int slice : slices){
+				hash = 31 * hash + history[slice * numSamples + s];
+			}
+
+			List<List<Integer>> groups = buckets.get(hash);
+
+			if(groups == null){
+				groups = new ArrayList<List<Integer>>();
+				buckets.put(hash, groups);
+			}
+
+			List<Integer> group = null;
+
+			for(List<Integer> g : groups){
+				if(sameHistory(g.get(0), s, slices, history)){
+					group = g;
+					break;
+				}
+			}
+
+			if(group == null){
+				group = new ArrayList<Integer>();
+				groups.add(group);
+			}
+
+			group.add(s);
+		}
+
+		for(List<List<Integer>> groups : buckets.values()){
+			for(List<Integer> group : groups){
+				if(group.size() > 1){
+					pruneDominated(w, tw, slices, group, samples);
+				}
+			}
+		}
+	}
+
+	private boolean sameHistory(int s1, int s2, int[] slices, int[] history){
+		for(int slice : slices){
+			if(history[slice * numSamples + s1] != history[slice * numSamples + s2]){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// keeps the samples whose counts in window tw are not dominated by another sample of the group
+	private void pruneDominated(int w, int tw, int[] slices, List<Integer> group, List<PassengerDistribution> samples){
+		final int[][] loads = new int[group.size()][slices.length];
+		final long[] totals = new long[group.size()];
+
+		for(int g = 0; g < group.size(); g++){
+			PassengerDistribution xi = samples.get(group.get(g));
+
+			for(int i = 0; i < slices.length; i++){
+				loads[g][i] = xi.count(tw, slices[i] / numCategories, slices[i] % numCategories);
+				totals[g] += loads[g][i];
+			}
+		}
+
+		// a dominating sample never has a smaller total, so it is seen first
+		List<Integer> order = new ArrayList<Integer>();
+
+		for(int g = 0; g < group.size(); g++){
+			order.add(g);
+		}
+
+		Collections.sort(order, new Comparator<Integer>(){
+			public int compare(Integer g1, Integer g2){
+				return totals[g1] != totals[g2] ? (totals[g1] > totals[g2] ? -1 : 1) : g1.compareTo(g2);
+			}
+		});
+
+		List<int[]> kept = new ArrayList<int[]>();
+
+		for(int g : order){
+			boolean dominated = false;
+
+			for(int[] load : kept){
+				if(dominates(load, loads[g])){
+					dominated = true;
+					break;
+				}
+			}
+
+			if(dominated){
+				throughputRedundant.set(w * numSamples + group.get(g));
+				numThroughputRedundant++;
+			}
+			else{
+				kept.add(loads[g]);
+			}
+		}
+	}
+
+	private static boolean dominates(int[] a, int[] b){
+		for(int i = 0; i < a.length; i++){
+			if(a[i] < b[i]){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// probability and coverage rows of (w, f, c) for sample s
+	public boolean isSliceRedundant(int w, int f, int c, int s){
+		return sliceRedundant.get(((w * numFlights + f) * numCategories + c) * numSamples + s);
+	}
+
+	// throughput rows of window w for sample s
+	public boolean isThroughputRedundant(int w, int s){
+		return throughputRedundant.get(w * numSamples + s);
+	}
+
+	public int getNumSliceRedundant(){
+		return numSliceRedundant;
+	}
+
+	public int getNumThroughputRedundant(){
+		return numThroughputRedundant;
+	}
+}
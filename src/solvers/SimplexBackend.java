@@ -0,0 +1,734 @@
+package solvers;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.commons.math3.exception.TooManyIterationsException;
+import org.apache.commons.math3.linear.OpenMapRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.math3.optim.MaxIter;
+import org.apache.commons.math3.optim.PointValuePair;
+import org.apache.commons.math3.optim.linear.LinearConstraint;
+import org.apache.commons.math3.optim.linear.LinearConstraintSet;
+import org.apache.commons.math3.optim.linear.LinearObjectiveFunction;
+import org.apache.commons.math3.optim.linear.NoFeasibleSolutionException;
+import org.apache.commons.math3.optim.linear.NonNegativeConstraint;
+import org.apache.commons.math3.optim.linear.Relationship;
+import org.apache.commons.math3.optim.linear.SimplexSolver;
+import org.apache.commons.math3.optim.linear.UnboundedSolutionException;
+import org.apache.commons.math3.optim.nonlinear.scalar.GoalType;
+
+/**
+ * Pure Java LpBackend built on the commons-math SimplexSolver, so DARMS can be
+ * run without the CPLEX native library. Column bounds are substituted into
+ * the variables instead of becoming rows, see Relaxation, but SimplexSolver
+ * keeps a dense tableau of (constraints + 2) x (variables + slacks +
+ * artificials) doubles and every pivot passes over all of it, so memory grows
+ * with the square of the rows. On DARMS LPs 7,000 rows solved in about 20 s
+ * but needed more than 1 GB of heap, 11,000 rows took 90 s within 4 GB, and
+ * larger instances need CPLEX. Integer columns are handled with a depth-first
+ * branch and bound over the LP relaxation. Dual values are not available from
+ * SimplexSolver.
+ */
+public class SimplexBackend implements LpBackend {
+	private static final double INTEGRALITY_TOLERANCE = 1e-6;
+	private static final double BOUND_TOLERANCE = 1e-9;
+
+	// tolerances of SimplexSolver on the scaled rows: reduced costs and the phase 1 objective, equal entries, and pivot
+	// entries taken as 0; with a cut off of 1e-11 or less, round off in the pivot column was taken for a pivot entry
+	private static final double SOLVER_EPSILON = 1e-9;
+	private static final int SOLVER_MAX_ULPS = 10;
+	private static final double SOLVER_CUT_OFF = 1e-9;
+
+	private String name;
+
+	private double[] colLb;
+	private double[] colUb;
+	private boolean[] colInteger;
+	private String[] colNames;
+	private int numColumns;
+
+	private List<int[]> rowCols;
+	private List<double[]> rowCoefs;
+	private List<double[]> rowBounds;
+	private List<String> rowNames;
+
+	private boolean maximize;
+	private int[] objCols;
+	private double[] objCoefs;
+
+	private double[] solution;
+	private double objectiveValue;
+	private long iterations;
+
+	public SimplexBackend(String name){
+		this.name = name;
+
+		colLb = new double[64];
+		colUb = new double[64];
+		colInteger = new boolean[64];
+		colNames = new String[64];
+
+		rowCols = new ArrayList<int[]>();
+		rowCoefs = new ArrayList<double[]>();
+		rowBounds = new ArrayList<double[]>();
+		rowNames = new ArrayList<String>();
+
+		objCols = new int[0];
+		objCoefs = new double[0];
+	}
+
+	public int addColumns(int n, double[] lb, double[] ub, boolean[] integer, String[] names){
+		if(numColumns + n > colLb.length){
+			int capacity = Math.max(2 * colLb.length, numColumns + n);
+
+			double[] newLb = new double[capacity];
+			double[] newUb = new double[capacity];
+			boolean[] newInteger = new boolean[capacity];
+			String[] newNames = new String[capacity];
+
+			System.arraycopy(colLb, 0, newLb, 0, numColumns);
+			System.arraycopy(colUb, 0, newUb, 0, numColumns);
+			System.arraycopy(colInteger, 0, newInteger, 0, numColumns);
+			System.arraycopy(colNames, 0, newNames, 0, numColumns);
+
+			colLb = newLb;
+			colUb = newUb;
+			colInteger = newInteger;
+			colNames = newNames;
+		}
+
+		System.arraycopy(lb, 0, colLb, numColumns, n);
+		System.arraycopy(ub, 0, colUb, numColumns, n);
+		System.arraycopy(integer, 0, colInteger, numColumns, n);
+
+		for(int j = 0; j < n; j++){
+			colNames[numColumns + j] = names != null && names[j] != null ? names[j] : "x" + (numColumns + j + 1);
+		}
+
+		int first = numColumns;
+
+		numColumns += n;
+		solution = null;
+
+		return first;
+	}
+
+	public int addRow(double lb, int[] cols, double[] coefs, int size, double ub, String name){
+		int[] c = new int[size];
+		double[] a = new double[size];
+
+		System.arraycopy(cols, 0, c, 0, size);
+		System.arraycopy(coefs, 0, a, 0, size);
+
+		rowCols.add(c);
+		rowCoefs.add(a);
+		rowBounds.add(new double[]{lb, ub});
+		rowNames.add(name != null ? name : "c" + (rowNames.size() + 1));
+
+		solution = null;
+
+		return rowNames.size() - 1;
+	}
+
+	public int addRows(RowBlock block){
+		int first = rowNames.size();
+
+		for(int i = 0; i < block.numRows(); i++){
+			int from = block.rowStart(i);
+			int size = block.rowEnd(i) - from;
+			int[] c = new int[size];
+			double[] a = new double[size];
+
+			for(int k = 0; k < size; k++){
+				c[k] = block.col(from + k);
+				a[k] = block.coef(from + k);
+			}
+
+			rowCols.add(c);
+			rowCoefs.add(a);
+			rowBounds.add(new double[]{block.lb(i), block.ub(i)});
+			rowNames.add(block.name(i) != null ? block.name(i) : "c" + (rowNames.size() + 1));
+		}
+
+		solution = null;
+
+		return first;
+	}
+
+	public void setObjective(boolean maximize, int[] cols, double[] coefs, int size){
+		this.maximize = maximize;
+
+		objCols = new int[size];
+		objCoefs = new double[size];
+
+		System.arraycopy(cols, 0, objCols, 0, size);
+		System.arraycopy(coefs, 0, objCoefs, 0, size);
+
+		solution = null;
+	}
+
+	public boolean solve() throws Exception{
+		double[] lb = new double[numColumns];
+		double[] ub = new double[numColumns];
+
+		System.arraycopy(colLb, 0, lb, 0, numColumns);
+		System.arraycopy(colUb, 0, ub, 0, numColumns);
+
+		solution = null;
+		iterations = 0;
+
+		branch(lb, ub);
+
+		return solution != null;
+	}
+
+	private void addConstraints(List<LinearConstraint> constraints, RealVector row, double lb, double ub){
+		if(lb > -INFINITY && ub < INFINITY && Math.abs(ub - lb) <= BOUND_TOLERANCE){
+			constraints.add(new LinearConstraint(row, Relationship.EQ, lb));
+			return;
+		}
+
+		if(lb > -INFINITY){
+			constraints.add(new LinearConstraint(row, Relationship.GEQ, lb));
+		}
+
+		if(ub < INFINITY){
+			constraints.add(new LinearConstraint(row, Relationship.LEQ, ub));
+		}
+	}
+
+	// solves the relaxation with the column bounds lb and ub, and branches on the first fractional integer column
+	private void branch(double[] lb, double[] ub) throws Exception{
+		Relaxation relaxation = new Relaxation(lb, ub);
+
+		if(!relaxation.feasible){
+			return;
+		}
+
+		SimplexSolver solver = new SimplexSolver(SOLVER_EPSILON, SOLVER_MAX_ULPS, SOLVER_CUT_OFF);
+		PointValuePair optimum;
+
+		try{
+			optimum = solver.optimize(new MaxIter(Integer.MAX_VALUE),
+					relaxation.objective,
+					new LinearConstraintSet(relaxation.constraints),
+					maximize ? GoalType.MAXIMIZE : GoalType.MINIMIZE,
+					new NonNegativeConstraint(true));
+		}
+		catch(NoFeasibleSolutionException e){
+			iterations += solver.getIterations();
+			return;
+		}
+		catch(UnboundedSolutionException e){
+			// phase 1 is never unbounded, so this may also be a numerical failure
+			throw new Exception("The simplex found no bounded optimum for " + name + " after " + solver.getIterations()
+					+ " iterations, the LP is unbounded or numerically too hard for the SimplexSolver backend.", e);
+		}
+		catch(TooManyIterationsException e){
+			throw new Exception("The simplex did not finish " + name + " within " + solver.getMaxIterations() + " iterations.", e);
+		}
+
+		iterations += solver.getIterations();
+
+		double value = optimum.getValue() + relaxation.objectiveOffset;
+
+		// the relaxation bounds every integer solution below this node
+		if(solution != null && (maximize ? value <= objectiveValue + BOUND_TOLERANCE : value >= objectiveValue - BOUND_TOLERANCE)){
+			return;
+		}
+
+		double[] x = relaxation.columnValues(optimum.getPoint());
+
+		int fractional = -1;
+
+		for(int j = 0; j < numColumns && fractional < 0; j++){
+			if(colInteger[j] && Math.abs(x[j] - Math.rint(x[j])) > INTEGRALITY_TOLERANCE){
+				fractional = j;
+			}
+		}
+
+		if(fractional < 0){
+			solution = x;
+			objectiveValue = value;
+			return;
+		}
+
+		double oldUb = ub[fractional];
+		ub[fractional] = Math.floor(x[fractional]);
+		branch(lb, ub);
+		ub[fractional] = oldUb;
+
+		double oldLb = lb[fractional];
+		lb[fractional] = Math.ceil(x[fractional]);
+		branch(lb, ub);
+		lb[fractional] = oldLb;
+	}
+
+	/**
+	 * The LP over non-negative variables y that SimplexSolver takes, for given
+	 * column bounds. A column with a finite lower bound is lb + y, one with
+	 * only an upper bound is ub - y, a free one is y+ - y-, and a fixed one is
+	 * a constant, so only columns bounded on both sides add a row y <= ub - lb.
+	 * Rows are sparse and scaled to a largest coefficient of 1, which keeps the
+	 * solver tolerances meaningful next to payoffs in the 1e5 range.
+	 */
+	private class Relaxation {
+		// x_j = shift[j] + sign[j] * y[pos[j]] - y[neg[j]], without the y terms whose index is -1
+		private double[] shift = new double[numColumns];
+		private double[] sign = new double[numColumns];
+		private int[] pos = new int[numColumns];
+		private int[] neg = new int[numColumns];
+		private int numVariables;
+
+		private List<LinearConstraint> constraints = new ArrayList<LinearConstraint>();
+		private LinearObjectiveFunction objective;
+		private double objectiveOffset;
+		private boolean feasible = true;
+
+		private Relaxation(double[] lb, double[] ub){
+			List<Integer> bounded = new ArrayList<Integer>();
+
+			for(int j = 0; j < numColumns; j++){
+				neg[j] = -1;
+				sign[j] = 1.0;
+
+				if(lb[j] > ub[j] + BOUND_TOLERANCE){
+					feasible = false;
+					return;
+				}
+
+				if(lb[j] > -INFINITY && ub[j] < INFINITY && ub[j] - lb[j] <= BOUND_TOLERANCE){
+					shift[j] = lb[j];
+					pos[j] = -1;
+				}
+				else if(lb[j] > -INFINITY){
+					shift[j] = lb[j];
+					pos[j] = numVariables++;
+
+					if(ub[j] < INFINITY){
+						bounded.add(j);
+					}
+				}
+				else if(ub[j] < INFINITY){
+					shift[j] = ub[j];
+					sign[j] = -1.0;
+					pos[j] = numVariables++;
+				}
+				else{
+					pos[j] = numVariables++;
+					neg[j] = numVariables++;
+				}
+			}
+
+			for(int r = 0; r < rowNames.size() && feasible; r++){
+				addRow(rowCols.get(r), rowCoefs.get(r), rowBounds.get(r)[0], rowBounds.get(r)[1]);
+			}
+
+			for(int j : bounded){
+				RealVector unit = new OpenMapRealVector(numVariables);
+				unit.setEntry(pos[j], 1.0);
+
+				constraints.add(new LinearConstraint(unit, Relationship.LEQ, ub[j] - lb[j]));
+			}
+
+			double[] c = new double[numVariables];
+
+			for(int i = 0; i < objCols.length; i++){
+				int j = objCols[i];
+
+				objectiveOffset += objCoefs[i] * shift[j];
+
+				if(pos[j] >= 0){
+					c[pos[j]] += objCoefs[i] * sign[j];
+				}
+
+				if(neg[j] >= 0){
+					c[neg[j]] -= objCoefs[i];
+				}
+			}
+
+			objective = new LinearObjectiveFunction(c, 0.0);
+		}
+
+		private void addRow(int[] cols, double[] coefs, double lb, double ub){
+			RealVector row = new OpenMapRealVector(numVariables);
+			double offset = 0.0;
+
+			for(int i = 0; i < cols.length; i++){
+				int j = cols[i];
+
+				offset += coefs[i] * shift[j];
+
+				if(pos[j] >= 0){
+					row.addToEntry(pos[j], coefs[i] * sign[j]);
+				}
+
+				if(neg[j] >= 0){
+					row.addToEntry(neg[j], -coefs[i]);
+				}
+			}
+
+			double scale = row.getLInfNorm();
+
+			lb = lb > -INFINITY ? lb - offset : lb;
+			ub = ub < INFINITY ? ub - offset : ub;
+
+			// only fixed columns are left in the row
+			if(scale == 0.0){
+				feasible = lb <= BOUND_TOLERANCE && ub >= -BOUND_TOLERANCE;
+				return;
+			}
+
+			addConstraints(constraints, row.mapDivideToSelf(scale), lb > -INFINITY ? lb / scale : lb, ub < INFINITY ? ub / scale : ub);
+		}
+
+		private double[] columnValues(double[] y){
+			double[] x = new double[numColumns];
+
+			for(int j = 0; j < numColumns; j++){
+				x[j] = shift[j];
+
+				if(pos[j] >= 0){
+					x[j] += sign[j] * y[pos[j]];
+				}
+
+				if(neg[j] >= 0){
+					x[j] -= y[neg[j]];
+				}
+			}
+
+			return x;
+		}
+	}
+
+	private void checkSolved() throws Exception{
+		if(solution == null){
+			throw new Exception("No solution available for " + name + ".");
+		}
+	}
+
+	public double getObjectiveValue() throws Exception{
+		checkSolved();
+
+		return objectiveValue;
+	}
+
+	public double getValue(int col) throws Exception{
+		checkSolved();
+
+		return solution[col];
+	}
+
+	public double[] getValues(int firstCol, int n) throws Exception{
+		checkSolved();
+
+		double[] values = new double[n];
+
+		System.arraycopy(solution, firstCol, values, 0, n);
+
+		return values;
+	}
+
+	public double getDual(int row) throws Exception{
+		throw new Exception("Dual values are not available from the SimplexSolver backend.");
+	}
+
+	public int getNumColumns(){
+		return numColumns;
+	}
+
+	public int getNumRows(){
+		return rowNames.size();
+	}
+
+	public long getNumNonzeros(){
+		long nonzeros = 0;
+
+		for(int[] cols : rowCols){
+			nonzeros += cols.length;
+		}
+
+		return nonzeros;
+	}
+
+	// simplex iterations summed over the nodes of the branch and bound
+	public long getIterations(){
+		return iterations;
+	}
+
+	private static String lpName(String name){
+		return name.replaceAll("[^A-Za-z0-9_.]", "_");
+	}
+
+	private void writeTerms(FileWriter fw, int[] cols, double[] coefs) throws IOException{
+		if(cols.length == 0 && numColumns > 0){
+			fw.write(" 0 " + lpName(colNames[0]));
+		}
+
+		for(int i = 0; i < cols.length; i++){
+			fw.write((coefs[i] < 0 ? " - " : " + ") + Math.abs(coefs[i]) + " " + lpName(colNames[cols[i]]));
+		}
+	}
+
+	// writes the problem in CPLEX LP format, ranged rows are split into two rows; names ending with .mps are written in free MPS format
+	public void exportModel(String filename) throws IOException{
+		if(filename.toLowerCase().endsWith(".mps")){
+			exportMps(filename);
+			return;
+		}
+
+		FileWriter fw = new FileWriter(filename);
+
+		fw.write("\\Problem name: " + name + "\n\n");
+		fw.write(maximize ? "Maximize\n" : "Minimize\n");
+		fw.write(" obj:");
+		writeTerms(fw, objCols, objCoefs);
+		fw.write("\nSubject To\n");
+
+		for(int r = 0; r < rowNames.size(); r++){
+			double lb = rowBounds.get(r)[0];
+			double ub = rowBounds.get(r)[1];
+			String rowName = lpName(rowNames.get(r));
+
+			if(lb > -INFINITY && ub < INFINITY && Math.abs(ub - lb) <= BOUND_TOLERANCE){
+				fw.write(" " + rowName + ":");
+				writeTerms(fw, rowCols.get(r), rowCoefs.get(r));
+				fw.write(" = " + lb + "\n");
+				continue;
+			}
+
+			if(lb > -INFINITY){
+				fw.write(" " + rowName + (ub < INFINITY ? "_lo" : "") + ":");
+				writeTerms(fw, rowCols.get(r), rowCoefs.get(r));
+				fw.write(" >= " + lb + "\n");
+			}
+
+			if(ub < INFINITY){
+				fw.write(" " + rowName + (lb > -INFINITY ? "_up" : "") + ":");
+				writeTerms(fw, rowCols.get(r), rowCoefs.get(r));
+				fw.write(" <= " + ub + "\n");
+			}
+		}
+
+		fw.write("Bounds\n");
+
+		for(int j = 0; j < numColumns; j++){
+			String lb = colLb[j] > -INFINITY ? Double.toString(colLb[j]) : "-inf";
+			String ub = colUb[j] < INFINITY ? Double.toString(colUb[j]) : "+inf";
+
+			fw.write(" " + lb + " <= " + lpName(colNames[j]) + " <= " + ub + "\n");
+		}
+
+		boolean hasInteger = false;
+
+		for(int j = 0; j < numColumns; j++){
+			if(colInteger[j]){
+				if(!hasInteger){
+					fw.write("Generals\n");
+					hasInteger = true;
+				}
+
+				fw.write(" " + lpName(colNames[j]) + "\n");
+			}
+		}
+
+		fw.write("End\n");
+		fw.close();
+	}
+
+	// free MPS with one ranged G row per ranged row, row names are made unique by appending the row index
+	private void exportMps(String filename) throws IOException{
+		int numRows = rowNames.size();
+		String[] names = new String[numRows];
+		Set<String> used = new HashSet<String>();
+
+		used.add("obj");
+
+		for(int r = 0; r < numRows; r++){
+			names[r] = lpName(rowNames.get(r));
+
+			if(!used.add(names[r])){
+				names[r] = names[r] + "_" + r;
+				used.add(names[r]);
+			}
+		}
+
+		// transpose the rows to columns, row -1 being the objective
+		int[] colStart = new int[numColumns + 1];
+
+		for(int i = 0; i < objCols.length; i++){
+			colStart[objCols[i] + 1]++;
+		}
+
+		for(int r = 0; r < numRows; r++){
+			for(int col : rowCols.get(r)){
+				colStart[col + 1]++;
+			}
+		}
+
+		for(int j = 0; j < numColumns; j++){
+			colStart[j + 1] += colStart[j];
+		}
+
+		int[] next = Arrays.copyOf(colStart, numColumns);
+		int[] termRows = new int[colStart[numColumns]];
+		double[] termCoefs = new double[colStart[numColumns]];
+
+		for(int i = 0; i < objCols.length; i++){
+			termRows[next[objCols[i]]] = -1;
+			termCoefs[next[objCols[i]]++] = objCoefs[i];
+		}
+
+		for(int r = 0; r < numRows; r++){
+			int[] cols = rowCols.get(r);
+			double[] coefs = rowCoefs.get(r);
+
+			for(int i = 0; i < cols.length; i++){
+				termRows[next[cols[i]]] = r;
+				termCoefs[next[cols[i]]++] = coefs[i];
+			}
+		}
+
+		BufferedWriter fw = new BufferedWriter(new FileWriter(filename), 1 << 16);
+
+		fw.write("NAME " + lpName(name) + "\n");
+		fw.write("OBJSENSE\n " + (maximize ? "MAX" : "MIN") + "\n");
+		fw.write("ROWS\n N obj\n");
+
+		for(int r = 0; r < numRows; r++){
+			double lb = rowBounds.get(r)[0];
+			double ub = rowBounds.get(r)[1];
+			String type;
+
+			if(lb > -INFINITY && ub < INFINITY && Math.abs(ub - lb) <= BOUND_TOLERANCE){
+				type = "E";
+			}
+			else if(lb > -INFINITY){
+				type = "G";
+			}
+			else if(ub < INFINITY){
+				type = "L";
+			}
+			else{
+				type = "N";
+			}
+
+			fw.write(" " + type + " " + names[r] + "\n");
+		}
+
+		fw.write("COLUMNS\n");
+
+		boolean inInteger = false;
+		int markers = 0;
+
+		for(int j = 0; j < numColumns; j++){
+			if(colInteger[j] != inInteger){
+				fw.write(" MARKER" + markers++ + " 'MARKER' " + (colInteger[j] ? "'INTORG'" : "'INTEND'") + "\n");
+				inInteger = colInteger[j];
+			}
+
+			String colName = lpName(colNames[j]);
+
+			// columns without terms still have to be declared
+			if(colStart[j] == colStart[j + 1]){
+				fw.write(" " + colName + " obj 0\n");
+			}
+
+			for(int k = colStart[j]; k < colStart[j + 1]; k++){
+				fw.write(" " + colName + " " + (termRows[k] < 0 ? "obj" : names[termRows[k]]) + " " + termCoefs[k] + "\n");
+			}
+		}
+
+		if(inInteger){
+			fw.write(" MARKER" + markers + " 'MARKER' 'INTEND'\n");
+		}
+
+		fw.write("RHS\n");
+
+		for(int r = 0; r < numRows; r++){
+			double lb = rowBounds.get(r)[0];
+			double ub = rowBounds.get(r)[1];
+			double rhs = lb > -INFINITY ? lb : ub < INFINITY ? ub : 0.0;
+
+			if(rhs != 0.0){
+				fw.write(" RHS " + names[r] + " " + rhs + "\n");
+			}
+		}
+
+		boolean hasRanges = false;
+
+		for(int r = 0; r < numRows; r++){
+			double lb = rowBounds.get(r)[0];
+			double ub = rowBounds.get(r)[1];
+
+			if(lb > -INFINITY && ub < INFINITY && Math.abs(ub - lb) > BOUND_TOLERANCE){
+				if(!hasRanges){
+					fw.write("RANGES\n");
+					hasRanges = true;
+				}
+
+				fw.write(" RNG " + names[r] + " " + (ub - lb) + "\n");
+			}
+		}
+
+		fw.write("BOUNDS\n");
+
+		for(int j = 0; j < numColumns; j++){
+			String colName = lpName(colNames[j]);
+			double lb = colLb[j];
+			double ub = colUb[j];
+
+			if(lb > -INFINITY && ub < INFINITY && lb == ub){
+				fw.write(" FX BND " + colName + " " + lb + "\n");
+				continue;
+			}
+
+			if(lb <= -INFINITY){
+				fw.write(ub < INFINITY ? " MI BND " + colName + "\n" : " FR BND " + colName + "\n");
+			}
+			else if(lb != 0.0){
+				fw.write(" LO BND " + colName + " " + lb + "\n");
+			}
+
+			if(ub < INFINITY){
+				fw.write(" UP BND " + colName + " " + ub + "\n");
+			}
+			else if(colInteger[j] && lb > -INFINITY){
+				// some readers bound integer columns without an upper bound by 1
+				fw.write(" PL BND " + colName + "\n");
+			}
+		}
+
+		fw.write("ENDATA\n");
+		fw.close();
+	}
+
+	public void writeSolution(String filename) throws Exception{
+		checkSolved();
+
+		FileWriter fw = new FileWriter(filename);
+
+		fw.write("Objective, " + objectiveValue + "\n");
+
+		for(int j = 0; j < numColumns; j++){
+			fw.write(colNames[j] + ", " + solution[j] + "\n");
+		}
+
+		fw.close();
+	}
+
+	public void end(){
+		rowCols.clear();
+		rowCoefs.clear();
+		rowBounds.clear();
+		rowNames.clear();
+		solution = null;
+	}
+}
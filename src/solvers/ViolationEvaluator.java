@@ -0,0 +1,373 @@
+package solvers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import models.ActivityIndex;
+import models.DARMSModel;
+import models.Flight;
+import models.FlightAggregation;
+import models.ModelIndex;
+import models.PayoffStructure;
+import models.RiskCategory;
+import models.ScenarioProvider;
+import models.ScenarioSource;
+import models.ScenarioTensor;
+import models.ScreeningResource;
+import models.ScreeningTables;
+
+import org.apache.commons.math3.distribution.BetaDistribution;
+import org.apache.commons.math3.stat.interval.ConfidenceInterval;
+
+/**
+ * Scores a solved linear decision rule against out-of-sample scenarios and
+ * reports the fraction of scenarios in which any coverage, probability or
+ * throughput constraint is violated.
+ *
+ * The strategy is a DefenderStrategy over all time windows of the model,
+ * whose stored slopes are walked pair by pair, together with d[c]. The LP
+ * only has columns and rows for the (w, f, c) slices in the given activity
+ * index. A scenario with passengers in another slice screens them with
+ * b = m = 0, so there it is scored on the coverage rows d[c] <= defUncov(f)
+ * alone, and it is counted in getNumUnindexed. With a flight aggregation every
+ * scenario is aggregated the same way as the LP samples. The first model.getNumViolProb() scenarios are the stored violation
+ * samples; any further scenarios are drawn on the fly from sample indices
+ * after the ones used to build the LP, so they never overlap the xi samples.
+ */
+public class ViolationEvaluator {
+	private static final int BLOCK_SIZE = 256;
+
+	private static final int UNINDEXED = 1;
+	private static final int UNINDEXED_VIOLATED = 2;
+
+	private DARMSModel model;
+	private ModelIndex index;
+	private FlightAggregation aggregation;
+
+	private DefenderStrategy strategy;
+	private double[] d;
+
+	private int numWindows;
+	private int numFlights;
+	private int numCategories;
+	private int numAttackMethods;
+	private int numOperations;
+	private int numResources;
+
+	// f * C + c of the active slices of each window
+	private int[][] windowSlices;
+
+	// f * C + c of the slices of each window that are not in the activity index
+	private int[][] unindexedSlices;
+
+	private double[] payoffGap;
+	private double[] defUncov;
+
+	private ScreeningTables tables;
+	private double[] capacities;
+
+	private int numScenarios;
+	private int numViolated;
+	private int numUnindexed;
+
+	public ViolationEvaluator(DARMSModel model, PayoffStructure payoffStructure, ActivityIndex activity, FlightAggregation aggregation, DefenderStrategy strategy, double[] d){
+		this.model = model;
+		this.index = model.getIndex();
+		this.aggregation = aggregation;
+		this.strategy = strategy;
+		this.d = d;
+
+		numWindows = index.numTimeWindows();
+		numFlights = index.numFlights();
+		numCategories = index.numRiskCategories();
+		numAttackMethods = index.numAttackMethods();
+		numOperations = index.numScreeningOperations();
+		numResources = index.numScreeningResources();
+
+		windowSlices = new int[numWindows][];
+		unindexedSlices = new int[numWindows][];
+
+		for(int w = 0; w < numWindows; w++){
+			List<Integer> slices = new ArrayList<Integer>();
+			List<Integer> unindexed = new ArrayList<Integer>();
+
+			for(Flight f : index.getFlights()){
+				for(RiskCategory c : index.getRiskCategories()){
+					if(activity.isActive(w, f.ordinal(), c.ordinal())){
+						slices.add(f.ordinal() * numCategories + c.ordinal());
+					}
+					else{
+						unindexed.add(f.ordinal() * numCategories + c.ordinal());
+					}
+				}
+			}
+
+			windowSlices[w] = toArray(slices);
+			unindexedSlices[w] = toArray(unindexed);
+		}
+
+		payoffGap = new double[numFlights];
+		defUncov = new double[numFlights];
+
+		for(Flight f : index.getFlights()){
+			payoffGap[f.ordinal()] = payoffStructure.defUncov(f) - payoffStructure.defCov(f);
+			defUncov[f.ordinal()] = payoffStructure.defUncov(f);
+		}
+
+		tables = model.getScreeningTables();
+
+		Map<ScreeningResource, Integer> screeningResources = model.getScreeningResources();
+
+		capacities = new double[numResources];
+
+		for(int r = 0; r < numResources; r++){
+			ScreeningResource resource = index.getScreeningResource(r);
+
+			capacities[r] = resource.capacity() * screeningResources.get(resource);
+		}
+	}
+
+	private static int[] toArray(List<Integer> list){
+		int[] array = new int[list.size()];
+
+		for(int i = 0; i < list.size(); i++){
+			array[i] = list.get(i);
+		}
+
+		return array;
+	}
+
+	/**
+	 * Scores the first numberScenarios violation scenarios on a pool of
+	 * threads and returns the fraction that violate at least one constraint.
+	 */
+	public double evaluate(int numberScenarios, int threads) throws Exception{
+		ScenarioProvider scenarios = model.getViolScenarios();
+		ScenarioProvider extra = model.getExtraViolScenarios(Math.max(0, numberScenarios - scenarios.size()));
+
+		return evaluate(scenarios, extra, numberScenarios, threads);
+	}
+
+	// scores every scenario of scenarios, e.g. the ones kept in a ScenarioStore
+	public double evaluate(ScenarioSource scenarios, int threads) throws Exception{
+		return evaluate(scenarios, null, scenarios.size(), threads);
+	}
+
+	// scenarios beyond the ones of first are taken from rest
+	private double evaluate(final ScenarioSource first, final ScenarioSource rest, int numberScenarios, int threads) throws Exception{
+		List<Future<int[]>> futures = new ArrayList<Future<int[]>>();
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, threads));
+
+		int violated = 0;
+		int unindexed = 0;
+
+		try{
+			for(int start = 0; start < numberScenarios; start += BLOCK_SIZE){
+				final int from = start;
+				final int to = Math.min(start + BLOCK_SIZE, numberScenarios);
+
+				futures.add(pool.submit(new Callable<int[]>(){
+					public int[] call(){
+						double[] coverage = new double[numFlights * numCategories * numOperations];
+						int violated = 0;
+						int unindexed = 0;
+
+						// scenarios are loaded block by block and dropped once scored
+						ScenarioTensor block = new ScenarioTensor(index, to - from);
+						int numFirst = Math.max(0, Math.min(to, first.size()) - from);
+
+						first.fill(from, block, 0, numFirst);
+
+						if(numFirst < to - from){
+							rest.fill(Math.max(0, from - first.size()), block, numFirst, to - from - numFirst);
+						}
+
+						if(aggregation != null){
+							block = aggregation.aggregate(block);
+						}
+
+						for(int s = 0; s < to - from; s++){
+							int outside = scoreUnindexed(block, s);
+
+							if(outside != 0){
+								unindexed++;
+							}
+
+							if(outside == UNINDEXED_VIOLATED || isViolated(block, s, coverage)){
+								violated++;
+							}
+						}
+
+						return new int[]{violated, unindexed};
+					}
+				}));
+			}
+
+			for(Future<int[]> future : futures){
+				int[] counts = future.get();
+
+				violated += counts[0];
+				unindexed += counts[1];
+			}
+		}
+		catch(ExecutionException e){
+			if(e.getCause() instanceof Exception){
+				throw (Exception) e.getCause();
+			}
+
+			throw e;
+		}
+		finally{
+			pool.shutdown();
+		}
+
+		this.numScenarios = numberScenarios;
+		this.numViolated = violated;
+		this.numUnindexed = unindexed;
+
+		return getViolationProbability();
+	}
+
+	public int getNumScenarios(){
+		return numScenarios;
+	}
+
+	public int getNumViolated(){
+		return numViolated;
+	}
+
+	// scenarios with passengers in a slice outside the activity index
+	public int getNumUnindexed(){
+		return numUnindexed;
+	}
+
+	public double getViolationProbability(){
+		return numScenarios > 0 ? numViolated / (1.0 * numScenarios) : 0.0;
+	}
+
+	// Clopper-Pearson interval for the violation probability, e.g. confidence = 0.95
+	public ConfidenceInterval getConfidenceInterval(double confidence){
+		double alpha = (1.0 - confidence) / 2.0;
+		double lower = 0.0;
+		double upper = 1.0;
+
+		// ClopperPearsonInterval rejects 0 and numScenarios violations, where one bound is exact
+		if(numViolated > 0){
+			lower = new BetaDistribution(numViolated, numScenarios - numViolated + 1).inverseCumulativeProbability(alpha);
+		}
+
+		if(numViolated < numScenarios){
+			upper = new BetaDistribution(numViolated + 1, numScenarios - numViolated).inverseCumulativeProbability(1.0 - alpha);
+		}
+
+		return new ConfidenceInterval(lower, upper, confidence);
+	}
+
+	// passengers of scenario s in slices without LP columns are screened with b = m = 0, so of their rows only the
+	// coverage rows d[c] <= defUncov(f) can be violated; returns 0 if there are none, UNINDEXED or UNINDEXED_VIOLATED
+	private int scoreUnindexed(ScenarioTensor v, int s){
+		int result = 0;
+
+		for(int w = 0; w < numWindows; w++){
+			for(int slice : unindexedSlices[w]){
+				int f = slice / numCategories;
+				int c = slice % numCategories;
+
+				if(v.get(s, w, f, c) > 0){
+					if(numAttackMethods > 0 && d[c] > defUncov[f] + 0.00000001){
+						return UNINDEXED_VIOLATED;
+					}
+
+					result = UNINDEXED;
+				}
+			}
+		}
+
+		return result;
+	}
+
+	// returns at the first violated constraint, coverage is scratch space for one window
+	private boolean isViolated(ScenarioTensor v, int s, double[] coverage){
+		for(int w = 0; w < numWindows; w++){
+			int[] slices = windowSlices[w];
+
+			for(int slice : slices){
+				Arrays.fill(coverage, slice * numOperations, (slice + 1) * numOperations, 0.0);
+			}
+
+			// m * xi over the earlier windows, from the stored slopes only
+			for(int k = 0; k < w; k++){
+				int end = strategy.endEntry(w, k);
+
+				for(int e = strategy.firstEntry(w, k); e < end; e++){
+					int column = strategy.entryColumn(e);
+					int slice = column / numOperations;
+
+					coverage[column] = coverage[column] + strategy.entryValue(e) * v.get(s, k, slice / numCategories, slice % numCategories);
+				}
+			}
+
+			// coverage probability m * xi + b of every active (f, c) and o
+			for(int slice : slices){
+				int f = slice / numCategories;
+				int c = slice % numCategories;
+
+				for(int o = 0; o < numOperations; o++){
+					double val = coverage[slice * numOperations + o] + strategy.b(w, f, c, o);
+
+					if(val > 1.000001 || val < -0.00000001){
+						return true;
+					}
+
+					coverage[slice * numOperations + o] = val;
+				}
+			}
+
+			// defender utility against every attack method
+			for(int slice : slices){
+				int f = slice / numCategories;
+				int c = slice % numCategories;
+
+				for(int a = 0; a < numAttackMethods; a++){
+					double val = 0;
+
+					for(int o = 0; o < numOperations; o++){
+						val = val + coverage[slice * numOperations + o] * tables.effectiveness(o, c, a);
+					}
+
+					val = val * payoffGap[f] + d[c];
+
+					if(val > defUncov[f] + 0.00000001){
+						return true;
+					}
+				}
+			}
+
+			// throughput of every screening resource, (m * xi + b) * xi_t
+			for(int r = 0; r < numResources; r++){
+				double val = 0;
+
+				for(int slice : slices){
+					int vt = v.get(s, w, slice / numCategories, slice % numCategories);
+
+					for(int o : tables.getOperations(r)){
+						val = val + coverage[slice * numOperations + o] * vt;
+					}
+				}
+
+				if(val > capacities[r] + 0.000000001){
+					return true;
+				}
+			}
+		}
+
+		return false;
+	}
+}
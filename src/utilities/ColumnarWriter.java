@@ -0,0 +1,216 @@
+package utilities;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes a table of int and double columns to a binary file in which every
+ * column is one contiguous little-endian array starting at a multiple of 8
+ * bytes, so analysis tools can memory-map a column directly (for example
+ * numpy.memmap with dtype '<i4' or '<f8'). Rows are collected in memory and
+ * the file is written by close.
+ *
+ * Layout, all little-endian:
+ *   8 bytes   "DARMSCOL"
+ *   int       format version, 1
+ *   int       number of columns
+ *   long      number of rows
+ *   per column:
+ *     int     length of the name, followed by the name in UTF-8
+ *     int     type, 0 for int32 and 1 for float64
+ *     int     number of labels, followed by each label as an int length and
+ *             UTF-8 bytes; value i of an int column with labels stands for label i
+ *     long    offset of the column data from the start of the file
+ *   column data
+ */
+public class ColumnarWriter {
+	public static final int INT = 0;
+	public static final int DOUBLE = 1;
+
+	private static final byte[] MAGIC = {'D', 'A', 'R', 'M', 'S', 'C', 'O', 'L'};
+	private static final int VERSION = 1;
+
+	private String filename;
+
+	private List<String> names = new ArrayList<String>();
+	private List<Integer> types = new ArrayList<Integer>();
+	private List<List<String>> labels = new ArrayList<List<String>>();
+
+	private int[][] ints = new int[0][];
+	private double[][] doubles = new double[0][];
+
+	private int numRows;
+	private int capacity = 1024;
+
+	public ColumnarWriter(String filename){
+		this.filename = filename;
+	}
+
+	// returns the column number, labels may be null
+	public int addIntColumn(String name, List<String> columnLabels){
+		return addColumn(name, INT, columnLabels);
+	}
+
+	public int addDoubleColumn(String name){
+		return addColumn(name, DOUBLE, null);
+	}
+
+	private int addColumn(String name, int type, List<String> columnLabels){
+		if(numRows > 0){
+			throw new IllegalStateException("Columns must be added before the first row.");
+		}
+
+		names.add(name);
+		types.add(type);
+		labels.add(columnLabels != null ? columnLabels : new ArrayList<String>());
+
+		ints = Arrays.copyOf(ints, names.size());
+		doubles = Arrays.copyOf(doubles, names.size());
+
+		if(type == INT){
+			ints[names.size() - 1] = new int[capacity];
+		}
+		else{
+			doubles[names.size() - 1] = new double[capacity];
+		}
+
+		return names.size() - 1;
+	}
+
+	public void set(int column, int value){
+		ints[column][numRows] = value;
+	}
+
+	public void set(int column, double value){
+		doubles[column][numRows] = value;
+	}
+
+	public void endRow(){
+		numRows++;
+
+		if(numRows == capacity){
+			capacity = 2 * capacity;
+
+			for(int i = 0; i < names.size(); i++){
+				if(ints[i] != null){
+					ints[i] = Arrays.copyOf(ints[i], capacity);
+				}
+				else{
+					doubles[i] = Arrays.copyOf(doubles[i], capacity);
+				}
+			}
+		}
+	}
+
+	public int numRows(){
+		return numRows;
+	}
+
+	public void close() throws IOException{
+		List<byte[]> encodedNames = new ArrayList<byte[]>();
+		List<List<byte[]>> encodedLabels = new ArrayList<List<byte[]>>();
+		long headerSize = MAGIC.length + 4 + 4 + 8;
+
+		for(int i = 0; i < names.size(); i++){
+			encodedNames.add(names.get(i).getBytes("UTF-8"));
+			headerSize += 4 + encodedNames.get(i).length + 4 + 4 + 8;
+
+			List<byte[]> columnLabels = new ArrayList<byte[]>();
+
+			for(String label : labels.get(i)){
+				columnLabels.add(label.getBytes("UTF-8"));
+				headerSize += 4 + columnLabels.get(columnLabels.size() - 1).length;
+			}
+
+			encodedLabels.add(columnLabels);
+		}
+
+		long[] offsets = new long[names.size()];
+		long offset = align(headerSize);
+
+		for(int i = 0; i < names.size(); i++){
+			offsets[i] = offset;
+			offset = align(offset + (long) numRows * (types.get(i) == INT ? 4 : 8));
+		}
+
+		ByteBuffer header = ByteBuffer.allocate((int) headerSize).order(ByteOrder.LITTLE_ENDIAN);
+
+		header.put(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(names.size());
+		header.putLong(numRows);
+
+		for(int i = 0; i < names.size(); i++){
+			header.putInt(encodedNames.get(i).length);
+			header.put(encodedNames.get(i));
+			header.putInt(types.get(i));
+			header.putInt(encodedLabels.get(i).size());
+
+			for(byte[] label : encodedLabels.get(i)){
+				header.putInt(label.length);
+				header.put(label);
+			}
+
+			header.putLong(offsets[i]);
+		}
+
+		header.flip();
+
+		RandomAccessFile file = new RandomAccessFile(filename, "rw");
+
+		try{
+			file.setLength(0);
+
+			FileChannel channel = file.getChannel();
+
+			write(channel, header, 0);
+
+			ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+			for(int i = 0; i < names.size(); i++){
+				long position = offsets[i];
+				int width = types.get(i) == INT ? 4 : 8;
+				int perBuffer = buffer.capacity() / width;
+
+				for(int from = 0; from < numRows; from += perBuffer){
+					int n = Math.min(perBuffer, numRows - from);
+
+					buffer.clear();
+
+					if(width == 4){
+						buffer.asIntBuffer().put(ints[i], from, n);
+					}
+					else{
+						buffer.asDoubleBuffer().put(doubles[i], from, n);
+					}
+
+					buffer.limit(n * width);
+					position = write(channel, buffer, position);
+				}
+			}
+
+			file.setLength(offset);
+		}
+		finally{
+			file.close();
+		}
+	}
+
+	private static long align(long offset){
+		return (offset + 7) & ~7L;
+	}
+
+	private static long write(FileChannel channel, ByteBuffer buffer, long position) throws IOException{
+		while(buffer.hasRemaining()){
+			position += channel.write(buffer, position);
+		}
+
+		return position;
+	}
+}
@@ -0,0 +1,248 @@
+package utilities;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Reads a comma separated file one record at a time into a reused character
+ * buffer. Only the field boundaries of a record are located, with leading and
+ * trailing whitespace excluded like String.trim; a field becomes a String or
+ * a number only when it is asked for, and integers and times are parsed
+ * straight from the buffer. Reading a file therefore allocates next to
+ * nothing per record.
+ *
+ * Lines end with \n or \r\n and fields are not quoted, as in all input files
+ * of the model.
+ */
+public class CsvReader {
+	private String filename;
+	private Reader reader;
+
+	private char[] buffer = new char[1 << 16];
+	private int position;
+	private int limit;
+
+	private char[] line = new char[256];
+	private int length;
+	private int lineNumber;
+
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private int numFields;
+
+	public CsvReader(String filename) throws IOException{
+		this.filename = filename;
+		this.reader = new FileReader(filename);
+	}
+
+	// moves to the next line, false at the end of the file
+	public boolean next() throws IOException{
+		length = 0;
+
+		while(true){
+			if(position == limit){
+				limit = reader.read(buffer, 0, buffer.length);
+				position = 0;
+
+				if(limit <= 0){
+					limit = 0;
+
+					if(length == 0){
+						return false;
+					}
+
+					break;
+				}
+			}
+
+			char ch = buffer[position++];
+
+			if(ch == '\n'){
+				break;
+			}
+
+			if(length == line.length){
+				char[] longer = new char[2 * line.length];
+				System.arraycopy(line, 0, longer, 0, length);
+				line = longer;
+			}
+
+			line[length++] = ch;
+		}
+
+		if(length > 0 && line[length - 1] == '\r'){
+			length--;
+		}
+
+		lineNumber++;
+		split();
+
+		return true;
+	}
+
+	private void split(){
+		numFields = 0;
+		int start = 0;
+
+		for(int i = 0; i <= length; i++){
+			if(i == length || line[i] == ','){
+				if(numFields == starts.length){
+					int[] longer = new int[2 * starts.length];
+					System.arraycopy(starts, 0, longer, 0, numFields);
+					starts = longer;
+
+					longer = new int[2 * ends.length];
+					System.arraycopy(ends, 0, longer, 0, numFields);
+					ends = longer;
+				}
+
+				int from = start;
+				int to = i;
+
+				while(from < to && line[from] <= ' '){
+					from++;
+				}
+
+				while(to > from && line[to - 1] <= ' '){
+					to--;
+				}
+
+				starts[numFields] = from;
+				ends[numFields] = to;
+				numFields++;
+
+				start = i + 1;
+			}
+		}
+	}
+
+	public String getFilename(){
+		return filename;
+	}
+
+	// 1 for the first line of the file
+	public int getLineNumber(){
+		return lineNumber;
+	}
+
+	// file and line, for error messages
+	public String location(){
+		return filename + ":" + lineNumber;
+	}
+
+	// a blank line has one empty field
+	public int numFields(){
+		return numFields;
+	}
+
+	public boolean isBlank(){
+		return numFields == 1 && starts[0] == ends[0];
+	}
+
+	public String getLine(){
+		return new String(line, 0, length);
+	}
+
+	public String field(int i){
+		return new String(line, starts[i], ends[i] - starts[i]);
+	}
+
+	public boolean fieldEqualsIgnoreCase(int i, String s){
+		int from = starts[i];
+		int n = ends[i] - from;
+
+		if(n != s.length()){
+			return false;
+		}
+
+		for(int k = 0; k < n; k++){
+			char a = line[from + k];
+			char b = s.charAt(k);
+
+			if(a != b && Character.toUpperCase(a) != Character.toUpperCase(b) && Character.toLowerCase(a) != Character.toLowerCase(b)){
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public int intField(int i){
+		return parseInt(starts[i], ends[i], i);
+	}
+
+	public double doubleField(int i){
+		try{
+			return Double.parseDouble(field(i));
+		}
+		catch(NumberFormatException e){
+			throw new NumberFormatException("Improperly formatted number \"" + field(i) + "\" in column " + (i + 1) + ".");
+		}
+	}
+
+	// minutes since midnight of an HH:MM field, see DARMSHelper.convertTimeToInteger
+	public int timeField(int i){
+		int from = starts[i];
+		int to = ends[i];
+		int colon = -1;
+
+		for(int k = from; k < to; k++){
+			if(line[k] == ':'){
+				if(colon >= 0){
+					colon = -1;
+					break;
+				}
+
+				colon = k;
+			}
+		}
+
+		if(colon < 0){
+			throw new NumberFormatException("Improperly formatted time \"" + field(i) + "\".");
+		}
+
+		int hour = parseInt(from, colon, i);
+		int minute = parseInt(colon + 1, to, i);
+
+		if(hour < 0 || hour > 23 || minute < 0 || minute > 59){
+			throw new NumberFormatException("Improperly formatted time \"" + field(i) + "\".");
+		}
+
+		return (hour * 60) + minute;
+	}
+
+	private int parseInt(int from, int to, int i){
+		boolean negative = false;
+		int k = from;
+
+		if(k < to && (line[k] == '-' || line[k] == '+')){
+			negative = line[k] == '-';
+			k++;
+		}
+
+		if(k == to){
+			throw new NumberFormatException("Improperly formatted number \"" + field(i) + "\" in column " + (i + 1) + ".");
+		}
+
+		// accumulated as a negative number, which reaches Integer.MIN_VALUE
+		int value = 0;
+		int min = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+
+		for(; k < to; k++){
+			int digit = line[k] - '0';
+
+			if(digit < 0 || digit > 9 || value < (min + digit) / 10){
+				throw new NumberFormatException("Improperly formatted number \"" + field(i) + "\" in column " + (i + 1) + ".");
+			}
+
+			value = value * 10 - digit;
+		}
+
+		return negative ? value : -value;
+	}
+
+	public void close() throws IOException{
+		reader.close();
+	}
+}
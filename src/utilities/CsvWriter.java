@@ -0,0 +1,85 @@
+package utilities;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams the rows of a CSV file through a buffer in the layout of the
+ * output files of the solvers: fields separated by ", " and a line break
+ * before every line but the first. Files whose name ends with .gz are
+ * gzip-compressed.
+ */
+public class CsvWriter {
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private Writer out;
+	private boolean firstLine = true;
+	private boolean lineStarted;
+
+	public CsvWriter(String filename) throws IOException{
+		OutputStream stream = new FileOutputStream(filename);
+
+		if(filename.endsWith(".gz")){
+			stream = new GZIPOutputStream(stream, BUFFER_SIZE);
+		}
+
+		out = new BufferedWriter(new OutputStreamWriter(stream), BUFFER_SIZE);
+	}
+
+	// filename without a trailing .csv or .csv.gz, to derive the names of related files
+	public static String baseName(String filename){
+		if(filename.endsWith(".csv.gz")){
+			return filename.substring(0, filename.length() - ".csv.gz".length());
+		}
+
+		if(filename.endsWith(".csv")){
+			return filename.substring(0, filename.length() - ".csv".length());
+		}
+
+		return filename;
+	}
+
+	public CsvWriter field(String value) throws IOException{
+		if(lineStarted){
+			out.write(", ");
+		}
+		else{
+			if(!firstLine){
+				out.write('\n');
+			}
+
+			firstLine = false;
+			lineStarted = true;
+		}
+
+		out.write(value);
+
+		return this;
+	}
+
+	public CsvWriter field(Object value) throws IOException{
+		return field(String.valueOf(value));
+	}
+
+	public CsvWriter field(int value) throws IOException{
+		return field(Integer.toString(value));
+	}
+
+	public CsvWriter field(double value) throws IOException{
+		return field(Double.toString(value));
+	}
+
+	// the next field starts a new line
+	public void endLine(){
+		lineStarted = false;
+	}
+
+	public void close() throws IOException{
+		out.close();
+	}
+}
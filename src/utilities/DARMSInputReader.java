@@ -0,0 +1,377 @@
+package utilities;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import models.AttackMethod;
+import models.DARMSModel;
+import models.Flight;
+import models.RiskCategory;
+import models.ScreeningResource;
+
+/**
+ * Reads the risk category, flight, screening resource and effectiveness
+ * files of a model with CsvReader. Several flight files and the
+ * effectiveness files of the screening resources are read in parallel.
+ *
+ * Malformed lines do not stop a read: every problem is recorded with its
+ * file and line, the line is skipped and reading goes on, so a single call
+ * to check reports all errors of the input at once.
+ */
+public class DARMSInputReader {
+	private static final int FLIGHT_COLUMNS = 7;
+
+	private int threads;
+	private List<String> errors = Collections.synchronizedList(new ArrayList<String>());
+
+	public DARMSInputReader(int threads){
+		this.threads = Math.max(1, threads);
+	}
+
+	public List<String> getErrors(){
+		return errors;
+	}
+
+	// throws an Exception listing every error found so far
+	public void check() throws Exception{
+		if(errors.isEmpty()){
+			return;
+		}
+
+		StringBuilder message = new StringBuilder(errors.size() + " error(s) in the input files:");
+
+		synchronized(errors){
+			for(String error : errors){
+				message.append("\n").append(error);
+			}
+		}
+
+		throw new Exception(message.toString());
+	}
+
+	public Map<RiskCategory, Double> readAdversaryDistribution(String filename) throws Exception{
+		Map<RiskCategory, Double> adversaryDistribution = new LinkedHashMap<RiskCategory, Double>();
+
+		CsvReader reader = open(filename);
+
+		try{
+			reader.next();
+
+			while(reader.next()){
+				if(reader.numFields() != 2){
+					continue;
+				}
+
+				try{
+					double probability = reader.doubleField(1);
+
+					adversaryDistribution.put(new RiskCategory(reader.field(0)), probability);
+				}
+				catch(NumberFormatException e){
+					errors.add(reader.location() + ": " + e.getMessage());
+				}
+			}
+		}
+		finally{
+			reader.close();
+		}
+
+		double probability = 0.0;
+
+		for(double p : adversaryDistribution.values()){
+			probability += p;
+		}
+
+		if(Math.abs(1.0 - probability) > DARMSModel.EPSILON){
+			errors.add(filename + ": Adversary distribution is not a valid probability distribution.");
+		}
+
+		return adversaryDistribution;
+	}
+
+	// the flights of all files, in the order of the files
+	public List<Flight> readFlights(final Set<RiskCategory> riskCategories, List<String> filenames) throws Exception{
+		List<Callable<List<Flight>>> tasks = new ArrayList<Callable<List<Flight>>>();
+
+		for(final String filename : filenames){
+			tasks.add(new Callable<List<Flight>>(){
+				public List<Flight> call() throws Exception{
+					return readFlights(riskCategories, filename);
+				}
+			});
+		}
+
+		List<Flight> flights = new ArrayList<Flight>();
+
+		for(List<Flight> fileFlights : invokeAll(tasks)){
+			flights.addAll(fileFlights);
+		}
+
+		return flights;
+	}
+
+	public List<Flight> readFlights(Set<RiskCategory> riskCategories, String filename) throws Exception{
+		List<Flight> flights = new ArrayList<Flight>();
+
+		CsvReader reader = open(filename);
+
+		try{
+			if(!reader.next()){
+				errors.add(filename + ": Empty flight file.");
+				return flights;
+			}
+
+			RiskCategory[] columns = categoryColumns(reader, riskCategories, FLIGHT_COLUMNS, true);
+
+			while(reader.next()){
+				if(reader.isBlank()){
+					continue;
+				}
+
+				if(reader.numFields() != columns.length){
+					errors.add(reader.location() + ": Expected " + columns.length + " columns, found " + reader.numFields() + ".");
+					continue;
+				}
+
+				Flight.FlightType flightType = null;
+
+				if(reader.fieldEqualsIgnoreCase(1, Flight.FlightType.DOMESTIC.toString())){
+					flightType = Flight.FlightType.DOMESTIC;
+				}
+				else if(reader.fieldEqualsIgnoreCase(1, Flight.FlightType.INTERNATIONAL.toString())){
+					flightType = Flight.FlightType.INTERNATIONAL;
+				}
+				else{
+					errors.add(reader.location() + ": Unsupported FlightType \"" + reader.field(1) + "\".");
+					continue;
+				}
+
+				try{
+					int departureTime = reader.timeField(2);
+
+					int defUncovPayoff = reader.intField(3);
+					int defCovPayoff = reader.intField(4);
+					int attUncovPayoff = reader.intField(5);
+					int attCovPayoff = reader.intField(6);
+
+					Map<RiskCategory, Integer> distribution = new HashMap<RiskCategory, Integer>(2 * riskCategories.size());
+
+					for(int column = FLIGHT_COLUMNS; column < columns.length; column++){
+						distribution.put(columns[column], reader.intField(column));
+					}
+
+					Flight f = new Flight(reader.field(0), flightType, departureTime, distribution);
+					f.setPayoffs(defUncovPayoff, defCovPayoff, attUncovPayoff, attCovPayoff);
+
+					flights.add(f);
+				}
+				catch(NumberFormatException e){
+					errors.add(reader.location() + ": " + e.getMessage());
+				}
+			}
+		}
+		finally{
+			reader.close();
+		}
+
+		return flights;
+	}
+
+	// the resources in file order with their quantities; the effectiveness files are read in parallel
+	public Map<ScreeningResource, Integer> readScreeningResources(final Set<RiskCategory> riskCategories, final List<AttackMethod> attackMethods, String filename) throws Exception{
+		Map<ScreeningResource, Integer> screeningResources = new LinkedHashMap<ScreeningResource, Integer>();
+		final List<ScreeningResource> resources = new ArrayList<ScreeningResource>();
+		List<Callable<Map<AttackMethod, Map<RiskCategory, Double>>>> tasks = new ArrayList<Callable<Map<AttackMethod, Map<RiskCategory, Double>>>>();
+
+		CsvReader reader = open(filename);
+
+		try{
+			reader.next();
+
+			while(reader.next()){
+				if(reader.isBlank()){
+					continue;
+				}
+
+				if(reader.numFields() < 4){
+					errors.add(reader.location() + ": Expected 4 columns, found " + reader.numFields() + ".");
+					continue;
+				}
+
+				try{
+					int quantity = reader.intField(1);
+					int capacity = reader.intField(2);
+					final String effectivenessFilename = reader.field(3);
+
+					ScreeningResource r = new ScreeningResource(reader.field(0), capacity, 0);
+
+					screeningResources.put(r, quantity);
+					resources.add(r);
+
+					tasks.add(new Callable<Map<AttackMethod, Map<RiskCategory, Double>>>(){
+						public Map<AttackMethod, Map<RiskCategory, Double>> call() throws Exception{
+							return readScreeningResourceEffectiveness(riskCategories, attackMethods, effectivenessFilename);
+						}
+					});
+				}
+				catch(NumberFormatException e){
+					errors.add(reader.location() + ": " + e.getMessage());
+				}
+			}
+		}
+		finally{
+			reader.close();
+		}
+
+		List<Map<AttackMethod, Map<RiskCategory, Double>>> effectiveness = invokeAll(tasks);
+
+		for(int i = 0; i < resources.size(); i++){
+			resources.get(i).setEffectiveness(effectiveness.get(i));
+		}
+
+		return screeningResources;
+	}
+
+	public Map<AttackMethod, Map<RiskCategory, Double>> readScreeningResourceEffectiveness(Set<RiskCategory> riskCategories, List<AttackMethod> attackMethods, String filename) throws Exception{
+		Map<AttackMethod, Map<RiskCategory, Double>> effectivenessMap = new HashMap<AttackMethod, Map<RiskCategory, Double>>();
+
+		CsvReader reader = open(filename);
+
+		try{
+			if(!reader.next()){
+				errors.add(filename + ": Empty effectiveness file.");
+				return effectivenessMap;
+			}
+
+			RiskCategory[] columns = categoryColumns(reader, riskCategories, 1, false);
+
+			while(reader.next()){
+				AttackMethod m = null;
+
+				for(AttackMethod method : attackMethods){
+					if(reader.fieldEqualsIgnoreCase(0, method.toString())){
+						m = method;
+					}
+				}
+
+				if(m == null){
+					if(DARMSModelBuilder.verb){
+						System.out.println("IGNORED: Effectiveness information for attack method \"" + reader.field(0) + "\" in file " + filename + ".");
+					}
+
+					continue;
+				}
+
+				Map<RiskCategory, Double> effectiveness = new HashMap<RiskCategory, Double>();
+
+				try{
+					for(int column = 1; column < Math.min(columns.length, reader.numFields()); column++){
+						if(columns[column] != null){
+							effectiveness.put(columns[column], reader.doubleField(column));
+						}
+					}
+
+					if(reader.numFields() < columns.length){
+						errors.add(reader.location() + ": Expected " + columns.length + " columns, found " + reader.numFields() + ".");
+					}
+
+					effectivenessMap.put(m, effectiveness);
+				}
+				catch(NumberFormatException e){
+					errors.add(reader.location() + ": " + e.getMessage());
+				}
+			}
+		}
+		finally{
+			reader.close();
+		}
+
+		for(AttackMethod m : attackMethods){
+			if(!effectivenessMap.containsKey(m)){
+				errors.add(filename + ": No effectiveness information found for attack method \"" + m + "\".");
+			}
+		}
+
+		return effectivenessMap;
+	}
+
+	private CsvReader open(String filename) throws Exception{
+		if(DARMSModelBuilder.verb){
+			System.out.println("Reading in data file: " + filename);
+		}
+
+		return new CsvReader(filename);
+	}
+
+	// the risk category of every column of a header line from column first on, null for ignored columns
+	private RiskCategory[] categoryColumns(CsvReader reader, Set<RiskCategory> riskCategories, int first, boolean strict){
+		RiskCategory[] columns = new RiskCategory[Math.max(first, reader.numFields())];
+		Set<RiskCategory> found = new HashSet<RiskCategory>();
+
+		for(int i = first; i < reader.numFields(); i++){
+			for(RiskCategory c : riskCategories){
+				if(reader.fieldEqualsIgnoreCase(i, c.toString())){
+					columns[i] = c;
+					found.add(c);
+				}
+			}
+
+			if(columns[i] == null){
+				if(strict){
+					errors.add(reader.location() + ": Unrecognized risk category \"" + reader.field(i) + "\".");
+				}
+				else if(DARMSModelBuilder.verb){
+					System.out.println("IGNORED: Effectiveness information for risk category \"" + reader.field(i) + "\" in file " + reader.getFilename() + ".");
+				}
+			}
+		}
+
+		for(RiskCategory c : riskCategories){
+			if(!found.contains(c)){
+				errors.add(reader.location() + ": No information found for risk category \"" + c + "\".");
+			}
+		}
+
+		return columns;
+	}
+
+	// runs the tasks on up to threads threads and returns their results in order
+	private <T> List<T> invokeAll(List<Callable<T>> tasks) throws Exception{
+		List<T> results = new ArrayList<T>();
+
+		if(tasks.isEmpty()){
+			return results;
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, tasks.size()));
+
+		try{
+			for(Future<T> future : pool.invokeAll(tasks)){
+				results.add(future.get());
+			}
+		}
+		catch(ExecutionException e){
+			if(e.getCause() instanceof Exception){
+				throw (Exception) e.getCause();
+			}
+
+			throw e;
+		}
+		finally{
+			pool.shutdown();
+		}
+
+		return results;
+	}
+}
@@ -1,6 +1,7 @@
 package utilities;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -13,6 +14,7 @@ import java.util.Set;
 import models.AttackMethod;
 import models.DARMSModel;
 import models.Flight;
+import models.ModelSnapshot;
 import models.PostScreeningResource;
 import models.RiskCategory;
 import models.ScreeningOperation;
@@ -26,7 +28,7 @@ public class DARMSModelBuilder {
 		BufferedReader reader = new BufferedReader(new FileReader(inputFilename));
 		
 		String riskCategoryFilename = null;
-		String flightListFilename = null;
+		List<String> flightListFilenames = new ArrayList<String>();
 		String screeningResourcesFilename = null;
 		String screeningOperationsFilename = null;
 		//String postScreeningResourcesFilename = null;
@@ -49,6 +51,17 @@ public class DARMSModelBuilder {
 		Double beta =  0.01;
 		Integer seed = 0;
 		String decisionRule = null;
+		String lpBackend = null;
+		Integer violationSamples = null;
+		String violationStore = null;
+		String snapshot = null;
+		String outputFormat = null;
+		double strategyTolerance = 0.0;
+		boolean constraintGeneration = false;
+		boolean scenarioPruning = true;
+		boolean presolve = true;
+		int decomposedWorkers = 0;
+		int buildThreads = 0;
 		
 		List<AttackMethod> attackMethods = new ArrayList<AttackMethod>();
 		
@@ -72,7 +85,10 @@ public class DARMSModelBuilder {
 				riskCategoryFilename = arg[1];
 			}
 			else if(arg[0].equalsIgnoreCase("FLIGHTS")){
-				flightListFilename = arg[1];
+				// several files are read in parallel and their flights concatenated
+				for(String filename : arg[1].split(",")){
+					flightListFilenames.add(filename.trim());
+				}
 			}
 			else if(arg[0].equalsIgnoreCase("SCREENING_RESOURCES")){
 				screeningResourcesFilename = arg[1];
@@ -138,288 +154,169 @@ public class DARMSModelBuilder {
 			} else if(arg[0].equals("DECISION_RULE")){
 				decisionRule = arg[1].trim();
 			}
+			else if(arg[0].equals("LP_BACKEND")){
+				lpBackend = arg[1].trim();
+			}
+			else if(arg[0].equals("VIOLATION_SAMPLES")){
+				violationSamples = Integer.parseInt(arg[1]);
+			}
+			else if(arg[0].equals("VIOLATION_STORE")){
+				violationStore = arg[1].trim();
+			}
+			else if(arg[0].equals("MODEL_SNAPSHOT")){
+				snapshot = arg[1].trim();
+			}
+			else if(arg[0].equals("OUTPUT_FORMAT")){
+				outputFormat = arg[1].trim();
+			}
+			else if(arg[0].equals("STRATEGY_TOLERANCE")){
+				strategyTolerance = Double.parseDouble(arg[1]);
+			}
+			else if(arg[0].equals("CONSTRAINT_GENERATION")){
+				constraintGeneration = Boolean.parseBoolean(arg[1]);
+			}
+			else if(arg[0].equals("SCENARIO_PRUNING")){
+				scenarioPruning = Boolean.parseBoolean(arg[1]);
+			}
+			else if(arg[0].equals("PRESOLVE")){
+				presolve = Boolean.parseBoolean(arg[1]);
+			}
+			else if(arg[0].equals("DECOMPOSED_WORKERS")){
+				decomposedWorkers = Integer.parseInt(arg[1]);
+			}
+			else if(arg[0].equals("BUILD_THREADS")){
+				buildThreads = Integer.parseInt(arg[1]);
+			}
 		}
 		
 		if(shiftDuration % timeGranularity > 0){
 			throw new Exception("Shift Duration (" + shiftDuration + ") is not evenly divisible by Time Granularity (" + timeGranularity + ").");
 		}
 		
-		Map<RiskCategory, Double> adversaryDistribution = getAdversaryDistribution(riskCategoryFilename);
-		
-		List<Flight> flightList = getFlights(adversaryDistribution.keySet(), flightListFilename, numFlights);
-		
-		Map<ScreeningResource, Integer> screeningResources = getScreeningResources(adversaryDistribution.keySet(), attackMethods, screeningResourcesFilename);
+		DARMSModel model = null;
+		byte[] inputDigest = null;
 		
-		List<ScreeningOperation> screeningOperations = getScreeningOperations(screeningResources.keySet(), screeningOperationsFilename);
-		
-		//Map<PostScreeningResource, Integer> postScreeningResources = getPostScreeningResources(attackMethods, postScreeningResourcesFilename);
-		Map<PostScreeningResource, Integer> postScreeningResources = new HashMap<PostScreeningResource, Integer>();
-
-		// numberSamples = calcNumberSamples( epsilon, beta );
-			
-		DARMSModel model = new DARMSModel(flightList, 
-				adversaryDistribution,
-				attackMethods,
-				screeningOperations,
-				screeningResources, 
-				postScreeningResources,
-				flightByFlight,
-				shiftStartTime,
-				shiftDuration,
-				timeGranularity,
-				fineDist,
-				fineMin,
-				fineMax,
-				numberTests,
-				thisTestNumber,
-				uncertain,
-				epsilon,
-				beta, 
-				overflow, 
-				aggregate,
-				numberSamples,
-				decisionRule,
-				seed
-				);
-		
-		model.calculateTemporalPassengerDistributions();
-		model.setXiDistribution();
-		model.setPayoffStructure();
-		
-		return model;
-	}
-
-	private static Map<RiskCategory, Double> getAdversaryDistribution(String filename) throws Exception{
-		Map<RiskCategory, Double> adversaryDistribution = new HashMap<RiskCategory, Double>();
-		
-		BufferedReader reader = new BufferedReader(new FileReader(filename));
-		
-		if(verb){
-			System.out.println("Reading in data file: " + filename);
-		}
-		
-		String line = reader.readLine();
-		
-		while((line = reader.readLine()) != null){
-			String[] arg = line.split(",");
-			
-			if(arg.length != 2){
-				continue;
-			}
+		// the snapshot is only used if it was built from the same input files and arguments
+		if(snapshot != null){
+			List<String> inputFiles = new ArrayList<String>();
 			
-			arg[0] = arg[0].trim();
-			arg[1] = arg[1].trim();
+			inputFiles.add(inputFilename);
+			inputFiles.add(riskCategoryFilename);
+			inputFiles.addAll(flightListFilenames);
+			inputFiles.add(screeningResourcesFilename);
+			inputFiles.addAll(getScreeningResourceEffectivenessFilenames(screeningResourcesFilename));
+			inputFiles.add(screeningOperationsFilename);
 			
-			RiskCategory c = new RiskCategory(arg[0]);
-
-			adversaryDistribution.put(c, Double.parseDouble(arg[1]));
-		}
-		
-		double probability = 0.0;
-		
-		for(RiskCategory c : adversaryDistribution.keySet()){
-			probability += adversaryDistribution.get(c);
-		}
-		
-		if(Math.abs(1.0 - probability) > DARMSModel.EPSILON){
-			throw new Exception("Adversary distribution is not a valid probability distribution.");
-		}
-		
-		return adversaryDistribution;
-	}
-	
-	private static List<Flight> getFlights(Set<RiskCategory> riskCategories, String filename, int numFlights) throws Exception{
-		List<Flight> flightList = new ArrayList<Flight>();
-		
-		BufferedReader reader = new BufferedReader(new FileReader(filename));
-		
-		if(verb){
-			System.out.println("Reading in data file: " + filename);
-		}
-		
-		Map<String, RiskCategory> riskCategoryMap = new HashMap<String, RiskCategory>();
-		
-		for(RiskCategory c : riskCategories){
-			riskCategoryMap.put(c.toString().toLowerCase(), c);
-		}
-		
-		String line = reader.readLine();
-		
-		String[] arg = line.split(",");
-		
-		Map<Integer, RiskCategory> columnMap = new HashMap<Integer, RiskCategory>();
-		
-		int here = arg.length;
-		
-		for(int i = 7; i < arg.length; i++){
-			String c = arg[i].trim().toLowerCase();
+			inputDigest = ModelSnapshot.digest(inputFiles, thisTestNumber, epsilon2, numFlights);
+			model = ModelSnapshot.read(new File(snapshot), inputDigest);
 			
-			if(riskCategoryMap.containsKey(c)){
-				columnMap.put(i, riskCategoryMap.get(c));
+			if(model != null){
+				System.out.println("Loaded model snapshot " + snapshot);
 			}
 			else{
-				throw new Exception("Unrecognized risk category \"" +  arg[i].trim() + "\" in file " + filename + ".");
+				System.out.println("Model snapshot " + snapshot + " is missing or out of date, building the model");
 			}
 		}
 		
-		for(RiskCategory c : riskCategories){
-			if(!columnMap.values().contains(c)){
-				throw new Exception("No passenger information found for risk category \"" +  c + "\" in file " + filename + ".");
-			}
-		}
+		boolean built = model == null;
 		
-		while((line = reader.readLine()) != null){
-			arg = line.split(",");
-			
-			for(int i = 0; i < arg.length; i++){
-				arg[i] = arg[i].trim();
-			}
-			
-			String description = arg[0];
-			
-			Flight.FlightType flightType = null;
-			
-			if(arg[1].equalsIgnoreCase(Flight.FlightType.DOMESTIC.toString())){
-				flightType = Flight.FlightType.DOMESTIC;
-			}
-			else if(arg[1].equalsIgnoreCase(Flight.FlightType.INTERNATIONAL.toString())){
-				flightType = Flight.FlightType.INTERNATIONAL;
-			}
-			else{
-				throw new Exception("Unsupported FlightType \"" +  arg[1] + "\" in file " + filename + ".");
-			}
+		if(built){
+			DARMSInputReader input = new DARMSInputReader(Runtime.getRuntime().availableProcessors());
 			
-			int departureTime = DARMSHelper.convertTimeToInteger(arg[2]);
+			Map<RiskCategory, Double> adversaryDistribution = input.readAdversaryDistribution(riskCategoryFilename);
 			
-			int defUncovPayoff = Integer.parseInt(arg[3])*1;
-			int defCovPayoff = Integer.parseInt(arg[4])*1;
-			int attUncovPayoff = Integer.parseInt(arg[5])*1;
-			int attCovPayoff = Integer.parseInt(arg[6])*1;
+			// flights and resources are read even if the categories had errors, so that one run reports all of them
+			List<Flight> flightList = input.readFlights(adversaryDistribution.keySet(), flightListFilenames);
 			
-			Map<RiskCategory, Integer> distribution = new HashMap<RiskCategory, Integer>();
+			Map<ScreeningResource, Integer> screeningResources = input.readScreeningResources(adversaryDistribution.keySet(), attackMethods, screeningResourcesFilename);
 			
-			for(int column : columnMap.keySet()){
-				distribution.put(columnMap.get(column), Integer.parseInt(arg[column]));
-			}
-			
-			Flight f = new Flight(description, flightType, departureTime, distribution);
-			f.setPayoffs(defUncovPayoff, defCovPayoff, attUncovPayoff, attCovPayoff);
+			input.check();
 			
-			flightList.add(f);
-		}
-		flightList = flightList.subList(0, numFlights);
+			flightList = flightList.subList(0, numFlights);
 		
-		return flightList;
-	}
-	
-	private static Map<ScreeningResource, Integer> getScreeningResources(Set<RiskCategory> riskCategories, List<AttackMethod> attackMethods, String filename) throws Exception{
-		Map<ScreeningResource, Integer> screeningResources = new HashMap<ScreeningResource, Integer>();
+			List<ScreeningOperation> screeningOperations = getScreeningOperations(screeningResources.keySet(), screeningOperationsFilename);
 		
-		BufferedReader reader = new BufferedReader(new FileReader(filename));
-		
-		if(verb){
-			System.out.println("Reading in data file: " + filename);
-		}
-		
-		String line = reader.readLine();
-		
-		String[] arg = line.split(",");
-		
-		while((line = reader.readLine()) != null){
-			arg = line.split(",");
-			
-			String description = arg[0].trim();
-			int quantity = Integer.parseInt(arg[1].trim());
-			int capacity = Integer.parseInt(arg[2].trim());
-			String effectivenessFilename = arg[3].trim();
-			
-			ScreeningResource r = new ScreeningResource(description, capacity, 0);
-			
-			Map<AttackMethod, Map<RiskCategory, Double>> resourceEffectiveness = getScreeningResourceEffectiveness(riskCategories, attackMethods, effectivenessFilename);
+			//Map<PostScreeningResource, Integer> postScreeningResources = getPostScreeningResources(attackMethods, postScreeningResourcesFilename);
+			Map<PostScreeningResource, Integer> postScreeningResources = new HashMap<PostScreeningResource, Integer>();
 
-			r.setEffectiveness(resourceEffectiveness);
-			
-			screeningResources.put(r, quantity);
+			// numberSamples = calcNumberSamples( epsilon, beta );
+			
+			model = new DARMSModel(flightList, 
+					adversaryDistribution,
+					attackMethods,
+					screeningOperations,
+					screeningResources, 
+					postScreeningResources,
+					flightByFlight,
+					shiftStartTime,
+					shiftDuration,
+					timeGranularity,
+					fineDist,
+					fineMin,
+					fineMax,
+					numberTests,
+					thisTestNumber,
+					uncertain,
+					epsilon,
+					beta, 
+					overflow, 
+					aggregate,
+					numberSamples,
+					decisionRule,
+					seed
+					);
 		}
 		
-		reader.close();
-		
-		return screeningResources;
-	}
-	
-	private static Map<AttackMethod, Map<RiskCategory, Double>> getScreeningResourceEffectiveness(Set<RiskCategory> riskCategories, List<AttackMethod> attackMethods, String filename) throws Exception{
-		Map<AttackMethod, Map<RiskCategory, Double>> effectivenessMap = new HashMap<AttackMethod, Map<RiskCategory, Double>>();
-		
-		BufferedReader reader = new BufferedReader(new FileReader(filename));
-		
-		if(verb){
-			System.out.println("Reading in data file: " + filename);
+		if(lpBackend != null){
+			model.lpBackend = lpBackend;
 		}
 		
-		Map<String, RiskCategory> riskCategoryMap = new HashMap<String, RiskCategory>();
-		
-		for(RiskCategory c : riskCategories){
-			riskCategoryMap.put(c.toString().toLowerCase(), c);
+		if(outputFormat != null){
+			model.outputFormat = outputFormat;
 		}
 		
-		Map<String, AttackMethod> attackMethodMap = new HashMap<String, AttackMethod>();
+		model.strategyTolerance = strategyTolerance;
+		model.constraintGeneration = constraintGeneration;
+		model.scenarioPruning = scenarioPruning;
+		model.presolve = presolve;
+		model.decomposedWorkers = decomposedWorkers;
+		model.buildThreads = buildThreads;
+		model.violationStore = violationStore;
 		
-		for(AttackMethod m : attackMethods){
-			attackMethodMap.put(m.toString().toLowerCase(), m);
-			effectivenessMap.put(m, null);
+		if(violationSamples != null){
+			model.violationSamples = violationSamples;
 		}
 		
-		String line = reader.readLine();
-		
-		String[] arg = line.split(",");
-		
-		Map<Integer, RiskCategory> columnMap = new HashMap<Integer, RiskCategory>();
-		
-		for(int i = 1; i < arg.length; i++){
-			String c = arg[i].trim().toLowerCase();
+		if(built){
+			model.calculateTemporalPassengerDistributions();
+			model.setXiDistribution();
+			model.setPayoffStructure();
 			
-			if(riskCategoryMap.containsKey(c)){
-				columnMap.put(i, riskCategoryMap.get(c));
-			}
-			else if(verb){
-				System.out.println("IGNORED: Effectiveness information for risk category \"" + arg[i].trim() + "\" in file " + filename + ".");
+			if(snapshot != null){
+				ModelSnapshot.write(model, new File(snapshot), inputDigest);
+				System.out.println("Wrote model snapshot " + snapshot);
 			}
 		}
 		
-		for(RiskCategory c : riskCategories){
-			if(!columnMap.values().contains(c)){
-				throw new Exception("No effectiveness information found for risk category \"" +  c + "\" in file " + filename + ".");
-			}
-		}
+		return model;
+	}
+
+	private static List<String> getScreeningResourceEffectivenessFilenames(String filename) throws Exception{
+		List<String> filenames = new ArrayList<String>();
 		
-		while((line = reader.readLine()) != null){
-			arg = line.split(",");
-			
-			String method = arg[0].trim().toLowerCase();
-			
-			if(attackMethodMap.containsKey(method)){
-				AttackMethod m = attackMethodMap.get(method);
-				
-				effectivenessMap.put(m, new HashMap<RiskCategory, Double>());
-				
-				for(int i : columnMap.keySet()){
-					effectivenessMap.get(m).put(columnMap.get(i), Double.parseDouble(arg[i].trim()));
-				}
-			}
-			else if(verb){
-				System.out.println("IGNORED: Effectiveness information for attack method \"" + arg[0].trim() + "\" in file " + filename + ".");
-			}
-		}
+		CsvReader reader = new CsvReader(filename);
 		
-		for(AttackMethod m : effectivenessMap.keySet()){
-			if(effectivenessMap.get(m) == null){
-				throw new Exception("No effectiveness information found for attack method \"" +  m + "\" in file " + filename + ".");
+		reader.next();
+		
+		while(reader.next()){
+			if(reader.numFields() > 3){
+				filenames.add(reader.field(3));
 			}
 		}
 		
 		reader.close();
 		
-		return effectivenessMap;
+		return filenames;
 	}
 	
 	public static List<ScreeningOperation> getScreeningOperations(Set<ScreeningResource> screeningResources, String filename) throws Exception{
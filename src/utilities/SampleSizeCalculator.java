@@ -0,0 +1,76 @@
+package utilities;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.special.Beta;
+
+/**
+ * Number of samples N for which sum_{i < nw} C(N, i) epsilon^i (1 - epsilon)^(N - i),
+ * the probability that a Binomial(N, epsilon) variable is at most nw - 1, drops
+ * to beta, where nw is the number of decision variables of the LP. The tail is
+ * the regularized incomplete beta function I_{1 - epsilon}(N - nw + 1, nw),
+ * which commons-math evaluates in log space, and it decreases in N, so the
+ * smallest such N is found by bisection. Results are kept per
+ * (epsilon, beta, nw) for the lifetime of the JVM.
+ */
+public class SampleSizeCalculator {
+	private static final Map<List<Object>, Integer> cache = new HashMap<List<Object>, Integer>();
+
+	public static int requiredSamples(double epsilon, double beta, int nw){
+		if(epsilon <= 0 || epsilon > 1 || beta <= 0 || nw < 1){
+			throw new IllegalArgumentException("No sample size for epsilon = " + epsilon + ", beta = " + beta + ", nw = " + nw);
+		}
+
+		List<Object> key = Arrays.<Object>asList(epsilon, beta, nw);
+
+		synchronized(cache){
+			Integer cached = cache.get(key);
+
+			if(cached != null){
+				return cached;
+			}
+		}
+
+		// tail(lo) > beta and tail(hi) <= beta; below nw samples the tail is 1
+		long lo = nw - 1;
+		long hi = nw;
+
+		while(tail(hi, epsilon, nw) > beta){
+			lo = hi;
+			hi = 2 * hi;
+
+			if(hi > Integer.MAX_VALUE){
+				throw new IllegalArgumentException("More than " + Integer.MAX_VALUE + " samples needed for epsilon = " + epsilon + ", beta = " + beta + ", nw = " + nw);
+			}
+		}
+
+		while(hi - lo > 1){
+			long mid = (lo + hi) / 2;
+
+			if(tail(mid, epsilon, nw) > beta){
+				lo = mid;
+			}
+			else{
+				hi = mid;
+			}
+		}
+
+		synchronized(cache){
+			cache.put(key, (int) hi);
+		}
+
+		return (int) hi;
+	}
+
+	// probability that a Binomial(n, epsilon) variable is below nw
+	public static double tail(long n, double epsilon, int nw){
+		if(n < nw){
+			return 1.0;
+		}
+
+		return Beta.regularizedBeta(1 - epsilon, n - nw + 1, nw);
+	}
+}